@@ -0,0 +1,268 @@
+package game.tetris.gui;
+import game.tetris.lib.BoardSnapshot;
+import game.tetris.lib.DirtyCells;
+import game.tetris.lib.Tile;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.VolatileImage;
+import javax.swing.JComponent;
+
+/**
+ * BoardPanel is the one component that shows the Tetris board.
+ *
+ * It can be any size: cells are square, as big as fit, and the
+ * board is centered. Everything is drawn in device pixels, so on
+ * HiDPI screens the board is sharp instead of upscaled.
+ *
+ * Cells are drawn by copying tile sprites (see TileSprites) into a
+ * back buffer, and painting the component is a single copy of that
+ * buffer. A cell is only drawn into the back buffer when its color
+ * changes (see updateBoard()), and only the rows it changed in are
+ * repainted. When a snapshot follows the one drawn last, only the
+ * cells it says changed are looked at. The sprites and the back buffer are only rebuilt when
+ * the size or the screen of the component changes.
+ *
+ * @author Rahul
+ *
+ */
+public class BoardPanel extends JComponent {
+	private static final long serialVersionUID = 1L;
+	//lastFrame before any BoardSnapshot was given
+	private static final long NO_FRAME = Long.MIN_VALUE;
+
+	private int numRows;
+	private int numCols;
+	//Cell code (see BoardSnapshot.getCellCode()) of every cell, as last given by updateBoard()
+	private int[][] cellCodes;
+	//Cells whose color changed since they were drawn into the back buffer
+	private DirtyCells changedCells;
+	//Frame number of the BoardSnapshot last given to updateBoard(), NO_FRAME if none
+	private long lastFrame;
+
+	private TileSprites sprites;
+	//Cells drawn at the current size, rebuilt when the size changes
+	private VolatileImage backBuffer;
+	//Size of a cell and of the device pixels, as of the last paint
+	private int cellPixels;
+	private double pixelScale;
+	//Where the time of every paint is recorded, if anywhere
+	private PerfCounters perfCounters;
+
+	/**
+	 * Constructor of an all black board.
+	 * @param numRows how many rows the board has
+	 * @param numCols how many cols the board has
+	 * @param preferredSize size of the board on screen
+	 */
+	public BoardPanel(int numRows, int numCols, Dimension preferredSize) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		cellCodes = new int[numRows][numCols];
+		changedCells = new DirtyCells();
+		lastFrame = NO_FRAME;
+		sprites = new TileSprites();
+		cellPixels = 0;
+		pixelScale = 1;
+
+		setOpaque(true);
+		setBackground(Color.BLACK);
+		setPreferredSize(preferredSize);
+	}
+	/**
+	 * Setter for the PerfCounters the time of every paint
+	 * is recorded into.
+	 * @param perfCounters PerfCounters, or null to record nothing
+	 * @return Nothing
+	 */
+	public void setPerfCounters(PerfCounters perfCounters) {
+		this.perfCounters = perfCounters;
+	}
+	/**
+	 * Takes a 2D Tile Array and makes every cell
+	 * the color of its Tile.
+	 * @param input 2D Tile Array
+	 * @return Nothing
+	 */
+	public void updateBoard(Tile[][] input) {
+		for (int row = 0; row < numRows; row++) {
+			for (int col = 0; col < numCols; col++) {
+				setCell(row, col, Tile.codeOfColor(input[row][col].getColor()));
+			}
+		}
+		lastFrame = NO_FRAME;
+		repaint();
+	}
+	/**
+	 * Takes a BoardSnapshot and makes every cell the color it has
+	 * in it, the ghost of the falling piece being drawn as an outline,
+	 * and repaints the span of every row where cells changed.
+	 * If the snapshot is of the frame after the one drawn last, only
+	 * the cells it says changed (see BoardSnapshot.getChangedMask())
+	 * are looked at. After frames the renderer skipped, every cell is
+	 * compared to what was drawn last.
+	 * @param input BoardSnapshot of the board
+	 * @return Nothing
+	 */
+	public void updateBoard(BoardSnapshot input) {
+		boolean follows = lastFrame != NO_FRAME && input.getFrameNumber() == lastFrame + 1;
+		lastFrame = input.getFrameNumber();
+		for (int row = 0; row < numRows; row++) {
+			int leftCol = numCols;
+			int rightCol = -1;
+			int mask = follows ? input.getChangedMask(row) : -1;
+
+			for (int col = 0; col < numCols && mask != 0; col++, mask >>>= 1) {
+				if ((mask & 1) != 0 && setCell(row, col, input.getCellCode(row, col))) {
+					leftCol = Math.min(leftCol, col);
+					rightCol = col;
+				}
+			}
+			if (rightCol >= 0)
+				repaintCells(row, leftCol, rightCol);
+		}
+	}
+	/**
+	 * This helper function changes the color of one cell,
+	 * to be drawn into the back buffer on the next paint.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @param code new cell code (see BoardSnapshot.getCellCode()) of the cell
+	 * @return true if the color changed
+	 * 		   false otherwise
+	 */
+	private boolean setCell(int row, int col, int code) {
+		if (cellCodes[row][col] == code)
+			return false;
+		cellCodes[row][col] = code;
+		changedCells.markCell(row, col);
+		return true;
+	}
+	/**
+	 * This helper function repaints the span of cells of one row,
+	 * converting it from device pixels to the component's own.
+	 * @param row row of the cells
+	 * @param leftCol leftmost col of the span
+	 * @param rightCol rightmost col of the span
+	 * @return Nothing
+	 */
+	private void repaintCells(int row, int leftCol, int rightCol) {
+		if (cellPixels == 0) {
+			repaint();
+			return;
+		}
+		int x = (int)Math.floor((boardX() + leftCol * cellPixels) / pixelScale);
+		int y = (int)Math.floor((boardY() + row * cellPixels) / pixelScale);
+		int right = (int)Math.ceil((boardX() + (rightCol + 1) * cellPixels) / pixelScale);
+		int bottom = (int)Math.ceil((boardY() + (row + 1) * cellPixels) / pixelScale);
+		repaint(x, y, right - x, bottom - y);
+	}
+	/**
+	 * This helper function finds the left edge of the board,
+	 * centered in the component.
+	 * @return int x in device pixels
+	 */
+	private int boardX() {
+		return ((int)Math.round(getWidth() * pixelScale) - numCols * cellPixels) / 2;
+	}
+	/**
+	 * This helper function finds the top edge of the board,
+	 * centered in the component.
+	 * @return int y in device pixels
+	 */
+	private int boardY() {
+		return ((int)Math.round(getHeight() * pixelScale) - numRows * cellPixels) / 2;
+	}
+	/**
+	 * Paints the component by copying the back buffer, in device pixels.
+	 *
+	 * The sprites and the back buffer are rebuilt first if the size
+	 * of the component, its screen or its scale changed, and the
+	 * cells are drawn again if they were lost; otherwise only the
+	 * cells which changed since the last paint are drawn into it.
+	 * @param g Graphics of the component
+	 * @return Nothing
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D)g;
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config == null || getWidth() <= 0 || getHeight() <= 0)
+			return;
+
+		long start = System.nanoTime();
+		//Draws with no scaling, from where the component is in device pixels.
+		AffineTransform transform = g2.getTransform();
+		double scale = transform.getScaleX();
+		g2.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(),
+															 transform.getTranslateY()));
+		layOut(config, scale);
+
+		int deviceWidth = (int)Math.round(getWidth() * pixelScale);
+		int deviceHeight = (int)Math.round(getHeight() * pixelScale);
+		g2.setColor(getBackground());
+		g2.fillRect(0, 0, deviceWidth, deviceHeight);
+
+		if (cellPixels > 0) {
+			do {
+				if (backBuffer.validate(config) != VolatileImage.IMAGE_OK)
+					changedCells.markAll();
+				drawChangedCells();
+				g2.drawImage(backBuffer, boardX(), boardY(), null);
+			} while (backBuffer.contentsLost());
+		}
+		g2.setTransform(transform);
+		if (perfCounters != null)
+			perfCounters.recordPaint(System.nanoTime() - start);
+	}
+	/**
+	 * This helper function sizes the cells to fit the component,
+	 * and rebuilds the sprites and the back buffer if they changed.
+	 * @param config GraphicsConfiguration of the component
+	 * @param scale device pixels per pixel of the component
+	 * @return Nothing
+	 */
+	private void layOut(GraphicsConfiguration config, double scale) {
+		pixelScale = scale;
+		int newCellPixels = Math.min((int)Math.round(getWidth() * scale) / numCols,
+									 (int)Math.round(getHeight() * scale) / numRows);
+		cellPixels = Math.max(newCellPixels, 0);
+		if (cellPixels == 0)
+			return;
+
+		if (sprites.update(config, cellPixels) || backBuffer == null) {
+			if (backBuffer != null)
+				backBuffer.flush();
+			backBuffer = config.createCompatibleVolatileImage(numCols * cellPixels, numRows * cellPixels,
+															  Transparency.OPAQUE);
+			changedCells.markAll();
+		}
+	}
+	/**
+	 * This helper function draws the sprite of every changed cell
+	 * into the back buffer, and all cells if a sprite was lost.
+	 * @return Nothing
+	 */
+	private void drawChangedCells() {
+		if (sprites.contentsLost())
+			changedCells.markAll();
+		if (changedCells.isEmpty())
+			return;
+
+		Graphics2D g = backBuffer.createGraphics();
+		for (int row = 0; row < numRows; row++) {
+			//Walk the set bits of the row only.
+			for (int mask = changedCells.getRowMask(row); mask != 0; mask &= mask - 1) {
+				int col = Integer.numberOfTrailingZeros(mask);
+				sprites.draw(g, cellCodes[row][col], col * cellPixels, row * cellPixels);
+			}
+		}
+		g.dispose();
+		changedCells.clear();
+	}
+}
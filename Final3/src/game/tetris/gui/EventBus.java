@@ -0,0 +1,153 @@
+package game.tetris.gui;
+import game.tetris.lib.BoardSnapshot;
+import game.tetris.lib.TripleBuffer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+
+/**
+ * EventBus delivers typed events from TetrisModel to any
+ * number of Subscribers, always on the EDT.
+ * 
+ * Events can be posted from any thread without locking: they go
+ * into a lock-free queue, and at most one task at a time is waiting
+ * on the EDT to drain it. Subscribers are kept in a copy-on-write
+ * list, so delivering never locks either.
+ * 
+ * Frames of the board don't go through the queue: the model writes
+ * a BoardSnapshot into the back buffer of a TripleBuffer (see beginFrame())
+ * and publishes it (see publishFrame()), which allocates nothing and
+ * never waits on the EDT. When the EDT drains, only the newest frame is
+ * delivered to the BoardSnapshot subscribers, however many were published,
+ * before the other events, which are delivered in the order they were posted.
+ * 
+ * @author Rahul
+ *
+ */
+public class EventBus {
+	private CopyOnWriteArrayList<Subscription<?>> subscriptions;
+	private ConcurrentLinkedQueue<Object> queue;
+	private AtomicBoolean drainScheduled;
+	private Runnable drainTask;
+	
+	private TripleBuffer<BoardSnapshot> frames;
+	
+	/**
+	 * Constructor of an EventBus with no subscribers.
+	 * @param numRows how many rows the board has
+	 * @param numCols how many cols the board has
+	 */
+	public EventBus(int numRows, int numCols) {
+		subscriptions = new CopyOnWriteArrayList<Subscription<?>>();
+		queue = new ConcurrentLinkedQueue<Object>();
+		drainScheduled = new AtomicBoolean(false);
+		drainTask = new Runnable() {
+			public void run() {
+				drain();
+			}
+		};
+		frames = new TripleBuffer<BoardSnapshot>(new BoardSnapshot(numRows, numCols),
+												 new BoardSnapshot(numRows, numCols),
+												 new BoardSnapshot(numRows, numCols));
+	}
+	/**
+	 * Subscribes to every event of a type (or of its subtypes).
+	 * @param type Class of the events
+	 * @param subscriber Subscriber to deliver them to
+	 * @return Nothing
+	 */
+	public <E> void subscribe(Class<E> type, Subscriber<? super E> subscriber) {
+		subscriptions.add(new Subscription<E>(type, subscriber));
+	}
+	/**
+	 * Unsubscribes a Subscriber from every type it subscribed to.
+	 * @param subscriber Subscriber to remove
+	 * @return Nothing
+	 */
+	public void unsubscribe(Subscriber<?> subscriber) {
+		for (Subscription<?> subscription : subscriptions) {
+			if (subscription.subscriber == subscriber)
+				subscriptions.remove(subscription);
+		}
+	}
+	/**
+	 * Posts an event, to be delivered on the EDT.
+	 * Can be called from any thread, and never blocks.
+	 * @param event event to post
+	 * @return Nothing
+	 */
+	public void post(Object event) {
+		queue.offer(event);
+		scheduleDrain();
+	}
+	/**
+	 * Getter for the snapshot the next frame must be written into,
+	 * before it is published with publishFrame().
+	 * Only the thread which publishes frames may call it.
+	 * @return BoardSnapshot back buffer
+	 */
+	public BoardSnapshot beginFrame() {
+		return frames.getBackBuffer();
+	}
+	/**
+	 * Publishes the snapshot of beginFrame() as the newest frame,
+	 * to be delivered on the EDT. Never blocks.
+	 * @return Nothing
+	 */
+	public void publishFrame() {
+		frames.publish();
+		scheduleDrain();
+	}
+	/**
+	 * This helper function asks the EDT to drain,
+	 * unless it already was asked to.
+	 * @return Nothing
+	 */
+	private void scheduleDrain() {
+		if (drainScheduled.compareAndSet(false, true))
+			SwingUtilities.invokeLater(drainTask);
+	}
+	/**
+	 * This helper function runs on the EDT and
+	 * delivers every event posted so far.
+	 * @return Nothing
+	 */
+	private void drain() {
+		//Anything posted from now on schedules another drain.
+		drainScheduled.set(false);
+		
+		if (frames.hasNewFrame())
+			deliver(frames.takeNewest());
+		Object event;
+		while ((event = queue.poll()) != null)
+			deliver(event);
+	}
+	/**
+	 * This helper function delivers an event to
+	 * every Subscriber of its type.
+	 * @param event event to deliver
+	 * @return Nothing
+	 */
+	private void deliver(Object event) {
+		for (Subscription<?> subscription : subscriptions)
+			subscription.deliver(event);
+	}
+	/**
+	 * A Subscriber and the type of events it gets.
+	 */
+	private static class Subscription<E> {
+		final Class<E> type;
+		final Subscriber<? super E> subscriber;
+		
+		Subscription(Class<E> type, Subscriber<? super E> subscriber) {
+			this.type = type;
+			this.subscriber = subscriber;
+		}
+		void deliver(Object event) {
+			if (type.isInstance(event))
+				subscriber.onEvent(type.cast(event));
+		}
+	}
+}
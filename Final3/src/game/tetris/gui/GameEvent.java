@@ -0,0 +1,11 @@
+package game.tetris.gui;
+/**
+ * GameEvent is the event TetrisModel posts when
+ * something happens to the Tetris Game as a whole.
+ * 
+ * @author Rahul
+ *
+ */
+public enum GameEvent {
+	STARTED, LOADED, PAUSED, RESUMED, UNDONE, SAVED, SAVE_FAILED, GAME_OVER, FRAMES_DROPPED
+}
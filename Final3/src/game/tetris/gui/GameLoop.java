@@ -0,0 +1,191 @@
+package game.tetris.gui;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop runs the Tetris Game of a TetrisModel on its own
+ * thread, one frame every fixed time step.
+ * 
+ * Frames are timed from when the loop started, not from the last
+ * key press, so gravity doesn't depend on input. Every frame is the same
+ * fixed time step of the game, however late it runs: when the thread is
+ * late, the missed frames are run back to back, up to MAX_CATCH_UP_FRAMES,
+ * so the game goes on the same way. Frames later than that are dropped,
+ * counted (see getDroppedFrames()) and reported as GameEvent.FRAMES_DROPPED. The Player's commands
+ * are offered from the EDT into a lock-free queue, which wakes up the
+ * loop thread: it applies them right away, between frames, and measures
+ * how long each took (see getInputLatency()). The EDT is only used to
+ * render the frames TetrisModel publishes.
+ * 
+ * @author Rahul
+ *
+ */
+public class GameLoop implements Runnable {
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	//Frames run back to back at most when the loop is late
+	private static final int MAX_CATCH_UP_FRAMES = 5;
+	
+	private TetrisModel model;
+	private long stepNanos;
+	private volatile long droppedFrames;
+	private ConcurrentLinkedQueue<QueuedCommand> commands;
+	private LatencyMeter inputLatency;
+	
+	private volatile boolean running;
+	private volatile Thread thread;
+	
+	/**
+	 * Constructor of a stopped GameLoop.
+	 * @param model TetrisModel to run the frames of
+	 * @param framesPerSecond how many frames to run every second
+	 */
+	public GameLoop(TetrisModel model, int framesPerSecond) {
+		this.model = model;
+		this.stepNanos = NANOS_PER_SECOND / framesPerSecond;
+		this.commands = new ConcurrentLinkedQueue<QueuedCommand>();
+		this.inputLatency = new LatencyMeter();
+	}
+	/**
+	 * Starts running frames on a new loop thread.
+	 * A loop that is already running is restarted.
+	 * @return Nothing
+	 */
+	public synchronized void start() {
+		stop();
+		commands.clear();
+		running = true;
+		thread = new Thread(this, "Tetris game loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	/**
+	 * Stops running frames, and waits for the
+	 * frame in progress (if any) to finish.
+	 * @return Nothing
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread == null)
+			return;
+		LockSupport.unpark(thread);
+		if (thread != Thread.currentThread()) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		thread = null;
+	}
+	/**
+	 * Queues a command of the Player, and wakes up
+	 * the loop thread to apply it.
+	 * Can be called from any thread, and never blocks.
+	 * @param command PlayerCommand to queue
+	 * @return Nothing
+	 */
+	public void offer(PlayerCommand command) {
+		commands.offer(new QueuedCommand(command, System.nanoTime()));
+		Thread loopThread = thread;
+		if (loopThread != null)
+			LockSupport.unpark(loopThread);
+	}
+	/**
+	 * Getter for the input latency metric: from a command
+	 * being offered to the game state having changed.
+	 * @return LatencyMeter of this loop
+	 */
+	public LatencyMeter getInputLatency() {
+		return inputLatency;
+	}
+	/**
+	 * Getter for how many frames were dropped since the loop
+	 * was constructed, because the loop was too late to run them.
+	 * @return long number of dropped frames
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+	/**
+	 * Body of the loop thread.
+	 * 
+	 * Queued commands are applied as soon as they wake up the thread.
+	 * Every time step, one frame is run. Late frames are run back to back,
+	 * up to MAX_CATCH_UP_FRAMES at once; the frames due past those are dropped.
+	 * Once the game is over, one last frame shows it and the loop ends.
+	 * @return Nothing
+	 */
+	@Override
+	public void run() {
+		long nextFrame = System.nanoTime() + stepNanos;
+		int caughtUp = 0;
+		
+		while (running) {
+			applyCommands();
+			
+			long wait = nextFrame - System.nanoTime();
+			if (wait > 0) {
+				//Sleeps until the next frame, unless offer() or stop() wakes it up.
+				caughtUp = 0;
+				LockSupport.parkNanos(this, wait);
+				continue;
+			}
+			if (running == false)
+				break;
+			boolean wasGameOver = model.isGameOver();
+			model.runOneFrame();
+			//runOneFrame must not be run now that the game is over.
+			if (wasGameOver)
+				running = false;
+			
+			nextFrame += stepNanos;
+			caughtUp++;
+			//A loop which stays late drops frames every MAX_CATCH_UP_FRAMES.
+			if (caughtUp >= MAX_CATCH_UP_FRAMES) {
+				nextFrame = dropLateFrames(nextFrame);
+				caughtUp = 0;
+			}
+		}
+	}
+	/**
+	 * This helper function drops every whole frame
+	 * already due, and reports them to the model.
+	 * @param nextFrame when the next frame is due
+	 * @return long when the first frame that wasn't dropped is due
+	 */
+	private long dropLateFrames(long nextFrame) {
+		long late = System.nanoTime() - nextFrame;
+		if (late < stepNanos)
+			return nextFrame;
+		long dropped = late / stepNanos;
+		droppedFrames += dropped;
+		model.framesDropped();
+		return nextFrame + dropped * stepNanos;
+	}
+	/**
+	 * This helper function applies every queued command
+	 * to the model, recording their latency.
+	 * @return Nothing
+	 */
+	private void applyCommands() {
+		QueuedCommand queued;
+		while (running && (queued = commands.poll()) != null) {
+			model.applyCommand(queued.command);
+			inputLatency.record(System.nanoTime() - queued.offeredNanos);
+		}
+	}
+	/**
+	 * A PlayerCommand and when it was offered.
+	 */
+	private static class QueuedCommand {
+		final PlayerCommand command;
+		final long offeredNanos;
+		
+		QueuedCommand(PlayerCommand command, long offeredNanos) {
+			this.command = command;
+			this.offeredNanos = offeredNanos;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package game.tetris.gui;
+/**
+ * LatencyMeter measures how long Player inputs take from the
+ * key press to the game state having changed.
+ * 
+ * Samples are recorded by the game loop thread and read from
+ * any thread, so every function is synchronized. Samples are
+ * kept as running totals, so recording allocates nothing.
+ * 
+ * @author Rahul
+ *
+ */
+public class LatencyMeter {
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+	private long lastNanos;
+	
+	/**
+	 * Records one input.
+	 * @param latencyNanos time from the key press to the state change
+	 * @return Nothing
+	 */
+	public synchronized void record(long latencyNanos) {
+		count++;
+		totalNanos += latencyNanos;
+		maxNanos = Math.max(maxNanos, latencyNanos);
+		lastNanos = latencyNanos;
+	}
+	/**
+	 * Forgets every recorded input.
+	 * @return Nothing
+	 */
+	public synchronized void reset() {
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+		lastNanos = 0;
+	}
+	/**
+	 * Getter for how many inputs were recorded.
+	 * @return long count of inputs
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+	/**
+	 * Getter for the mean latency.
+	 * @return double milliseconds, 0 if nothing was recorded
+	 */
+	public synchronized double getMeanMillis() {
+		if (count == 0)
+			return 0;
+		return totalNanos / NANOS_PER_MILLI / count;
+	}
+	/**
+	 * Getter for the worst latency.
+	 * @return double milliseconds
+	 */
+	public synchronized double getMaxMillis() {
+		return maxNanos / NANOS_PER_MILLI;
+	}
+	/**
+	 * Getter for the latency of the last input.
+	 * @return double milliseconds
+	 */
+	public synchronized double getLastMillis() {
+		return lastNanos / NANOS_PER_MILLI;
+	}
+	@Override
+	public synchronized String toString() {
+		return String.format("input latency: n=%d mean=%.2fms max=%.2fms last=%.2fms",
+							 count, getMeanMillis(), getMaxMillis(), getLastMillis());
+	}
+}
@@ -0,0 +1,48 @@
+package game.tetris.gui;
+/**
+ * MenuState is the event TetrisModel posts when
+ * the menu options that can be chosen change.
+ * Instances are immutable.
+ * 
+ * @author Rahul
+ *
+ */
+public class MenuState {
+	private final boolean newGameEnabled;
+	private final boolean loadEnabled;
+	private final boolean pauseEnabled;
+	private final boolean undoEnabled;
+	private final boolean saveEnabled;
+	
+	/**
+	 * Constructor.
+	 * @param newGameEnabled if "New Game" can be chosen
+	 * @param loadEnabled if "Load Game" can be chosen
+	 * @param pauseEnabled if "Pause/Unpause" can be chosen
+	 * @param undoEnabled if "Undo move" can be chosen
+	 * @param saveEnabled if "Save Game" can be chosen
+	 */
+	public MenuState(boolean newGameEnabled, boolean loadEnabled, boolean pauseEnabled,
+					 boolean undoEnabled, boolean saveEnabled) {
+		this.newGameEnabled = newGameEnabled;
+		this.loadEnabled = loadEnabled;
+		this.pauseEnabled = pauseEnabled;
+		this.undoEnabled = undoEnabled;
+		this.saveEnabled = saveEnabled;
+	}
+	public boolean isNewGameEnabled() {
+		return newGameEnabled;
+	}
+	public boolean isLoadEnabled() {
+		return loadEnabled;
+	}
+	public boolean isPauseEnabled() {
+		return pauseEnabled;
+	}
+	public boolean isUndoEnabled() {
+		return undoEnabled;
+	}
+	public boolean isSaveEnabled() {
+		return saveEnabled;
+	}
+}
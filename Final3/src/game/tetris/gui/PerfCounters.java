@@ -0,0 +1,200 @@
+package game.tetris.gui;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * PerfCounters gathers the performance counters shown by PerfHud.
+ * 
+ * Times are recorded around the work of every frame: running the
+ * Game (see Game.runFrame()) and publishing its board on the game loop
+ * thread, and updating and painting the board on the EDT. Each record
+ * is an atomic add, so the counters are always on.
+ * 
+ * Allocation and garbage collection come from the JVM instead:
+ * the bytes allocated by the game loop thread and the EDT, and the
+ * pauses of the last garbage collections, as the collectors report them.
+ * 
+ * @author Rahul
+ *
+ */
+public class PerfCounters {
+	public static final int NUM_RECENT_GC_PAUSES = 5;
+	
+	private TimeHistogram tickTimes;
+	private TimeHistogram broadcastTimes;
+	private TimeHistogram renderTimes;
+	//Time the EDT spent updating and painting the board
+	private AtomicLong edtBusyNanos;
+	
+	//Threads the allocations are counted on
+	private volatile long loopThreadId;
+	private volatile long edtThreadId;
+	private ThreadMXBean threadBean;
+	
+	//Ring of the last garbage collection pauses, in milliseconds
+	private long[] recentGcPauses;
+	private long numGcPauses;
+	private boolean gcListening;
+	
+	/**
+	 * Constructor of PerfCounters with nothing recorded.
+	 */
+	public PerfCounters() {
+		tickTimes = new TimeHistogram();
+		broadcastTimes = new TimeHistogram();
+		renderTimes = new TimeHistogram();
+		edtBusyNanos = new AtomicLong();
+		loopThreadId = -1;
+		edtThreadId = -1;
+		
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof ThreadMXBean && ((ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+			threadBean = (ThreadMXBean)bean;
+		recentGcPauses = new long[NUM_RECENT_GC_PAUSES];
+		numGcPauses = 0;
+		gcListening = false;
+	}
+	/**
+	 * Records how long running the Game took for one frame.
+	 * Called on the game loop thread.
+	 * @param nanos time in nanoseconds
+	 * @return Nothing
+	 */
+	public void recordTick(long nanos) {
+		loopThreadId = Thread.currentThread().getId();
+		tickTimes.record(nanos);
+	}
+	/**
+	 * Records how long publishing the board took for one frame.
+	 * @param nanos time in nanoseconds
+	 * @return Nothing
+	 */
+	public void recordBroadcast(long nanos) {
+		broadcastTimes.record(nanos);
+	}
+	/**
+	 * Records how long updating the view took for one frame.
+	 * Called on the EDT.
+	 * @param nanos time in nanoseconds
+	 * @return Nothing
+	 */
+	public void recordRender(long nanos) {
+		edtThreadId = Thread.currentThread().getId();
+		renderTimes.record(nanos);
+		edtBusyNanos.addAndGet(nanos);
+	}
+	/**
+	 * Records how long painting the board took.
+	 * Called on the EDT.
+	 * @param nanos time in nanoseconds
+	 * @return Nothing
+	 */
+	public void recordPaint(long nanos) {
+		edtBusyNanos.addAndGet(nanos);
+	}
+	/**
+	 * Getter for the times of running one frame of the game.
+	 * @return TimeHistogram of recordTick()
+	 */
+	public TimeHistogram getTickTimes() {
+		return tickTimes;
+	}
+	/**
+	 * Getter for the times of publishing the board of one frame.
+	 * @return TimeHistogram of recordBroadcast()
+	 */
+	public TimeHistogram getBroadcastTimes() {
+		return broadcastTimes;
+	}
+	/**
+	 * Getter for the times of updating the view for one frame.
+	 * @return TimeHistogram of recordRender()
+	 */
+	public TimeHistogram getRenderTimes() {
+		return renderTimes;
+	}
+	/**
+	 * Getter for the time the EDT spent updating and painting the board.
+	 * @return long total time in nanoseconds
+	 */
+	public long getEdtBusyNanos() {
+		return edtBusyNanos.get();
+	}
+	/**
+	 * Getter for the bytes the game loop thread and the EDT allocated.
+	 * Threads which didn't record anything yet aren't counted.
+	 * @return long total bytes allocated, -1 if the JVM cannot tell
+	 */
+	public long getAllocatedBytes() {
+		if (threadBean == null)
+			return -1;
+		long total = 0;
+		long[] ids = {loopThreadId, edtThreadId};
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] >= 0)
+				total += Math.max(threadBean.getThreadAllocatedBytes(ids[i]), 0);
+		}
+		return total;
+	}
+	/**
+	 * Starts listening to the garbage collectors of the JVM,
+	 * which report every pause as it ends. Only starts once.
+	 * @return Nothing
+	 */
+	public synchronized void startGcMonitoring() {
+		if (gcListening)
+			return;
+		gcListening = true;
+		
+		NotificationListener listener = new NotificationListener() {
+			public void handleNotification(Notification notification, Object handback) {
+				if (notification.getType().equals(
+						GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION) == false)
+					return;
+				GarbageCollectionNotificationInfo info = 
+					GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+				recordGcPause(info.getGcInfo().getDuration());
+			}
+		};
+		for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (gcBean instanceof NotificationEmitter)
+				((NotificationEmitter)gcBean).addNotificationListener(listener, null, null);
+		}
+	}
+	/**
+	 * This helper function adds a pause to the ring of recent ones.
+	 * @param millis length of the pause
+	 * @return Nothing
+	 */
+	private synchronized void recordGcPause(long millis) {
+		recentGcPauses[(int)(numGcPauses % NUM_RECENT_GC_PAUSES)] = millis;
+		numGcPauses++;
+	}
+	/**
+	 * Copies the most recent garbage collection pauses, newest first.
+	 * @param into long array of NUM_RECENT_GC_PAUSES to copy into
+	 * @return int how many pauses were copied, up to NUM_RECENT_GC_PAUSES
+	 */
+	public synchronized int copyRecentGcPauses(long[] into) {
+		int count = (int)Math.min(numGcPauses, NUM_RECENT_GC_PAUSES);
+		for (int i = 0; i < count; i++)
+			into[i] = recentGcPauses[(int)((numGcPauses - 1 - i) % NUM_RECENT_GC_PAUSES)];
+		return count;
+	}
+	/**
+	 * Getter for how many garbage collection pauses were seen.
+	 * @return long number of pauses
+	 */
+	public synchronized long getNumGcPauses() {
+		return numGcPauses;
+	}
+}
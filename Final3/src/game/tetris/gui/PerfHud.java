@@ -0,0 +1,204 @@
+package game.tetris.gui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * PerfHud is an optional overlay which shows the PerfCounters
+ * of the game over the board, refreshed every REFRESH_MILLIS:
+ * - ticks per second of the game loop,
+ * - 50th, 95th and 99th percentiles of the frame times of the Game,
+ *   of publishing its board and of updating the view,
+ * - how busy the EDT was updating and painting the board,
+ * - how fast the game loop thread and the EDT allocate,
+ * - the last garbage collection pauses.
+ * 
+ * Everything is over the last refresh only. Nothing is
+ * sampled while the overlay is hidden.
+ * 
+ * @author Rahul
+ *
+ */
+public class PerfHud extends JComponent {
+	private static final long serialVersionUID = 1L;
+	private static final int REFRESH_MILLIS = 500;
+	private static final int NUM_LINES = 8;
+	private static final int MARGIN = 6;
+	private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+	
+	private PerfCounters counters;
+	private Timer refreshTimer;
+	
+	//Counts as of the last refresh, to subtract from the current ones
+	private long[] lastTicks;
+	private long[] lastBroadcasts;
+	private long[] lastRenders;
+	private long lastEdtBusyNanos;
+	private long lastAllocatedBytes;
+	private long lastNanos;
+	//Scratch copies of the current counts
+	private long[] ticks;
+	private long[] broadcasts;
+	private long[] renders;
+	private long[] gcPauses;
+	
+	private String[] lines;
+	
+	/**
+	 * Constructor of a hidden PerfHud.
+	 * @param counters PerfCounters to show
+	 */
+	public PerfHud(PerfCounters counters) {
+		this.counters = counters;
+		lastTicks = new long[TimeHistogram.NUM_BUCKETS];
+		lastBroadcasts = new long[TimeHistogram.NUM_BUCKETS];
+		lastRenders = new long[TimeHistogram.NUM_BUCKETS];
+		ticks = new long[TimeHistogram.NUM_BUCKETS];
+		broadcasts = new long[TimeHistogram.NUM_BUCKETS];
+		renders = new long[TimeHistogram.NUM_BUCKETS];
+		gcPauses = new long[PerfCounters.NUM_RECENT_GC_PAUSES];
+		lines = new String[NUM_LINES];
+		for (int i = 0; i < NUM_LINES; i++)
+			lines[i] = "";
+		
+		refreshTimer = new Timer(REFRESH_MILLIS, 
+			/**
+			 * This function is an ActionListener that will 
+			 * activate when member refreshTimer goes off.
+			 * @return Nothing
+			 */
+			new ActionListener() {
+				public void actionPerformed(ActionEvent event) {
+					refresh();
+				}
+			});
+		setOpaque(false);
+		setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+		setVisible(false);
+	}
+	/**
+	 * Shows or hides the overlay, and starts or
+	 * stops sampling the counters along with it.
+	 * @param shown true to show the overlay
+	 * @return Nothing
+	 */
+	public void showHud(boolean shown) {
+		if (shown) {
+			counters.startGcMonitoring();
+			//The first refresh starts from now.
+			sample();
+			refreshTimer.restart();
+		}
+		else {
+			refreshTimer.stop();
+		}
+		setVisible(shown);
+	}
+	/**
+	 * This helper function copies the current counts
+	 * into the last ones, and the time they were taken.
+	 * @return Nothing
+	 */
+	private void sample() {
+		counters.getTickTimes().copyCounts(lastTicks);
+		counters.getBroadcastTimes().copyCounts(lastBroadcasts);
+		counters.getRenderTimes().copyCounts(lastRenders);
+		lastEdtBusyNanos = counters.getEdtBusyNanos();
+		lastAllocatedBytes = counters.getAllocatedBytes();
+		lastNanos = System.nanoTime();
+	}
+	/**
+	 * This helper function works out the lines of the overlay from
+	 * what the counters recorded since the last refresh.
+	 * @return Nothing
+	 */
+	private void refresh() {
+		long now = System.nanoTime();
+		double seconds = (now - lastNanos) / 1e9;
+		counters.getTickTimes().copyCounts(ticks);
+		counters.getBroadcastTimes().copyCounts(broadcasts);
+		counters.getRenderTimes().copyCounts(renders);
+		long edtBusyNanos = counters.getEdtBusyNanos();
+		long allocatedBytes = counters.getAllocatedBytes();
+		
+		lines[0] = String.format("ticks/s  %8.1f", TimeHistogram.countSince(ticks, lastTicks) / seconds);
+		lines[1] = "           p50     p95     p99 (ms)";
+		lines[2] = percentiles("tick     ", ticks, lastTicks);
+		lines[3] = percentiles("publish  ", broadcasts, lastBroadcasts);
+		lines[4] = percentiles("render   ", renders, lastRenders);
+		lines[5] = String.format("EDT busy %7.1f%%", 100.0 * (edtBusyNanos - lastEdtBusyNanos) / (now - lastNanos));
+		if (allocatedBytes < 0)
+			lines[6] = "alloc    n/a";
+		else
+			lines[6] = String.format("alloc    %7.2f MB/s", (allocatedBytes - lastAllocatedBytes) / seconds / 1e6);
+		lines[7] = gcLine();
+		
+		//The counts of now are the last ones of the next refresh.
+		long[] swap = lastTicks;
+		lastTicks = ticks;
+		ticks = swap;
+		swap = lastBroadcasts;
+		lastBroadcasts = broadcasts;
+		broadcasts = swap;
+		swap = lastRenders;
+		lastRenders = renders;
+		renders = swap;
+		lastEdtBusyNanos = edtBusyNanos;
+		lastAllocatedBytes = allocatedBytes;
+		lastNanos = now;
+		repaint();
+	}
+	/**
+	 * This helper function makes the line of the percentiles of a histogram.
+	 * @param label name of the line
+	 * @param counts current counts of the histogram
+	 * @param since counts of the last refresh
+	 * @return String line of the overlay
+	 */
+	private String percentiles(String label, long[] counts, long[] since) {
+		return String.format("%s%7.3f %7.3f %7.3f", label,
+							 TimeHistogram.percentile(counts, since, 0.50) / 1e6,
+							 TimeHistogram.percentile(counts, since, 0.95) / 1e6,
+							 TimeHistogram.percentile(counts, since, 0.99) / 1e6);
+	}
+	/**
+	 * This helper function makes the line of the last garbage collection pauses.
+	 * @return String line of the overlay
+	 */
+	private String gcLine() {
+		int count = counters.copyRecentGcPauses(gcPauses);
+		StringBuilder line = new StringBuilder("GC (ms)  ");
+		if (count == 0)
+			line.append("none");
+		for (int i = 0; i < count; i++)
+			line.append(gcPauses[i]).append(' ');
+		return line.toString();
+	}
+	/**
+	 * Paints the lines over a see-through black box
+	 * at the top left of the component.
+	 * @param g Graphics of the component
+	 * @return Nothing
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		FontMetrics metrics = g.getFontMetrics(getFont());
+		int width = 0;
+		for (int i = 0; i < NUM_LINES; i++)
+			width = Math.max(width, metrics.stringWidth(lines[i]));
+		int lineHeight = metrics.getHeight();
+		
+		g.setColor(BACKGROUND);
+		g.fillRect(0, 0, width + 2 * MARGIN, NUM_LINES * lineHeight + 2 * MARGIN);
+		g.setColor(Color.WHITE);
+		g.setFont(getFont());
+		for (int i = 0; i < NUM_LINES; i++)
+			g.drawString(lines[i], MARGIN, MARGIN + i * lineHeight + metrics.getAscent());
+	}
+}
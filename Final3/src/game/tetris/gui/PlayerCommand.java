@@ -0,0 +1,11 @@
+package game.tetris.gui;
+/**
+ * PlayerCommand is an input of the Player, queued by
+ * TetrisController for the game loop to apply right away.
+ * 
+ * @author Rahul
+ *
+ */
+public enum PlayerCommand {
+	LEFT, RIGHT, ROTATE_CW, SOFT_DROP, HARD_DROP
+}
@@ -0,0 +1,270 @@
+package game.tetris.gui;
+import game.tetris.lib.BoardSnapshot;
+import game.tetris.lib.GravityCurve;
+import game.tetris.lib.replay.JournalReader;
+import game.tetris.lib.replay.ReplayPlayer;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * ReplayViewer shows a recorded game (see game.tetris.lib.replay)
+ * in a TetrisView of its own, with controls under the board:
+ * a slider to scrub to any frame, buttons to play or pause and
+ * to jump to the checkpoint before or after, and the speed,
+ * from 1x to 64x.
+ *
+ * The game is played headless by a ReplayPlayer on the EDT.
+ * Going to a frame starts from the last checkpoint before it
+ * (see ReplayPlayer.seek()), so scrubbing anywhere plays at most
+ * Journal.CHECKPOINT_PIECES pieces. While playing, a Timer plays
+ * as many frames as the speed, GravityCurve.FRAMES_PER_SECOND
+ * times a second, and the view redraws the cells that changed.
+ *
+ * @author Rahul
+ *
+ */
+public class ReplayViewer implements ActionListener, ChangeListener {
+	private static final int BOARD_MAX_ROW = 20;
+	private static final int BOARD_MAX_COL = 10;
+	//Frames played per frame of real time, as listed in the speed box
+	private static final int[] SPEEDS = {1, 2, 4, 8, 16, 32, 64};
+	private static final String JOURNAL_EXTENSION = "journal";
+
+	private ReplayPlayer player;
+	private TetrisView view;
+	//Frame shown, written by the Game and read by the view on the EDT
+	private BoardSnapshot snapshot;
+	//Member timer, for playing frames without user input
+	private Timer timer;
+
+	//Controls under the board
+	private JSlider scrub;
+	private JButton play;
+	private JButton previous;
+	private JButton next;
+	private JComboBox<String> speed;
+	private JLabel time;
+	//If the slider is being moved by the viewer, not the Player
+	private boolean movingSlider;
+
+	/**
+	 * Constructor of a ReplayViewer, which shows the
+	 * first frame of a journal file in a new window.
+	 * @param path Path of the journal file
+	 * @throws IOException if it cannot be read, or isn't a journal
+	 */
+	public ReplayViewer(Path path) throws IOException {
+		player = new ReplayPlayer(JournalReader.open(path));
+		snapshot = new BoardSnapshot(BOARD_MAX_ROW, BOARD_MAX_COL);
+		timer = new Timer(1000 / GravityCurve.FRAMES_PER_SECOND, this);
+
+		view = new TetrisView();
+		view.screen.setTitle("Tetris Replay - " + path.getFileName());
+		//There is no game to start or save from a replay.
+		view.screen.setJMenuBar(null);
+		view.addControls(buildControls());
+		//Closing a replay leaves the game running.
+		view.screen.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+		view.screen.addWindowListener(new WindowAdapter() {
+			public void windowClosed(WindowEvent event) {
+				timer.stop();
+			}
+		});
+		showFrame();
+	}
+	/**
+	 * Static Function that opens a journal file in a ReplayViewer.
+	 * @param path Path of the journal file
+	 * @return ReplayViewer of the file, or null if it cannot be read
+	 */
+	public static ReplayViewer open(Path path) {
+		try {
+			return new ReplayViewer(path);
+		}
+		catch (IOException ex) {
+			System.out.println("Error opening replay '" + path + "': " + ex.getMessage());
+			return null;
+		}
+	}
+	/**
+	 * Static Function that asks the Player which journal to watch.
+	 * @param parent Component the dialog is shown over
+	 * @param dir Path of the directory to start in
+	 * @return Path of the chosen journal, or null if none was
+	 */
+	public static Path chooseJournal(Component parent, Path dir) {
+		JFileChooser chooser = new JFileChooser(dir.toFile());
+		chooser.setDialogTitle("Watch Replay");
+		chooser.setFileFilter(new FileNameExtensionFilter("Replays", JOURNAL_EXTENSION));
+		if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION)
+			return null;
+		File file = chooser.getSelectedFile();
+		return file == null ? null : file.toPath();
+	}
+	/**
+	 * This helper function makes the controls under the board.
+	 * @return JPanel of the controls
+	 */
+	private JPanel buildControls() {
+		scrub = new JSlider(0, (int)Math.min(getEndTick(), Integer.MAX_VALUE), 0);
+		scrub.addChangeListener(this);
+		play = new JButton("Play");
+		play.addActionListener(this);
+		previous = new JButton("|<");
+		previous.setToolTipText("Previous checkpoint");
+		previous.addActionListener(this);
+		next = new JButton(">|");
+		next.setToolTipText("Next checkpoint");
+		next.addActionListener(this);
+
+		String[] labels = new String[SPEEDS.length];
+		for (int i = 0; i < SPEEDS.length; i++)
+			labels[i] = SPEEDS[i] + "x";
+		speed = new JComboBox<String>(labels);
+		time = new JLabel();
+
+		//Hierarchy: controls (Border) --> scrub on top, buttons (Flow) under it
+		JPanel buttons = new JPanel(new FlowLayout());
+		buttons.add(previous);
+		buttons.add(play);
+		buttons.add(next);
+		buttons.add(speed);
+		buttons.add(time);
+		JPanel controls = new JPanel(new BorderLayout());
+		controls.add(scrub, BorderLayout.NORTH);
+		controls.add(buttons, BorderLayout.CENTER);
+		return controls;
+	}
+	/**
+	 * Function that activates if the Timer goes off or
+	 * the "Play", "|<" or ">|" buttons are pressed.
+	 * @param event ActionEvent with info of what activated it.
+	 * @return Nothing
+	 */
+	@Override
+	public void actionPerformed(ActionEvent event) {
+		//Timer: play the frames of one frame of real time
+		if (event.getSource() == timer) {
+			long tick = player.getTick() + SPEEDS[speed.getSelectedIndex()];
+			goTo(Math.min(tick, getEndTick()));
+			if (player.getTick() >= getEndTick())
+				setPlaying(false);
+		}
+		//Press "Play" or "Pause"
+		else if (event.getSource() == play) {
+			if (timer.isRunning() == false && player.getTick() >= getEndTick())
+				goTo(0);
+			setPlaying(timer.isRunning() == false);
+		}
+		//Press "|<": the checkpoint before the frame shown, or the start
+		else if (event.getSource() == previous) {
+			int checkpoint = player.getReader().findCheckpoint(player.getTick() - 1);
+			goTo(checkpoint < 0 ? 0 : player.getReader().getCheckpointTick(checkpoint));
+		}
+		//Press ">|": the checkpoint after the frame shown, or the end
+		else if (event.getSource() == next) {
+			JournalReader reader = player.getReader();
+			int checkpoint = reader.findCheckpoint(player.getTick()) + 1;
+			goTo(checkpoint < reader.getNumCheckpoints() ? reader.getCheckpointTick(checkpoint) : getEndTick());
+		}
+	}
+	/**
+	 * Function that activates if the slider is moved,
+	 * and shows the frame it was moved to.
+	 * @param event ChangeEvent of the slider
+	 * @return Nothing
+	 */
+	@Override
+	public void stateChanged(ChangeEvent event) {
+		if (movingSlider == false)
+			goTo(scrub.getValue());
+	}
+	/**
+	 * This helper function starts or stops playing.
+	 * @param playing true to play
+	 * @return Nothing
+	 */
+	private void setPlaying(boolean playing) {
+		if (playing)
+			timer.start();
+		else
+			timer.stop();
+		play.setText(playing ? "Pause" : "Play");
+	}
+	/**
+	 * This helper function plays the replay to a frame and shows it.
+	 * A replay which can't be played is stopped where it is.
+	 * @param tick frame to go to
+	 * @return Nothing
+	 */
+	private void goTo(long tick) {
+		try {
+			player.seek(tick);
+		}
+		catch (IOException ex) {
+			System.out.println("Error playing replay: " + ex.getMessage());
+			setPlaying(false);
+		}
+		showFrame();
+	}
+	/**
+	 * This helper function shows the frame the replay is at,
+	 * on the board, the slider and the time label.
+	 * @return Nothing
+	 */
+	private void showFrame() {
+		long tick = player.getTick();
+		player.getGame().writeSnapshot(snapshot, tick);
+		view.updateBoard(snapshot);
+
+		movingSlider = true;
+		scrub.setValue((int)Math.min(tick, Integer.MAX_VALUE));
+		movingSlider = false;
+		time.setText(formatTick(tick) + " / " + formatTick(getEndTick()));
+	}
+	/**
+	 * This helper function gives the last frame of the replay.
+	 * @return long tick of the end of the journal
+	 */
+	private long getEndTick() {
+		return player.getReader().getEndTick();
+	}
+	/**
+	 * This helper function formats a frame as the time of the game.
+	 * @param tick frames from the start of the game
+	 * @return String minutes and seconds, as in 2:05
+	 */
+	private static String formatTick(long tick) {
+		long seconds = tick / GravityCurve.FRAMES_PER_SECOND;
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
+	}
+	/**
+	 * Main method which watches a replay: the journal file
+	 * given, or one chosen from the replay directory.
+	 * @param args path of the journal file, if any
+	 */
+	public static void main(final String[] args) {
+		javax.swing.SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				Path path = args.length > 0 ? Paths.get(args[0])
+											: chooseJournal(null, Paths.get(TetrisModel.REPLAY_DIR));
+				if (path != null)
+					open(path);
+			}
+		});
+	}
+}
@@ -0,0 +1,16 @@
+package game.tetris.gui;
+/**
+ * A Subscriber gets the events of one type posted to an EventBus.
+ * 
+ * @author Rahul
+ *
+ * @param <E> type of the events
+ */
+public interface Subscriber<E> {
+	/**
+	 * Gets one event. Always called on the EDT.
+	 * @param event the posted event
+	 * @return Nothing
+	 */
+	void onEvent(E event);
+}
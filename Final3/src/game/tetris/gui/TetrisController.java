@@ -1,5 +1,5 @@
 package game.tetris.gui;
-import game.tetris.lib.pieces.*;
+import game.tetris.lib.GravityCurve;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -7,8 +7,10 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
-import javax.swing.*;
+import javax.swing.Timer;
 
 /**
  * 
@@ -16,18 +18,34 @@ import javax.swing.*;
  * an interface for the user to interact with the view via Actions.
  * 
  * Actions are used for choose menu options.
+ * Key presses are queued as PlayerCommands for the GameLoop,
+ * which runs the frames of the game on its own thread, at
+ * GravityCurve.FRAMES_PER_SECOND, and applies the commands right away.
+ * How fast pieces fall depends on the level, not on the loop.
+ * 
+ * Holding left, right or down repeats the command: left and right
+ * wait DAS_MILLIS (delayed auto-shift) before repeating every
+ * ARR_MILLIS (auto-repeat rate), and down repeats at ARR_MILLIS at once.
+ * The key repeat of the OS is ignored, so it doesn't matter.
  * 
  * @author Rahul
  *
  */
 public class TetrisController implements ActionListener, MouseListener, KeyListener {
-	private static final int ONE_SECOND = 500;
+	private static final int DAS_MILLIS = 170;
+	private static final int ARR_MILLIS = 50;
 	
 	//Members model and view, for getting info and modifying.
 	private TetrisModel model;
 	private TetrisView view;
-	//Member timer, for events that activate without user input
-	private Timer timer;
+	//Member loop, for events that activate without user input
+	private GameLoop loop;
+	//Member repeatTimer, for repeating the command of a held key
+	private Timer repeatTimer;
+	//Command being repeated, null if no repeating key is held
+	private PlayerCommand heldCommand;
+	//If the rotation key is held, so it only rotates once per press
+	private boolean rotateHeld;
 	
 	/**
 	 * Default Construction of a Controller that will use a view and model.
@@ -38,28 +56,34 @@ public class TetrisController implements ActionListener, MouseListener, KeyListe
 		this.model = model;
 		this.view = view;
 		
-		this.timer = new Timer(ONE_SECOND, 
+		this.loop = new GameLoop(model, GravityCurve.FRAMES_PER_SECOND);
+		this.heldCommand = null;
+		this.rotateHeld = false;
+		this.repeatTimer = new Timer(ARR_MILLIS, 
 			/**
 			 * This function is an ActionListener that will 
-			 * activate when member timer goes off.
+			 * activate when member repeatTimer goes off.
 			 * @return Nothing
 			 */
 			new ActionListener() {
 		    	public void actionPerformed(ActionEvent event) {
-		    		//runOneFrame must not be run now that the game is over.
-		    		if (model.isGameOver()) {
-		    			timer.stop();
-		    		}
-		    		model.runOneFrame();
+		    		if (heldCommand != null)
+		    			loop.offer(heldCommand);
 		        }    
 		    });
 	}
 	/**
-	 * Function that initializes the Observerables- 
-	 * like TetrisModel instances- when they are
-	 * first created.
+	 * Getter for the input latency metric of the game loop.
+	 * @return LatencyMeter from key presses to game state changes
+	 */
+	public LatencyMeter getInputLatency() {
+		return loop.getInputLatency();
+	}
+	/**
+	 * Function that initializes the TetrisModel
+	 * when it is first created.
 	 * 
-	 * This function results in the connected Observers-
+	 * This function results in the Subscribers of its EventBus-
 	 * like TetrisView instances- having their menu options
 	 * set to only allow a new game or a load of a saved game.
 	 * @return Nothing
@@ -69,29 +93,52 @@ public class TetrisController implements ActionListener, MouseListener, KeyListe
 	}
 	/**
 	 * Function that activates if a key is pressed.
-	 * It will translate or rotate the falling piece.
+	 * It queues a translation, rotation or drop of the falling piece,
+	 * which is applied right away. The frame timing isn't touched.
+	 * Left, right and down start repeating (see the class doc).
 	 * @param event KeyEvent with info of which keyboard key was pressed.
 	 * @return Nothing
 	 */
 	@Override
 	public void keyPressed(KeyEvent event) {
-		//This prevents tickTock from activating until the translation and rotation is set.
-		//That way, tickTock won't erase the inputted translation or rotation.
-		timer.stop();
 		 if(event.getKeyCode() == KeyEvent.VK_LEFT) {
-			 model.controlledPiece.translate(Move.LEFT);
+			 startRepeating(PlayerCommand.LEFT, DAS_MILLIS);
 		 }
 		 else if(event.getKeyCode() == KeyEvent.VK_RIGHT) {
-			 model.controlledPiece.translate(Move.RIGHT);
+			 startRepeating(PlayerCommand.RIGHT, DAS_MILLIS);
+		 }
+		 else if(event.getKeyCode() == KeyEvent.VK_DOWN) {
+			 startRepeating(PlayerCommand.SOFT_DROP, ARR_MILLIS);
 		 }
 		 else if(event.getKeyCode() == KeyEvent.VK_UP) {
-			 model.controlledPiece.rotate(Rotate.CW);
+			 if (rotateHeld == false)
+				 loop.offer(PlayerCommand.ROTATE_CW);
+			 rotateHeld = true;
 		 }
-		 timer.start();
+		 else if(event.getKeyCode() == KeyEvent.VK_SPACE) {
+			 loop.offer(PlayerCommand.HARD_DROP);
+		 }
+	}
+	/**
+	 * This helper function queues a command once,
+	 * then repeats it while its key is held.
+	 * Presses from the key repeat of the OS are ignored.
+	 * @param command PlayerCommand of the pressed key
+	 * @param initialDelay milliseconds before the first repeat
+	 * @return Nothing
+	 */
+	private void startRepeating(PlayerCommand command, int initialDelay) {
+		if (command == heldCommand)
+			return;
+		heldCommand = command;
+		loop.offer(command);
+		
+		repeatTimer.setInitialDelay(initialDelay);
+		repeatTimer.restart();
 	}
 	/**
-	 * Function that activates if menu items "New Game", "Load Game", 
-	 * "Pause", "Undo", or "Save Game" are chosen
+	 * Function that activates if menu items "New Game", "Load Game", "Watch Replay",
+	 * "Pause", "Undo", "Save Game" or "Performance HUD" are chosen
 	 * @param event ActionEvent with info of which menu option was chosen.
 	 * @return Nothing
 	 */
@@ -100,23 +147,34 @@ public class TetrisController implements ActionListener, MouseListener, KeyListe
 		//Choose "New Game"
 		if (event.getSource().equals(view.newGame)) {
 			model.newGame();
-			timer.start();
+			loop.start();
 		}
 		//Choose "Load Game"
 		else if (event.getSource().equals(view.loadGame)) {
-			model.loadGame();
-			timer.start();
+			String slot = view.chooseLoadSlot(model.getSaveSlots());
+			if (slot != null) {
+				model.loadGame(slot);
+				//A game saved paused stays paused until unpaused.
+				if (model.isPaused() == false)
+					loop.start();
+			}
+		}
+		//Choose "Watch Replay"
+		else if (event.getSource().equals(view.watchReplay)) {
+			Path path = ReplayViewer.chooseJournal(view.screen, Paths.get(TetrisModel.REPLAY_DIR));
+			if (path != null)
+				ReplayViewer.open(path);
 		}
 		//Choose "Pause"
 		else if (event.getSource().equals(view.pause)) {
 			//Pause or unpause, depending on what state the game is in.
 			if (model.isPaused()) {
 				model.unpause();
-				timer.start();
+				loop.start();
 			}
 			else {
 				model.pause();
-				timer.stop();
+				loop.stop();
 			}
 		}
 		//Choose "Undo"
@@ -125,7 +183,13 @@ public class TetrisController implements ActionListener, MouseListener, KeyListe
 		}
 		//Choose "Save Game"
 		else if (event.getSource().equals(view.saveGame)) {
-			model.saveGame();
+			String slot = view.chooseSaveSlot(model.getSaveSlots());
+			if (slot != null)
+				model.saveGame(slot);
+		}
+		//Choose "Performance HUD"
+		else if (event.getSource().equals(view.perfHud)) {
+			view.showPerfHud(view.perfHud.isSelected());
 		}
 	}
 	/**
@@ -164,11 +228,28 @@ public class TetrisController implements ActionListener, MouseListener, KeyListe
 		 
 	}
 	/**
-	 * Unused
+	 * Function that activates if a key is released.
+	 * It stops the repeating of its command.
+	 * @param event KeyEvent with info of which keyboard key was released.
+	 * @return Nothing
 	 */
 	@Override
-	public void keyReleased(KeyEvent e) {
-		return;
+	public void keyReleased(KeyEvent event) {
+		PlayerCommand released = null;
+		
+		if (event.getKeyCode() == KeyEvent.VK_LEFT)
+			released = PlayerCommand.LEFT;
+		else if (event.getKeyCode() == KeyEvent.VK_RIGHT)
+			released = PlayerCommand.RIGHT;
+		else if (event.getKeyCode() == KeyEvent.VK_DOWN)
+			released = PlayerCommand.SOFT_DROP;
+		else if (event.getKeyCode() == KeyEvent.VK_UP)
+			rotateHeld = false;
+		
+		if (released != null && released == heldCommand) {
+			repeatTimer.stop();
+			heldCommand = null;
+		}
 	}
 	/**
 	 * Unused
@@ -19,8 +19,10 @@ public class TetrisGUI {
 		model = new TetrisModel();
 		view = new TetrisView();
 		
-		//model's notifyObserver(broadcast) calls will now notify view, an Observable.
-		model.addObserver(view);
+		//events the model posts to its EventBus will now reach view, a Subscriber.
+		view.subscribeTo(model.getEventBus());
+		//the view records how long it takes into the model's counters.
+		view.setPerfCounters(model.getPerfCounters());
 		
 		//Controller can now access and modify model and view.
 		controller = new TetrisController(model,view);
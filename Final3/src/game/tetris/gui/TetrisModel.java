@@ -1,36 +1,109 @@
 package game.tetris.gui;
 import game.tetris.lib.Game;
-import game.tetris.lib.Tile;
-import game.tetris.lib.pieces.*;
+import game.tetris.lib.SaveListener;
+import game.tetris.lib.SaveSlot;
+import game.tetris.lib.SaveWriter;
+import game.tetris.lib.SnapshotWriter;
+import game.tetris.lib.replay.Journal;
+import game.tetris.lib.replay.JournalWriter;
 
-import java.util.Observable;
-import java.util.Vector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 
 /**
  * TetrisModel is the Model of the Tetris GUI,
  * where the Tetris Game runs with no graphical work.
  * 
- * However, since TetrisModel extends Observable, it
- * can notify all subclasses of Observer, one of them being TetrisView,
- * when a graphical update needs to be done.
+ * However, TetrisModel posts typed events to its EventBus,
+ * so all of its Subscribers, one of them being TetrisView,
+ * know when a graphical update needs to be done:
+ * BoardSnapshots for the board, MenuStates for the menu
+ * and GameEvents for the Game as a whole.
+ * 
+ * The Game runs on the GameLoop thread while menu options come
+ * from the EDT, so every function that touches the Game is synchronized.
+ * The EventBus delivers every event on the EDT. The board is never
+ * handed out live: every frame with changed cells is copied into an
+ * immutable BoardSnapshot and published through the triple buffer of
+ * the EventBus, so the view always draws a whole frame and the game
+ * never waits on the view. Only the changed cells are copied, and the
+ * view is told which they are (see BoardSnapshot.getChangedMask()).
+ * 
+ * Every game played is recorded into a journal file of the
+ * replay directory (see game.tetris.lib.replay): its seed and
+ * the inputs of the Player, at the frames they came in, along
+ * with checkpoints of the Game every Journal.CHECKPOINT_PIECES pieces.
  * 
  * @author Rahul
  *
  */
-public class TetrisModel extends Observable {
+public class TetrisModel {
+	private static final int BOARD_MAX_ROW = 20;
+	private static final int BOARD_MAX_COL = 10;
+	//Directory every game is recorded into (see game.tetris.lib.replay), and watched from (see ReplayViewer)
+	static final String REPLAY_DIR = "replays";
+	//Longest time exiting waits for the saves handed over to be written
+	private static final long SAVE_SHUTDOWN_MILLIS = 5000;
+	private static final String REPLAY_NAME_FORMAT = "'replay-'yyyyMMdd-HHmmss-SSS'.journal'";
+	
 	//Tetris Game Member
 	private Game tetrisGame;
-	//Public as to be accesed by TetrisController
-	public Tetrimino controlledPiece;
+	
+	private EventBus eventBus;
+	//Writes the cells which changed into the frames published
+	private SnapshotWriter snapshotWriter;
+	private PerfCounters perfCounters;
+	//Writes saves off the EDT, then posts how it went
+	private SaveWriter saveWriter;
+	private SaveListener saveListener;
+	//Records the inputs of the Game being played, null if none is
+	private JournalWriter journal;
 	
 	/**
 	 * Default Constructor of a TetrisModel
 	 */
 	public TetrisModel() {
 		tetrisGame = null;
-		//init isn't called here because there are no observers of the TetrisModel (In TetrisGUI)
+		eventBus = new EventBus(BOARD_MAX_ROW, BOARD_MAX_COL);
+		snapshotWriter = new SnapshotWriter();
+		perfCounters = new PerfCounters();
+		saveWriter = new SaveWriter();
+		saveListener = new SaveListener() {
+			public void saveWritten(Path path, IOException error) {
+				eventBus.post(error == null ? GameEvent.SAVED : GameEvent.SAVE_FAILED);
+			}
+		};
+		//Saves handed over and the journal are written out when the JVM exits,
+		//even in the middle of a game: the save writer's thread doesn't keep it running.
+		Runtime.getRuntime().addShutdownHook(new Thread("Tetris save and journal closer") {
+			public void run() {
+				finishSaves();
+				closeJournal();
+			}
+		});
+		//init isn't called here because there are no subscribers of the TetrisModel (In TetrisGUI)
 		//when it is constructed.
-		//TetrisGUI adds the observer later; only TetrisGUI can add observers
+		//TetrisGUI subscribes the view later
+	}
+	/**
+	 * Getter for the EventBus the TetrisModel posts to.
+	 * @return EventBus of the TetrisModel
+	 */
+	public EventBus getEventBus() {
+		return eventBus;
+	}
+	/**
+	 * Getter for the performance counters the TetrisModel
+	 * records the time of every frame into.
+	 * @return PerfCounters of the TetrisModel
+	 */
+	public PerfCounters getPerfCounters() {
+		return perfCounters;
 	}
 	/**
 	 * Function which initializes the menu options
@@ -41,9 +114,10 @@ public class TetrisModel extends Observable {
 	 * @return Nothing
 	 */
 	public void setUpViewForNewGame() {
-		//If we cannot load due to lack of a save file,
+		//If we cannot load due to lack of a save slot,
 		//set the loadGame menu option to
 		//be disabled by updating the menu in TetrisView.
+		//The SaveStore index is in memory, so this opens no file.
 		boolean enableLoad = Game.canWeLoad();
 		//Enable newGame. Disable pause, undo, and saveGame.
 		//The reason pause, undo, and saveGame are disabled is because
@@ -54,60 +128,93 @@ public class TetrisModel extends Observable {
 	 * Function which starts a new Tetris Game.
 	 * @return Nothing
 	 */
-	public void newGame() {
+	public synchronized void newGame() {
+		closeJournal();
 		tetrisGame = new Game();
-		updateControlledPiece();
+		startJournal(null);
 		//disable newGame, loadGame, undo, and saveGame. Enable pause.
 		menuBarBroadcast(false, false, true, false, false);
+		eventBus.post(GameEvent.STARTED);
 	}
 	/**
 	 * Function that runs one frame of the Tetris
-	 * Game.
+	 * Game, where the falling piece falls as fast as
+	 * the gravity of its level (see Game.runFrame()).
 	 * @return Nothing
 	 */
-	public void runOneFrame() {
+	public synchronized void runOneFrame() {
 		if (tetrisGame.isGameOver()) {
 			gameOverOccurs();
 		}
 		else {
-			tetrisGame.tickTock();
-			updateControlledPiece();
+			long start = System.nanoTime();
+			tetrisGame.runFrame();
+			long ran = System.nanoTime();
 			boardBroadcast();
+			perfCounters.recordTick(ran - start);
+			perfCounters.recordBroadcast(System.nanoTime() - ran);
+			checkpointJournal();
 		}
 	}
+	/**
+	 * Function that reports frames the GameLoop
+	 * dropped because it was late.
+	 * @return Nothing
+	 */
+	public void framesDropped() {
+		eventBus.post(GameEvent.FRAMES_DROPPED);
+	}
+	/**
+	 * Function that applies a command of the Player
+	 * to the falling piece right away, if legal,
+	 * and broadcasts the cells that changed.
+	 * @param command PlayerCommand to apply
+	 * @return Nothing
+	 */
+	public synchronized void applyCommand(PlayerCommand command) {
+		if (tetrisGame == null)
+			return;
+		
+		if (command == PlayerCommand.LEFT)
+			tetrisGame.moveLeft();
+		else if (command == PlayerCommand.RIGHT)
+			tetrisGame.moveRight();
+		else if (command == PlayerCommand.ROTATE_CW)
+			tetrisGame.rotate();
+		else if (command == PlayerCommand.SOFT_DROP)
+			tetrisGame.softDrop();
+		else if (command == PlayerCommand.HARD_DROP)
+			tetrisGame.hardDrop();
+		recordInput(inputOf(command));
+		boardBroadcast();
+	}
 	/**
 	 * Private helper function that runs all that
 	 * occurs when a Tetris Game is Over.
 	 * @return Nothing
 	 */
 	private void gameOverOccurs() {
+		closeJournal();
 		setUpViewForNewGame();
 		tetrisGame.makeFailScreen();
 		boardBroadcast();
+		eventBus.post(GameEvent.GAME_OVER);
 	}
 	/**
 	 * Checker if the Tetris Game is over
 	 * @return true if member tetrisGame has game overed.
 	 * 		   false otherwise
 	 */
-	public boolean isGameOver() {
+	public synchronized boolean isGameOver() {
 		return tetrisGame.isGameOver();
 	}
-	/**
-	 * Function that updates member controlledPiece
-	 * to the currently falling piece in the Tetris Game after
-	 * every frame.
-	 * @return Nothing
-	 */
-	public void updateControlledPiece() {
-		controlledPiece = tetrisGame.getFallingPiece();
-	}
 	/**
 	 * Function that undoes a move in the Tetris Game.
 	 * @return Nothing
 	 */
-	public void undo() {
+	public synchronized void undo() {
 		tetrisGame.undo();
+		recordInput(Journal.UNDO);
 		//the board changed through the undo, so we need
 		//to update the board in TetrisView.
 		boardBroadcast();
@@ -116,74 +223,222 @@ public class TetrisModel extends Observable {
 		boolean enableUndo = tetrisGame.canWeUndo();
 		//disable newGame, loadGame. Enable pause and save.
 		menuBarBroadcast(false, false, true, enableUndo, true);
+		eventBus.post(GameEvent.UNDONE);
 	}
 	/**
-	 * Function that saves a Tetris Game.
+	 * Function that saves a Tetris Game to a slot, without waiting on
+	 * the disk. The Game is encoded in memory right away, and the save
+	 * is written atomically on the thread of the SaveWriter, along with
+	 * the index of the SaveStore; once it is, GameEvent.SAVED
+	 * (or SAVE_FAILED) is posted.
+	 * @param slot name of the slot (see SaveStore.isValidName())
 	 * @return Nothing
 	 */
-	public void saveGame() {
-		tetrisGame.saveGame();
+	public synchronized void saveGame(String slot) {
+		saveWriter.save(Game.getSaveStore(), slot, tetrisGame.encodeSave(), saveListener);
+	}
+	/**
+	 * Function that lists the save slots, from the index
+	 * the SaveStore keeps in memory.
+	 * @return List of the SaveSlot of every slot, the most recently saved first
+	 */
+	public List<SaveSlot> getSaveSlots() {
+		return Game.getSaveStore().list();
 	}
 	/**
 	 * Function that pauses the Tetris Game.
 	 * @return Nothing
 	 */
-	public void pause() {
+	public synchronized void pause() {
 		tetrisGame.setGameToPause(true);
+		recordInput(Journal.PAUSE);
+		//Nothing is lost if the game is left while paused.
+		flushJournal();
 		//If we cannot undo, set the undo menu option to
 		//be disabled by updating the menu in TetrisView.
 		boolean enableUndo = tetrisGame.canWeUndo();
 		//disable newGame, loadGame. Enable pause and save.
 		menuBarBroadcast(false, false, true, enableUndo, true);
+		eventBus.post(GameEvent.PAUSED);
 	}
 	/**
 	 * Function that unpauses the Tetris Game.
 	 * @return Nothing
 	 */
-	public void unpause() {
+	public synchronized void unpause() {
 		tetrisGame.setGameToPause(false);
+		recordInput(Journal.RESUME);
 		//disable newGame, loadGame, undo, and saveGame. Enable pause.
 		menuBarBroadcast(false, false, true, false, false);
+		eventBus.post(GameEvent.RESUMED);
 	}
 	/**
 	 * Function that checks if Tetris Game is paused.
 	 * @return true if Game class is paused.
 	 * 		   false otherwise
 	 */
-	public boolean isPaused() {
+	public synchronized boolean isPaused() {
 		return tetrisGame.isGamePaused();
 	}
 	/**
 	 * Function that loads a saved Tetris Game from
-	 * savefile.txt.
+	 * a slot of the SaveStore.
+	 * @param slot name of the slot
 	 * @return Nothing
 	 */
-	public void loadGame() {
+	public synchronized void loadGame(String slot) {
+		closeJournal();
 		//To erase the current game for the new load.
 		tetrisGame = new Game(); 
-		tetrisGame.loadGame();
-		updateControlledPiece();
-		//disable newGame, loadGame, undo, and saveGame. Enable pause.
-		menuBarBroadcast(false, false, true, false, false);
+		tetrisGame.loadGame(slot);
+		//The journal starts from the loaded game.
+		startJournal(tetrisGame.encodeSave());
+		//The game comes back paused if it was saved paused.
+		if (tetrisGame.isGamePaused()) {
+			//disable newGame, loadGame. Enable pause and save.
+			menuBarBroadcast(false, false, true, tetrisGame.canWeUndo(), true);
+		}
+		else {
+			//disable newGame, loadGame, undo, and saveGame. Enable pause.
+			menuBarBroadcast(false, false, true, false, false);
+		}
+		boardBroadcast();
+		eventBus.post(GameEvent.LOADED);
+	}
+	/**
+	 * This helper function starts recording the Game into
+	 * a new journal file of the replay directory.
+	 * @param start ByteBuffer of a save of the Game to start
+	 * 		  from, or null for a new game from its seed
+	 * @return Nothing
+	 */
+	private void startJournal(ByteBuffer start) {
+		String name = new SimpleDateFormat(REPLAY_NAME_FORMAT).format(new Date());
+		try {
+			journal = JournalWriter.create(Paths.get(REPLAY_DIR, name), tetrisGame.getSeed(), start);
+		}
+		catch (IOException ex) {
+			System.out.println("Error creating replay journal '" + name + "': " + ex.getMessage());
+			journal = null;
+		}
 	}
 	/**
-	 * Function which broadcasts to TetrisView 
-	 * a 2D Tile array for updating the board there.
+	 * This helper function records an input of the Player
+	 * into the journal, at the current frame of the Game.
+	 * The journal is dropped if it can't be written.
+	 * @param input one of Journal's inputs
+	 * @return Nothing
+	 */
+	private void recordInput(int input) {
+		if (journal == null)
+			return;
+		try {
+			journal.record(tetrisGame.getFrameCount(), input);
+			journal.checkpointIfDue(tetrisGame);
+		}
+		catch (IOException ex) {
+			System.out.println("Error writing replay journal: " + ex.getMessage());
+			journal = null;
+		}
+	}
+	/**
+	 * This helper function records a checkpoint of the Game into
+	 * the journal, if one is due (see JournalWriter.checkpointIfDue()).
+	 * The journal is dropped if it can't be written.
+	 * @return Nothing
+	 */
+	private void checkpointJournal() {
+		if (journal == null)
+			return;
+		try {
+			journal.checkpointIfDue(tetrisGame);
+		}
+		catch (IOException ex) {
+			System.out.println("Error writing replay journal: " + ex.getMessage());
+			journal = null;
+		}
+	}
+	/**
+	 * This helper function writes out what the journal recorded.
+	 * @return Nothing
+	 */
+	private void flushJournal() {
+		if (journal == null)
+			return;
+		try {
+			journal.flush();
+		}
+		catch (IOException ex) {
+			System.out.println("Error writing replay journal: " + ex.getMessage());
+			journal = null;
+		}
+	}
+	/**
+	 * This helper function stops the save writer, and waits for the
+	 * saves handed over already to be written. Called when the JVM exits.
+	 * @return Nothing
+	 */
+	private void finishSaves() {
+		try {
+			if (saveWriter.shutdown(SAVE_SHUTDOWN_MILLIS) == false)
+				System.out.println("Error saving: a save wasn't written before exiting");
+		}
+		catch (InterruptedException ex) {
+			System.out.println("Error saving: interrupted while exiting");
+		}
+	}
+	/**
+	 * Function which ends the journal of the Game, if any,
+	 * at its current frame, and writes it out.
+	 * @return Nothing
+	 */
+	public synchronized void closeJournal() {
+		if (journal == null)
+			return;
+		try {
+			journal.close(tetrisGame.getFrameCount());
+		}
+		catch (IOException ex) {
+			System.out.println("Error writing replay journal: " + ex.getMessage());
+		}
+		journal = null;
+	}
+	/**
+	 * Static Function that gives the journal input of a PlayerCommand.
+	 * @param command PlayerCommand
+	 * @return int one of Journal's inputs
+	 */
+	private static int inputOf(PlayerCommand command) {
+		switch (command) {
+		case LEFT:
+			return Journal.LEFT;
+		case RIGHT:
+			return Journal.RIGHT;
+		case ROTATE_CW:
+			return Journal.ROTATE;
+		case SOFT_DROP:
+			return Journal.SOFT_DROP;
+		default:
+			return Journal.HARD_DROP;
+		}
+	}
+	/**
+	 * Function which publishes a BoardSnapshot of the Game
+	 * if any of its cells changed, copying only those cells
+	 * (see SnapshotWriter), and marks them clean.
+	 * Nothing is allocated.
 	 * @return Nothing
 	 */
 	private void boardBroadcast() {
-		//This function will notify the sole observer TetrisView that something's going to be broadcasted to it.
-		setChanged();
-		
-		Tile[][] broadcast = tetrisGame.getBoard();
-		
-		//The broadcast happens. TetrisView will get a 2D Tile array to update the board.
-		notifyObservers(broadcast);
+		if (tetrisGame.getDirtyCells().isEmpty())
+			return;
+		snapshotWriter.write(tetrisGame, eventBus.beginFrame());
+		eventBus.publishFrame();
 	}
 	/**
-	 * This function broadcasts a boolean[] to TetrisView
+	 * This function posts a MenuState to the Subscribers
 	 * @param newGameEnabled boolean
-	 * @param saveEnabled boolean
+	 * @param loadEnabled boolean
 	 * @param pauseEnabled boolean
 	 * @param undoEnabled boolean
 	 * @param saveEnabled boolean
@@ -191,18 +446,7 @@ public class TetrisModel extends Observable {
 	 */
 	private void menuBarBroadcast(boolean newGameEnabled, boolean loadEnabled, boolean pauseEnabled,
 								  boolean undoEnabled, boolean saveEnabled) {
-		//This function will notify the sole observer TetrisView that something's going to be broadcasted to it.
-		setChanged();
-		
-		boolean[] broadcast = new boolean[5];
-		broadcast[0] = newGameEnabled;
-		broadcast[1] = loadEnabled;
-		broadcast[2] = pauseEnabled;
-		broadcast[3] = undoEnabled;
-		broadcast[4] = saveEnabled;
-		
-		//The broadcast happens. TetrisView will get boolean[] status to 
-		//update the enabl-ility of menu items.
-		notifyObservers(broadcast);
+		//TetrisView will get the MenuState on the EDT to update the enabl-ility of menu items.
+		eventBus.post(new MenuState(newGameEnabled, loadEnabled, pauseEnabled, undoEnabled, saveEnabled));
 	}
 }
@@ -1,28 +1,32 @@
 package game.tetris.gui;
+import game.tetris.lib.BoardSnapshot;
+import game.tetris.lib.Game;
+import game.tetris.lib.SaveSlot;
+import game.tetris.lib.SaveStore;
 import game.tetris.lib.Tile;
 
 import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.GridLayout;
-import java.util.Observable;
-import java.util.Observer;
+import java.awt.Dimension;
+import java.awt.Toolkit;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import javax.swing.*;
-import java.awt.Color;
 
 /**
  * TetrisView is the View of the Tetris GUI,
  * where all the graphical work occurs.
  * 
- * However, since TetrisView extends Observer, it
- * can be notified by all subclasses of Observable, one of them being TetrisModel,
- * where the Tetris Game runs.
+ * However, TetrisView subscribes to the EventBus of
+ * TetrisModel, where the Tetris Game runs, so it is
+ * notified when the board or the menu needs to change.
  * 
  * @author Rahul
  *
  */
-public class TetrisView implements Observer {
+public class TetrisView {
 
-	private JLabel[][] board;
+	private BoardPanel board;
 	
 	//View Hierarchy Members.
 	//screen is public as to be accessed in TetrisModel.
@@ -36,11 +40,19 @@ public class TetrisView implements Observer {
 	private static final int BOARD_MIN_COL = 0;
 	private static final int BOARD_MAX_COL = 10;
 	
-	//Constants of Views
-	private static final int WINDOW_HEIGHT = 640;
-	private static final int WINDOW_WIDTH = 320;
+	//Constants of Views, in pixels. Cells start as big as 3/4 of the screen height
+	//allows, but never smaller than MIN_CELL_SIZE, and the window can be resized.
+	private static final int MIN_CELL_SIZE = 32;
+	private static final int SMALLEST_CELL_SIZE = 8;
+	
+	//Letter of each piece type, as listed in the load dialog
+	private static final String PIECE_LETTERS = "IJLOSTZ";
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm";
 	
 	private TetrisController controller;
+	//Optional overlay of the performance counters, null until setPerfCounters()
+	private PerfHud hud;
+	private PerfCounters perfCounters;
 	
 	//all these JMenuItem members are public as to be accessed in TetrisController
 	public JMenuItem newGame;
@@ -48,29 +60,30 @@ public class TetrisView implements Observer {
 	public JMenuItem pause;
 	public JMenuItem saveGame;
 	public JMenuItem loadGame;
+	public JMenuItem watchReplay;
+	public JCheckBoxMenuItem perfHud;
 	
 	/**
 	 * Default Constructor for a TetrisView
 	 */
 	public TetrisView() {
-		board = new JLabel[BOARD_MAX_ROW][BOARD_MAX_COL];
-		
 		screen = new JFrame("Tetris Game");
-		screen.setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
-		//You cannot resize the TetrisView
-		screen.setResizable(false);
+		//The board scales to any size of the TetrisView
+		screen.setResizable(true);
 	
-		//Hierarchy: holderOfAll (Border) --> holderOfBoard (Grid) -->20x10 JLabels
+		//Hierarchy: holderOfAll (Border) --> holderOfBoard (Border) --> BoardPanel
 		holderOfAll = new JPanel();
 		holderOfAll.setLayout(new BorderLayout());
 		holderOfBoard = new JPanel();
-		holderOfBoard.setLayout(new GridLayout(BOARD_MAX_ROW, BOARD_MAX_COL));
+		holderOfBoard.setLayout(new BorderLayout());
 		
 		buildMenuBar();
 		buildBoard();
 		
 		//Adds JPanel holderOfAll to the TetrisView
 		screen.add(holderOfBoard);
+		//Sizes the TetrisView around the preferred size of the board
+		screen.pack();
 		//Allows the TetrisView to be seen
 		screen.setVisible(true);
 		//Enable Red Exit button.
@@ -86,9 +99,12 @@ public class TetrisView implements Observer {
 		JMenu gameStart = new JMenu("Game Start");
 		newGame = new JMenuItem("New Game");
 		loadGame = new JMenuItem("Load Game");
+		watchReplay = new JMenuItem("Watch Replay");
 		
 		gameStart.add(newGame);
 		gameStart.add(loadGame);
+		gameStart.addSeparator();
+		gameStart.add(watchReplay);
 		menubar.add(gameStart);
 		
 		JMenu options = new JMenu("Options");
@@ -96,81 +112,175 @@ public class TetrisView implements Observer {
 		pause = new JMenuItem("Pause/Unpause");
 		undo = new JMenuItem("Undo move");
 		saveGame = new JMenuItem("Save Game");
+		perfHud = new JCheckBoxMenuItem("Performance HUD");
+		perfHud.setEnabled(false);
 		
 		options.add(pause);
 		options.add(undo);
 		options.add(saveGame);
+		options.addSeparator();
+		options.add(perfHud);
 		menubar.add(options);
 		
 		screen.setJMenuBar(menubar);
 	}
 	/**
 	 *  This helper function initializes the holderOfBoard
-	 *  that was created in the constructor to hold 20x10 JLabels
+	 *  that was created in the constructor to hold the
+	 *  BoardPanel, which paints all 20x10 cells itself.
 	 *  @return Nothing
 	 */
 	private void buildBoard() {
-		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
-			for (int col = BOARD_MIN_COL; col < BOARD_MAX_COL; col++) {
-				JLabel currTile = new JLabel();
-				//Alternating color algorithm for a Tetris Board view
-				currTile.setOpaque(true);
-				currTile.setBackground(Color.BLACK);
-				
-				holderOfBoard.add(currTile);
-				//We also fill up the 2D 20x10 JPanel Array as well.
-				//The reason we do that is so we could refer to a JPanel
-				//inside the holderOfBoard via that Array.
-				board[row][col] = currTile;
-			}
-		}
-		//Adds JPanel that holds the Tetris tiles in a grid to the 
+		int screenHeight = Toolkit.getDefaultToolkit().getScreenSize().height;
+		int cellSize = Math.max(MIN_CELL_SIZE, screenHeight * 3 / 4 / BOARD_MAX_ROW);
+		board = new BoardPanel(BOARD_MAX_ROW, BOARD_MAX_COL, 
+							   new Dimension(BOARD_MAX_COL * cellSize, BOARD_MAX_ROW * cellSize));
+		board.setMinimumSize(new Dimension(BOARD_MAX_COL * SMALLEST_CELL_SIZE, 
+										   BOARD_MAX_ROW * SMALLEST_CELL_SIZE));
+		holderOfBoard.add(board, BorderLayout.CENTER);
+		
+		//Adds JPanel that holds the Tetris board to the 
 		//main JPanel holderOfAll in the center.
 		holderOfAll.add(holderOfBoard, BorderLayout.CENTER);
 	}
+	/**
+	 * Adds controls under the board, and sizes
+	 * the TetrisView around them (see ReplayViewer).
+	 * @param controls JComponent of the controls
+	 * @return Nothing
+	 */
+	public void addControls(JComponent controls) {
+		screen.add(controls, BorderLayout.SOUTH);
+		screen.pack();
+	}
 	/**
 	 * Takes a 2D Tile Array and makes each element of
-	 * said 2D Tile Array the color of each element of
-	 * the 2D JLabel Array.
+	 * said 2D Tile Array the color of each cell of the board.
 	 * @param input 2D Tile Array
 	 * @return Nothing
 	 */
 	public void updateBoard(Tile[][] input) {
-		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
-			for (int col = BOARD_MIN_COL; col < BOARD_MAX_COL; col++) {
-				JLabel elemTile = board[row][col];
-				elemTile.setOpaque(true);
-				
-				Color colorOfTile = input[row][col].getColor();
-				elemTile.setBackground(colorOfTile);
-			}
-		}
+		board.updateBoard(input);
 	}
 	/**
-	 * Gathers broadcasted information from TetrisModel, an Observable,
-	 * and does different things to it depending on what instanceof it is.
-	 * @param modelInstr Observable class that is sending information.
-	 * @param arg Information being sent from modelInstr
+	 * Takes a BoardSnapshot and makes only the cells
+	 * which changed the color they have in it.
+	 * @param input BoardSnapshot of the board
 	 * @return Nothing
 	 */
-	@Override
-	public void update(Observable modelInstr, Object arg) { 
-		if (!(modelInstr instanceof TetrisModel)) {
-			return;
-		}
+	public void updateBoard(BoardSnapshot input) {
+		board.updateBoard(input);
+	}
+	/**
+	 * Takes a MenuState and enables or disables
+	 * each menu item to match it.
+	 * @param input MenuState of the menu items
+	 * @return Nothing
+	 */
+	public void updateMenu(MenuState input) {
+		newGame.setEnabled(input.isNewGameEnabled());
+		loadGame.setEnabled(input.isLoadEnabled());
+		//Replays are watched between games, when one can be started.
+		watchReplay.setEnabled(input.isNewGameEnabled());
+		pause.setEnabled(input.isPauseEnabled());
+		undo.setEnabled(input.isUndoEnabled());
+		saveGame.setEnabled(input.isSaveEnabled());
+	}
+	/**
+	 * Asks the Player which slot to load, listing the
+	 * slots with what the index knows about them.
+	 * @param slots List of SaveSlots, the most recently saved first
+	 * @return String name of the chosen slot, or null if none was
+	 */
+	public String chooseLoadSlot(List<SaveSlot> slots) {
+		if (slots.isEmpty())
+			return null;
+		String[] labels = new String[slots.size()];
+		for (int i = 0; i < labels.length; i++)
+			labels[i] = describeSlot(slots.get(i));
 		
-		if (arg instanceof Tile[][]) {
-			updateBoard((Tile[][])arg);
+		Object chosen = JOptionPane.showInputDialog(screen, "Load which game?", "Load Game",
+													JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+		for (int i = 0; i < labels.length; i++) {
+			if (labels[i].equals(chosen))
+				return slots.get(i).getName();
 		}
-		else if (arg instanceof boolean[]) {
-			boolean[] menuEnables = (boolean[])arg;
-			newGame.setEnabled(menuEnables[0]);
-			loadGame.setEnabled(menuEnables[1]);
-			pause.setEnabled(menuEnables[2]);
-			undo.setEnabled(menuEnables[3]);
-			saveGame.setEnabled(menuEnables[4]);
+		return null;
+	}
+	/**
+	 * Asks the Player the name of the slot to save to,
+	 * starting from the most recently saved one.
+	 * Names which can't be slot names are asked again.
+	 * @param slots List of SaveSlots, the most recently saved first
+	 * @return String name of the slot, or null if the Player cancelled
+	 */
+	public String chooseSaveSlot(List<SaveSlot> slots) {
+		String name = slots.isEmpty() ? Game.DEFAULT_SLOT : slots.get(0).getName();
+		String message = "Save to slot:";
+		while (true) {
+			name = (String)JOptionPane.showInputDialog(screen, message, "Save Game",
+													   JOptionPane.QUESTION_MESSAGE, null, null, name);
+			if (name == null || SaveStore.isValidName(name.trim()))
+				return name == null ? null : name.trim();
+			message = "Slot names are 1 to 32 letters, digits, _ or -. Save to slot:";
 		}
 	}
+	/**
+	 * This helper function describes a slot for the Player.
+	 * @param slot SaveSlot to describe
+	 * @return String name, piece, stack height and time of the slot
+	 */
+	private static String describeSlot(SaveSlot slot) {
+		return slot.getName() + " - " + PIECE_LETTERS.charAt(slot.getPieceType()) + " piece, height " 
+			   + slot.getBoardHeight() + ", " + new SimpleDateFormat(DATE_FORMAT).format(new Date(slot.getSavedAt()));
+	}
+	/**
+	 * Records the time of every board update and paint into
+	 * PerfCounters, and lets the Player show them in the
+	 * performance HUD overlay (see PerfHud).
+	 * @param counters PerfCounters, usually the ones of TetrisModel
+	 * @return Nothing
+	 */
+	public void setPerfCounters(PerfCounters counters) {
+		perfCounters = counters;
+		board.setPerfCounters(counters);
+		
+		hud = new PerfHud(counters);
+		//The overlay is the glass pane, which is drawn over everything else.
+		screen.setGlassPane(hud);
+		perfHud.setEnabled(true);
+	}
+	/**
+	 * Shows or hides the performance HUD overlay.
+	 * Nothing happens if there are no PerfCounters to show.
+	 * @param shown true to show the overlay
+	 * @return Nothing
+	 */
+	public void showPerfHud(boolean shown) {
+		if (hud != null)
+			hud.showHud(shown);
+	}
+	/**
+	 * Subscribes to the board and menu events posted
+	 * to an EventBus, usually the one of TetrisModel.
+	 * @param eventBus EventBus to subscribe to
+	 * @return Nothing
+	 */
+	public void subscribeTo(EventBus eventBus) {
+		eventBus.subscribe(BoardSnapshot.class, new Subscriber<BoardSnapshot>() {
+			public void onEvent(BoardSnapshot event) {
+				long start = System.nanoTime();
+				updateBoard(event);
+				if (perfCounters != null)
+					perfCounters.recordRender(System.nanoTime() - start);
+			}
+		});
+		eventBus.subscribe(MenuState.class, new Subscriber<MenuState>() {
+			public void onEvent(MenuState event) {
+				updateMenu(event);
+			}
+		});
+	}
 	/**
 	 * Adds a TetrisController.
 	 * This will allow actionPerformed() function calls
@@ -182,9 +292,11 @@ public class TetrisView implements Observer {
 		this.controller = controller;
 		newGame.addActionListener(controller);
 		loadGame.addActionListener(controller);
+		watchReplay.addActionListener(controller);
 		pause.addActionListener(controller);
 		undo.addActionListener(controller);
 		saveGame.addActionListener(controller);
+		perfHud.addActionListener(controller);
 		screen.addKeyListener(controller);
 	}
 }
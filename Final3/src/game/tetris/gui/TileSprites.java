@@ -0,0 +1,194 @@
+package game.tetris.gui;
+import game.tetris.lib.Board;
+import game.tetris.lib.BoardSnapshot;
+import game.tetris.lib.Tile;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+
+/**
+ * TileSprites is a cache of one pre-drawn tile image per
+ * cell code (see BoardSnapshot.getCellCode()): a tile for
+ * every color code, and an outline for every color code plus
+ * GHOST_FLAG, all at the size cells are drawn at in device pixels,
+ * so drawing a cell is a single copy.
+ * 
+ * Sprites are VolatileImages where the graphics pipeline can
+ * accelerate them, and images it manages itself otherwise.
+ * A VolatileImage can lose its contents at any time (when the
+ * display mode changes, for example), so every sprite is checked
+ * before it is used and drawn again if it was lost.
+ * 
+ * The cache is only rebuilt when the size or the
+ * GraphicsConfiguration changes (see update()).
+ * 
+ * @author Rahul
+ *
+ */
+public class TileSprites {
+	private GraphicsConfiguration config;
+	private int size;
+	private boolean accelerated;
+	private Image[] sprites;
+	
+	/**
+	 * Constructor of an empty cache.
+	 * Nothing can be drawn before update() is called.
+	 */
+	public TileSprites() {
+		config = null;
+		size = 0;
+		sprites = new Image[BoardSnapshot.GHOST_FLAG + Tile.numColorCodes()];
+	}
+	/**
+	 * Makes the sprites the right size for a GraphicsConfiguration,
+	 * drawing them all again if the size or the configuration changed.
+	 * @param newConfig GraphicsConfiguration the sprites are drawn on
+	 * @param newSize width and height of a cell, in device pixels
+	 * @return true if the sprites were rebuilt
+	 * 		   false if they already were right
+	 */
+	public boolean update(GraphicsConfiguration newConfig, int newSize) {
+		if (newConfig == config && newSize == size)
+			return false;
+		flush();
+		config = newConfig;
+		size = newSize;
+		accelerated = config.getImageCapabilities().isAccelerated();
+		
+		for (int code = 0; code < Tile.numColorCodes(); code++) {
+			sprites[code] = createSprite(code);
+			sprites[code | BoardSnapshot.GHOST_FLAG] = createSprite(code | BoardSnapshot.GHOST_FLAG);
+		}
+		return true;
+	}
+	/**
+	 * Draws the sprite of a color code.
+	 * @param g Graphics to draw with, in device pixels
+	 * @param code cell code (see BoardSnapshot.getCellCode())
+	 * @param x left edge, in device pixels
+	 * @param y top edge, in device pixels
+	 * @return Nothing
+	 */
+	public void draw(Graphics g, int code, int x, int y) {
+		if (accelerated) {
+			VolatileImage sprite = (VolatileImage)sprites[code];
+			int valid = sprite.validate(config);
+			if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
+				sprite.flush();
+				sprites[code] = sprite = (VolatileImage)createSprite(code);
+			}
+			else if (valid == VolatileImage.IMAGE_RESTORED) {
+				drawTile(sprite, code);
+			}
+			g.drawImage(sprite, x, y, null);
+		}
+		else {
+			g.drawImage(sprites[code], x, y, null);
+		}
+	}
+	/**
+	 * Checks if any sprite lost its contents since it was last drawn,
+	 * in which case whatever was drawn with it must be drawn again.
+	 * @return true if a sprite lost its contents
+	 * 		   false otherwise
+	 */
+	public boolean contentsLost() {
+		if (accelerated == false)
+			return false;
+		for (int code = 0; code < sprites.length; code++) {
+			if (sprites[code] != null && ((VolatileImage)sprites[code]).contentsLost())
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * Getter for the size of the sprites.
+	 * @return int width and height of a sprite, in device pixels
+	 */
+	public int getSize() {
+		return size;
+	}
+	/**
+	 * Frees the sprites, which are rebuilt on the next update().
+	 * @return Nothing
+	 */
+	public void flush() {
+		for (int code = 0; code < sprites.length; code++) {
+			if (sprites[code] != null)
+				sprites[code].flush();
+			sprites[code] = null;
+		}
+		config = null;
+		size = 0;
+	}
+	/**
+	 * This helper function creates the sprite of a cell code
+	 * and draws the tile on it.
+	 * @param code cell code (see BoardSnapshot.getCellCode())
+	 * @return Image of the sprite
+	 */
+	private Image createSprite(int code) {
+		Image sprite;
+		if (accelerated)
+			sprite = config.createCompatibleVolatileImage(size, size, Transparency.OPAQUE);
+		else
+			sprite = config.createCompatibleImage(size, size, Transparency.OPAQUE);
+		drawTile(sprite, code);
+		return sprite;
+	}
+	/**
+	 * This helper function draws a tile filling a sprite:
+	 * the color of the code, with light top and left edges and dark
+	 * bottom and right ones. Empty cells are plain black, and ghost
+	 * cells are black with an outline of the color of the code.
+	 * @param sprite Image to draw on
+	 * @param code cell code (see BoardSnapshot.getCellCode())
+	 * @return Nothing
+	 */
+	private void drawTile(Image sprite, int code) {
+		Graphics2D g = (Graphics2D)sprite.getGraphics();
+		if ((code & BoardSnapshot.GHOST_FLAG) != 0) {
+			drawOutline(g, Tile.colorOfCode(code & ~BoardSnapshot.GHOST_FLAG));
+			g.dispose();
+			return;
+		}
+		Color color = Tile.colorOfCode(code);
+		g.setColor(color);
+		g.fillRect(0, 0, size, size);
+		
+		int edge = size / 8;
+		if (code != Board.EMPTY && edge > 0) {
+			g.setColor(color.brighter());
+			g.fillRect(0, 0, size, edge);
+			g.fillRect(0, 0, edge, size);
+			g.setColor(color.darker());
+			g.fillRect(0, size - edge, size, edge);
+			g.fillRect(size - edge, edge, edge, size - edge);
+		}
+		g.dispose();
+	}
+	/**
+	 * This helper function draws the outline of a tile of a color
+	 * over black, a little inside the cell so neighbouring
+	 * outlines don't merge.
+	 * @param g Graphics of the sprite
+	 * @param color Color of the outline
+	 * @return Nothing
+	 */
+	private void drawOutline(Graphics2D g, Color color) {
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, size, size);
+		
+		int inset = size / 16;
+		int thickness = Math.max(1, size / 16);
+		g.setColor(color);
+		for (int i = 0; i < thickness; i++)
+			g.drawRect(inset + i, inset + i, size - 1 - 2 * (inset + i), size - 1 - 2 * (inset + i));
+	}
+}
@@ -0,0 +1,108 @@
+package game.tetris.gui;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TimeHistogram counts how long something took, in buckets
+ * that grow with the time: every power of two of nanoseconds
+ * is split into SUB_BUCKETS buckets, so any time is counted
+ * within 25% of what it was, from nanoseconds to hours.
+ * 
+ * Recording is one atomic increment: no locking and no allocation,
+ * so it can be done every frame. Percentiles are found from a copy of
+ * the counts (see copyCounts()), minus an older copy to only look at
+ * what was recorded since.
+ * 
+ * @author Rahul
+ *
+ */
+public class TimeHistogram {
+	private static final int SUB_BUCKETS = 4;
+	public static final int NUM_BUCKETS = 62 * SUB_BUCKETS;
+	
+	private AtomicLongArray counts;
+	
+	/**
+	 * Constructor of an empty TimeHistogram.
+	 */
+	public TimeHistogram() {
+		counts = new AtomicLongArray(NUM_BUCKETS);
+	}
+	/**
+	 * Counts one time.
+	 * Can be called from any thread, and never blocks.
+	 * @param nanos time in nanoseconds
+	 * @return Nothing
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucketOf(nanos));
+	}
+	/**
+	 * Copies the counts of every bucket.
+	 * @param into long array of NUM_BUCKETS to copy into
+	 * @return Nothing
+	 */
+	public void copyCounts(long[] into) {
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++)
+			into[bucket] = counts.get(bucket);
+	}
+	/**
+	 * Static Function that finds the bucket a time is counted in.
+	 * @param nanos time in nanoseconds
+	 * @return int bucket, from 0 to NUM_BUCKETS - 1
+	 */
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int)Math.max(nanos, 0);
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int)(nanos >> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return Math.min((exponent - 1) * SUB_BUCKETS + subBucket, NUM_BUCKETS - 1);
+	}
+	/**
+	 * Static Function that finds the longest time a bucket counts.
+	 * @param bucket bucket, from 0 to NUM_BUCKETS - 1
+	 * @return long time in nanoseconds
+	 */
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		return ((long)(SUB_BUCKETS + subBucket + 1) << (exponent - 2)) - 1;
+	}
+	/**
+	 * Static Function that counts the times recorded between two copies.
+	 * @param counts newer copy of the counts
+	 * @param since older copy of the counts
+	 * @return long how many times were recorded in between
+	 */
+	public static long countSince(long[] counts, long[] since) {
+		long total = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++)
+			total += counts[bucket] - since[bucket];
+		return total;
+	}
+	/**
+	 * Static Function that finds a percentile of the
+	 * times recorded between two copies of the counts.
+	 * @param counts newer copy of the counts
+	 * @param since older copy of the counts
+	 * @param fraction percentile, from 0 to 1 (0.99 for the 99th)
+	 * @return long time in nanoseconds that fraction of the times
+	 * 		   were at most, 0 if nothing was recorded in between
+	 */
+	public static long percentile(long[] counts, long[] since, double fraction) {
+		long total = countSince(counts, since);
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long)Math.ceil(total * fraction));
+		
+		long seen = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			seen += counts[bucket] - since[bucket];
+			if (seen >= rank)
+				return upperBoundOf(bucket);
+		}
+		return upperBoundOf(NUM_BUCKETS - 1);
+	}
+}
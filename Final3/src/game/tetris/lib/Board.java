@@ -0,0 +1,306 @@
+package game.tetris.lib;
+
+import game.tetris.lib.pieces.PieceShape;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a 20x10 Tetris board.
+ *
+ * Occupancy is kept as one int mask per row, where bit col
+ * is set iff the cell (row, col) is filled. The colors of the
+ * cells are kept apart from the masks in a compact color plane
+ * of color codes (see Tile for the palette), with code EMPTY
+ * meaning the cell is not filled. The color plane is an array of
+ * row references, so rows move by reference when rows are cleared.
+ *
+ * This lets collision checks be mask ANDs and lets full-row
+ * checks be a single int compare instead of walking Tile objects.
+ *
+ * The height of every col (how far its topmost filled cell is
+ * from the bottom) is kept up to date along with the masks,
+ * so a landing row comes back without stepping a piece down.
+ *
+ * @author Rahul
+ *
+ */
+public class Board {
+	public static final int NUM_ROWS = 20;
+	public static final int NUM_COLS = 10;
+
+	public static final int EMPTY = 0;
+
+	private static final int FULL_ROW_MASK = (1 << NUM_COLS) - 1;
+
+	private int[] rowMasks;
+	private byte[][] colors;
+	private int[] colHeights;
+	//Rows being cleared, recycled as the emptied rows at the top
+	private byte[][] clearedRows;
+
+	/**
+	 * Default Constructor.
+	 * Creates an empty board.
+	 */
+	public Board() {
+		rowMasks = new int[NUM_ROWS];
+		colors = new byte[NUM_ROWS][NUM_COLS];
+		colHeights = new int[NUM_COLS];
+		clearedRows = new byte[NUM_ROWS][];
+	}
+	/**
+	 * Copy Constructor.
+	 * @param other Board to deep copy
+	 */
+	public Board(Board other) {
+		this();
+		copyFrom(other);
+	}
+	/**
+	 * Deep copies another Board into this one.
+	 * @param other Board to copy from
+	 * @return Nothing
+	 */
+	public void copyFrom(Board other) {
+		for (int row = 0; row < NUM_ROWS; row++) {
+			rowMasks[row] = other.rowMasks[row];
+			System.arraycopy(other.colors[row], 0, colors[row], 0, NUM_COLS);
+		}
+		System.arraycopy(other.colHeights, 0, colHeights, 0, NUM_COLS);
+	}
+	/**
+	 * Empties every cell of the board.
+	 * @return Nothing
+	 */
+	public void clear() {
+		for (int row = 0; row < NUM_ROWS; row++) {
+			rowMasks[row] = 0;
+			for (int col = 0; col < NUM_COLS; col++)
+				colors[row][col] = EMPTY;
+		}
+		for (int col = 0; col < NUM_COLS; col++)
+			colHeights[col] = 0;
+	}
+	/**
+	 * Getter for the occupancy mask of a row.
+	 * @param row row of the board
+	 * @return int where bit col is set iff (row, col) is filled
+	 */
+	public int getRowMask(int row) {
+		return rowMasks[row];
+	}
+	/**
+	 * Checker for one cell of the board.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return true if the cell is filled
+	 * 		   false otherwise
+	 */
+	public boolean isOccupied(int row, int col) {
+		return (rowMasks[row] & (1 << col)) != 0;
+	}
+	/**
+	 * Getter for how many cells of a row are filled.
+	 * The row mask already holds this, so it is one bit count.
+	 * @param row row of the board
+	 * @return int 0 to NUM_COLS
+	 */
+	public int getRowFillCount(int row) {
+		return Integer.bitCount(rowMasks[row]);
+	}
+	/**
+	 * Checker for a full row.
+	 * @param row row of the board
+	 * @return true if every cell of the row is filled
+	 * 		   false otherwise
+	 */
+	public boolean isRowFull(int row) {
+		return rowMasks[row] == FULL_ROW_MASK;
+	}
+	/**
+	 * Checker if a piece shape overlaps filled cells.
+	 * The shape must be in bounds at the pivot (see PieceShape.isInBounds()).
+	 * @param shape PieceShape to check
+	 * @param pivotRow row of the pivot of the shape
+	 * @param pivotCol col of the pivot of the shape
+	 * @return true if at least one block of the shape is on a filled cell
+	 * 		   false otherwise
+	 */
+	public boolean collides(PieceShape shape, int pivotRow, int pivotCol) {
+		int topRow = pivotRow + shape.getMinRowOffset();
+		int shift = pivotCol + shape.getMinColOffset();
+		
+		for (int i = 0; i < shape.getHeight(); i++) {
+			if ((rowMasks[topRow + i] & (shape.getRowMask(i) << shift)) != 0)
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * Getter for the height of a col.
+	 * @param col col of the board
+	 * @return int how many rows its topmost filled cell is
+	 * 		   from the bottom of the board, 0 if the col is empty
+	 */
+	public int getColHeight(int col) {
+		return colHeights[col];
+	}
+	/**
+	 * This function finds the row the pivot of a piece shape ends
+	 * up at if it drops straight down from a pivot.
+	 *
+	 * If the shape is above the topmost filled cell of each of its cols,
+	 * it lands where its lowest block in some col meets that col's height,
+	 * which takes one look per col of the shape. Otherwise (it is tucked
+	 * under an overhang), it is stepped down row by row.
+	 * The shape must be in bounds and not collide at the pivot.
+	 * @param shape PieceShape to drop
+	 * @param pivotRow row of the pivot of the shape
+	 * @param pivotCol col of the pivot of the shape
+	 * @return int pivot row the shape stops falling at
+	 */
+	public int landingRow(PieceShape shape, int pivotRow, int pivotCol) {
+		int leftCol = pivotCol + shape.getMinColOffset();
+		int landingRow = Integer.MAX_VALUE;
+
+		for (int i = 0; i < shape.getWidth(); i++) {
+			int topFilledRow = NUM_ROWS - colHeights[leftCol + i];
+			landingRow = Math.min(landingRow, topFilledRow - 1 - shape.getColBottomOffset(i));
+		}
+		if (landingRow >= pivotRow)
+			return landingRow;
+
+		//Slow path, under an overhang.
+		landingRow = pivotRow;
+		while (landingRow + shape.getMaxRowOffset() + 1 < NUM_ROWS
+			   && collides(shape, landingRow + 1, pivotCol) == false) {
+			landingRow++;
+		}
+		return landingRow;
+	}
+	/**
+	 * Getter for the color code of one cell.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return color code of the cell, EMPTY if it isn't filled
+	 */
+	public int getColorCode(int row, int col) {
+		return colors[row][col];
+	}
+	/**
+	 * Setter for the color code of one cell.
+	 * The occupancy mask of the row is updated along with it.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @param code color code to set, EMPTY to unfill the cell
+	 * @return Nothing
+	 */
+	public void setColorCode(int row, int col, int code) {
+		colors[row][col] = (byte)code;
+
+		if (code == EMPTY) {
+			rowMasks[row] &= ~(1 << col);
+			//The topmost cell of the col was unfilled.
+			if (NUM_ROWS - row == colHeights[col])
+				colHeights[col] = heightFromRow(col, row + 1);
+		}
+		else {
+			rowMasks[row] |= (1 << col);
+			colHeights[col] = Math.max(colHeights[col], NUM_ROWS - row);
+		}
+	}
+	/**
+	 * This helper function finds the height of a col by looking
+	 * for its topmost filled cell, starting from a row downward.
+	 * @param col col of the board
+	 * @param fromRow row to start looking from
+	 * @return int height of the col
+	 */
+	private int heightFromRow(int col, int fromRow) {
+		for (int row = fromRow; row < NUM_ROWS; row++) {
+			if ((rowMasks[row] & (1 << col)) != 0)
+				return NUM_ROWS - row;
+		}
+		return 0;
+	}
+	/**
+	 * This helper function finds the height of every col at once,
+	 * walking the row masks down until every col has been seen.
+	 * @return Nothing
+	 */
+	private void recomputeColHeights() {
+		int seenCols = 0;
+
+		for (int col = 0; col < NUM_COLS; col++)
+			colHeights[col] = 0;
+		for (int row = 0; row < NUM_ROWS && seenCols != FULL_ROW_MASK; row++) {
+			int newCols = rowMasks[row] & ~seenCols;
+			while (newCols != 0) {
+				colHeights[Integer.numberOfTrailingZeros(newCols)] = NUM_ROWS - row;
+				newCols &= newCols - 1;
+			}
+			seenCols |= rowMasks[row];
+		}
+	}
+	/**
+	 * This function clears completed rows after a piece stopped
+	 * between two rows. Only those rows can have become full, so
+	 * the rest of the board is only touched if one of them is.
+	 * @param fromRow topmost row the piece covers
+	 * @param toRow bottommost row the piece covers
+	 * @return int which is how many rows were cleared
+	 */
+	public int clearCompletedRows(int fromRow, int toRow) {
+		for (int row = fromRow; row <= toRow; row++) {
+			if (rowMasks[row] == FULL_ROW_MASK)
+				return clearCompletedRows();
+		}
+		return 0;
+	}
+	/**
+	 * This function finds rows which are filled up and
+	 * empties them. Then, all filled cells above are moved down.
+	 *
+	 * Rows move down as a whole: their masks and color row references
+	 * are moved, never their cells. The color rows of the cleared rows
+	 * are emptied and reused as the new empty rows at the top, so
+	 * clearing k rows only writes the cells of those k rows.
+	 * @return int which is how many rows were cleared
+	 */
+	public int clearCompletedRows() {
+		int numFilledRowsUnder = 0;
+		int row;
+
+		//Iterate upward through the rows.
+		for (row = NUM_ROWS - 1; row >= 0; row--) {
+			//short-circuit. There cannot possibly be any cells further up the rows
+			if (rowMasks[row] == 0)
+				break;
+
+			if (rowMasks[row] == FULL_ROW_MASK) {
+				clearedRows[numFilledRowsUnder] = colors[row];
+				numFilledRowsUnder++;
+			}
+			//All non-filled rows above eliminated rows go down.
+			else if (numFilledRowsUnder > 0) {
+				int dest = row + numFilledRowsUnder;
+				rowMasks[dest] = rowMasks[row];
+				colors[dest] = colors[row];
+			}
+		}
+		//The topmost rows that were shifted down are now empty.
+		//They get the emptied color rows of the cleared rows.
+		for (int i = 0; i < numFilledRowsUnder; i++) {
+			int emptied = row + 1 + i;
+			byte[] recycled = clearedRows[i];
+			clearedRows[i] = null;
+
+			Arrays.fill(recycled, (byte)EMPTY);
+			rowMasks[emptied] = 0;
+			colors[emptied] = recycled;
+		}
+		if (numFilledRowsUnder > 0)
+			recomputeColHeights();
+		return numFilledRowsUnder;
+	}
+}
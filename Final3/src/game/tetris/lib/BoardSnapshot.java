@@ -0,0 +1,148 @@
+package game.tetris.lib;
+
+import java.awt.Color;
+
+/**
+ * BoardSnapshot is a compact copy of what a Tetris Game shows:
+ * the color code (see Tile) of every cell, falling piece included,
+ * one byte per cell, and the number of the frame it was taken at.
+ *
+ * The empty cells where the falling piece would land (its ghost)
+ * hold the color code of the piece plus GHOST_FLAG (see getCellCode()).
+ *
+ * A snapshot also holds which cells changed since the frame before it
+ * (see getChangedMask()), so a renderer which drew that frame only has
+ * to look at those.
+ *
+ * Snapshots are written by Game.writeSnapshot() or a SnapshotWriter,
+ * and handed to a renderer through a TripleBuffer. Only lib can write one, so to
+ * everyone else a snapshot is immutable: the TripleBuffer never gives
+ * a snapshot the renderer holds back to the writer.
+ *
+ * @author Rahul
+ *
+ */
+public class BoardSnapshot {
+	//Set on the cell code of empty cells under the ghost of the falling piece
+	public static final int GHOST_FLAG = 1 << 3;
+
+	private final int numRows;
+	private final int numCols;
+	//Color codes, row by row
+	private final byte[] colorCodes;
+	//Cells which changed since frame frameNumber - 1, one mask per row
+	private final int[] changedMasks;
+	private long frameNumber;
+
+	/**
+	 * Constructor of an empty snapshot of a board size.
+	 * @param numRows how many rows the board has
+	 * @param numCols how many cols the board has
+	 */
+	public BoardSnapshot(int numRows, int numCols) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		colorCodes = new byte[numRows * numCols];
+		changedMasks = new int[numRows];
+		frameNumber = -1;
+	}
+	/**
+	 * Writes the code of one cell.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @param code color code (see Tile), plus GHOST_FLAG for a ghost cell
+	 * @return Nothing
+	 */
+	void setCellCode(int row, int col, int code) {
+		colorCodes[row * numCols + col] = (byte)code;
+	}
+	/**
+	 * Setter for the cells of a row which changed since the frame before.
+	 * @param row row of the cells
+	 * @param mask int where bit col is set iff (row, col) changed
+	 * @return Nothing
+	 */
+	void setChangedMask(int row, int mask) {
+		changedMasks[row] = mask;
+	}
+	/**
+	 * Setter for the number of the frame the snapshot is of.
+	 * @param frameNumber frame number
+	 * @return Nothing
+	 */
+	void setFrameNumber(long frameNumber) {
+		this.frameNumber = frameNumber;
+	}
+	/**
+	 * Getter for the code of one cell, ghost included.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return int color code (see Tile) of the cell, or of the falling
+	 * 		   piece plus GHOST_FLAG if the cell is part of its ghost
+	 */
+	public int getCellCode(int row, int col) {
+		return colorCodes[row * numCols + col];
+	}
+	/**
+	 * Checks if one cell is part of the ghost of the falling piece.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return true if the cell is empty and the piece would land on it
+	 * 		   false otherwise
+	 */
+	public boolean isGhost(int row, int col) {
+		return (getCellCode(row, col) & GHOST_FLAG) != 0;
+	}
+	/**
+	 * Getter for the color code of one cell, ghost left out.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return int color code (see Tile), Board.EMPTY if it isn't lit
+	 */
+	public int getColorCode(int row, int col) {
+		int code = getCellCode(row, col);
+		return (code & GHOST_FLAG) != 0 ? Board.EMPTY : code;
+	}
+	/**
+	 * Getter for the color of one cell.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return Color of the cell, Color.BLACK if it isn't lit
+	 */
+	public Color getColor(int row, int col) {
+		return Tile.colorOfCode(getColorCode(row, col));
+	}
+	/**
+	 * Getter for the cells of a row which changed since the frame
+	 * numbered getFrameNumber() - 1. Other cells hold the same code
+	 * as they did in it.
+	 * @param row row of the cells
+	 * @return int where bit col is set iff (row, col) may have changed
+	 */
+	public int getChangedMask(int row) {
+		return changedMasks[row];
+	}
+	/**
+	 * Getter for the number of the frame the snapshot is of.
+	 * Frames are numbered from 0 by the writer, and a renderer
+	 * can see numbers skipped when it was too slow to see them all.
+	 * @return long frame number, -1 if nothing was written yet
+	 */
+	public long getFrameNumber() {
+		return frameNumber;
+	}
+	/**
+	 * Getter for how many rows the board has.
+	 * @return int number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+	/**
+	 * Getter for how many columns the board has.
+	 * @return int number of columns
+	 */
+	public int getNumCols() {
+		return numCols;
+	}
+}
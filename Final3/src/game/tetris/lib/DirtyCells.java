@@ -0,0 +1,110 @@
+package game.tetris.lib;
+
+/**
+ * DirtyCells is the set of board cells which changed
+ * since a view last drew the board.
+ *
+ * Like Board, it is kept as one int mask per row, where bit col
+ * is set iff the cell (row, col) is dirty, so marking a cell or
+ * a whole row is one OR and nothing is allocated per tick.
+ *
+ * @author Rahul
+ *
+ */
+public class DirtyCells {
+	private static final int FULL_ROW_MASK = (1 << Board.NUM_COLS) - 1;
+
+	private int[] rowMasks;
+
+	/**
+	 * Default Constructor.
+	 * Every cell starts out dirty, since nothing was drawn yet.
+	 */
+	public DirtyCells() {
+		rowMasks = new int[Board.NUM_ROWS];
+		markAll();
+	}
+	/**
+	 * Marks one cell as dirty.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return Nothing
+	 */
+	public void markCell(int row, int col) {
+		rowMasks[row] |= 1 << col;
+	}
+	/**
+	 * Marks the 4 cells of a piece as dirty.
+	 * @param coords block coords of the piece, like Tetrimino's
+	 * @return Nothing
+	 */
+	public void markBlocks(int[] coords) {
+		for (int i = 0; i < coords.length; i += 2)
+			markCell(coords[i], coords[i + 1]);
+	}
+	/**
+	 * Marks every cell of rows as dirty.
+	 * @param fromRow topmost row to mark
+	 * @param toRow bottommost row to mark
+	 * @return Nothing
+	 */
+	public void markRows(int fromRow, int toRow) {
+		for (int row = fromRow; row <= toRow; row++)
+			rowMasks[row] = FULL_ROW_MASK;
+	}
+	/**
+	 * Marks every cell of the board as dirty.
+	 * @return Nothing
+	 */
+	public void markAll() {
+		markRows(0, Board.NUM_ROWS - 1);
+	}
+	/**
+	 * Marks every cell which is dirty in another set as dirty,
+	 * to gather the changes of several ticks.
+	 * @param other DirtyCells to add to this one
+	 * @return Nothing
+	 */
+	public void markFrom(DirtyCells other) {
+		for (int row = 0; row < Board.NUM_ROWS; row++)
+			rowMasks[row] |= other.rowMasks[row];
+	}
+	/**
+	 * Marks every cell as clean, once a view drew them.
+	 * @return Nothing
+	 */
+	public void clear() {
+		for (int row = 0; row < Board.NUM_ROWS; row++)
+			rowMasks[row] = 0;
+	}
+	/**
+	 * Checker for one cell.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return true if the cell changed since the last clear()
+	 * 		   false otherwise
+	 */
+	public boolean isDirty(int row, int col) {
+		return (rowMasks[row] & (1 << col)) != 0;
+	}
+	/**
+	 * Getter for the dirty mask of a row.
+	 * @param row row of the board
+	 * @return int where bit col is set iff (row, col) is dirty
+	 */
+	public int getRowMask(int row) {
+		return rowMasks[row];
+	}
+	/**
+	 * Checker if nothing changed.
+	 * @return true if no cell is dirty
+	 * 		   false otherwise
+	 */
+	public boolean isEmpty() {
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			if (rowMasks[row] != 0)
+				return false;
+		}
+		return true;
+	}
+}
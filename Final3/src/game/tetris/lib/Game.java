@@ -2,26 +2,30 @@ package game.tetris.lib;
 
 import game.tetris.lib.pieces.*;
 
-import java.util.Vector;
+import java.util.List;
 import java.util.Random;
+import java.util.Vector;
 import java.awt.Color;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 /**
  * The main class of game.tetris.lib 
  * that can (and should) be used for running
  * a Tetris Game.
  * 
- * This class contains a board of tiles to be
- * used as the Tetris Board, a Tetrimino subclass to
+ * This class wraps a GameEngine, the headless core which
+ * holds the bitboard (see Board) used as the Tetris Board.
+ * On top of it, this class has a Tetrimino subclass to
  * be used as a control of a falling piece, and
- * multiple other members for the main Tetris game loop.
+ * multiple other members for the main Tetris game loop
+ * (pausing, undo, saving and loading).
+ * 
+ * It also records which cells changed (see DirtyCells), so
+ * only those are copied into the snapshots of a view (see
+ * SnapshotWriter), which only has to redraw them.
  * 
  * 
  * @author Rahul
@@ -32,17 +36,27 @@ public class Game {
 	private static final int BOARD_MIN_COL = 0;
 	private static final int BOARD_MAX_COL = 10;
 	
-	private static final int NUM_TET_TYPES = 7;
-	private static final int NUM_ROW_TILES = 10;
-	
 	private static final int MAX_STACK_SIZE = 5;
+	private static final int NUM_BLOCK_COORDS = 8;
+	private static final int FULL_ROW_MASK = (1 << BOARD_MAX_COL) - 1;
 	
-	private static final String FILENAME = "savefile.txt";
+	//Directory of the save slots (see SaveStore), and the slot saveGame() uses
+	private static final String SAVE_DIR = "saves";
+	public static final String DEFAULT_SLOT = "quicksave";
+	//Opened on first use, then shared by every Game
+	private static SaveStore saveStore;
 	
-	private Tile[][] board;
+	private GameEngine engine;
+	//Tile view of the board, handed out by getBoard()
+	private Tile[][] tiles;
 	private Tetrimino fallingPiece;
+	//Scratch block coords, so tickTock() doesn't allocate while a piece falls
+	private int[] scratchCoords;
+	//Cells changed since the view last drew the board
+	private DirtyCells dirtyCells;
 	private boolean paused;
-	private boolean gameover;
+	//Frames runFrame() ran since this Game was made
+	private long frameCount;
 	
 	private Vector<GameState> stack;
 	
@@ -54,309 +68,285 @@ public class Game {
 	 * 
 	 */
 	public Game() {
+		this(new Random().nextLong());
+	}
+	/**
+	 * Board Constructor of a game with a seeded piece sequence:
+	 * the same seed and the same inputs always give the same game,
+	 * which is what replays (see game.tetris.lib.replay) rely on.
+	 * @param seed seed of the piece sequence
+	 */
+	public Game(long seed) {
+		this(seed, UniformPieceGenerator.FACTORY);
+	}
+	/**
+	 * Board Constructor of a seeded game whose pieces are
+	 * dealt by a generator of another kind, a 7-bag for one.
+	 * @param seed seed of the piece sequence
+	 * @param generatorFactory makes the PieceGenerator of the game
+	 */
+	public Game(long seed, PieceGeneratorFactory generatorFactory) {
+		//start the falling pieces
+		engine = new GameEngine(generatorFactory.newGenerator(seed));
 		//Heap construction of the 2D Tile Array
-		board = new Tile[BOARD_MAX_ROW][BOARD_MAX_COL];
+		tiles = new Tile[BOARD_MAX_ROW][BOARD_MAX_COL];
 		
 		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
 			for (int col = BOARD_MIN_COL; col < BOARD_MAX_COL; col++) {
-				board[row][col] = new Tile();
+				tiles[row][col] = new Tile();
 			}
 		}
+		scratchCoords = new int[NUM_BLOCK_COORDS];
+		dirtyCells = new DirtyCells();
 		stack = new Vector<GameState>();
 		paused = false;
-		gameover = false;
 		
-		//start the falling pieces
-		putRandPiece();
-		//display this falling piece
-		Color colorOfPiece = fallingPiece.getTetColor();
-		lightUpFallingPiece(colorOfPiece);
-	}
-	/**
-	 * This function initializes the member
-	 * fallingPiece to a 
-	 * randomly picked Tetrimino piece.
-	 * @return Nothing
-	 */
-	public void putRandPiece() {
-		Random randomizer = new Random();
-		//Randomly pick a number from 0 to NUM_TET_TYPES-1
-		int rand = randomizer.nextInt(NUM_TET_TYPES);
-		
-		if (rand == 0)
-			fallingPiece = new I();
-		else if (rand == 1)
-			fallingPiece = new J();
-		else if (rand == 2)
-			fallingPiece = new L();
-		else if (rand == 3)
-			fallingPiece = new O();
-		else if (rand == 4)
-			fallingPiece = new S();
-		else if (rand == 5)
-			fallingPiece = new T();
-		else if (rand == 6)
-			fallingPiece = new Z();
-		
-		gameOverCheck();
-	}
-	/**
-	 * This function only activates 
-	 * immeadiatedly after putRandPiece().
-	 * 
-	 * It analyzes if the game is over iff
-	 * the new falling piece cannot fall.
-	 * @return Nothing
-	 */
-	private void gameOverCheck() {
-		//This means the piece cannot fall from 
-		//its initial position, ending the game.
-		if (pieceStopsFalling()) {
-			gameover = true;
-		}
+		fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
 	}
 	/**
 	 * This function is essentially the time units of
 	 * Game. If this function activates, all of these
 	 * steps are done (in helper functions)
 	 * 
-	 * 1. Falling piece is checked if it can stop falling. If so...
-	 *    a. Save state of the game without the piece. Unlight the stopped falling piece.
-	 *    b. The rows are checked if they are completed (as to remove said 
-	 *       row and move all non-falling pieces above it down one space).
-	 *    c. Put a new random piece.
-	 * 2. the falling piece falls/translates/rotates.
-	 *    a. De-light the corresponding Tiles to the original position 
-	 *       of the falling piece's blocks.
-	 *    b. Check collision detection of falling piece and if it runs off the side
-	 *       - If piece would go into another piece, negate the rotation and translation
-	 *       - Otherwise, do the rotation and translation
-	 *    c. Light up the corresponding Tiles to the new position
-	 *       of the falling piece's blocks
+	 * 1. Falling piece is checked if it can stop falling. If so,
+	 *    save state of the game without the piece.
+	 * 2. The translation and rotation set on the falling piece are
+	 *    handed to the engine as input, and the engine runs one step
+	 *    (see GameEngine.step()):
+	 *    - a stopped piece stays on the board, completed rows are removed
+	 *      and a new random piece is put at the top.
+	 *    - otherwise, the player input is done if it is legal and
+	 *      the falling piece falls one row.
+	 * 3. The falling piece member is updated to the engine's falling piece.
+	 * 
+	 * The cells the falling piece left and entered are marked dirty,
+	 * and so is every row down to the stopped piece if rows were cleared.
+	 * 
+	 * While the falling piece doesn't stop, this function allocates
+	 * nothing: all block coords go through scratch arrays.
 	 * 
 	 * @return true if the time unit passed
 	 * 		   false if the time unit failed to pass (game is paused)
 	 */
 	public boolean tickTock() { 
-		if (paused || gameover)
+		if (paused || engine.isGameOver())
 			return false;
 		//Step 1
-		if (pieceStopsFalling()) {
-			//Step 1a
+		if (engine.pieceStopsFalling()) {
 			saveState();
-			//Step 1b
-			checkForCompletedRows();
-			//Step 1c
-			putRandPiece();
+		}
+		int pieceBottomRow = engine.getPivotRow() + engine.getPieceShape().getMaxRowOffset();
+		markFallingPieceDirty();
+		//Step 2
+		int result = engine.step(playerInput());
+		//Step 3
+		if (GameEngine.isLocked(result)) {
+			fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
+			//Everything above cleared rows moved down.
+			if (GameEngine.linesCleared(result) > 0)
+				dirtyCells.markRows(BOARD_MIN_ROW, pieceBottomRow);
 		}
 		else {
-			int[] interm = null;
-			//Step 2a
-			lightUpFallingPiece(Color.BLACK);
-			//Step 2b - pieceRunsOffSide() comes first to short-circuit the conditional
-			//in case pieceRunsOffSide() returns true
-			if (pieceRunsOutOfBounds() == false && playerInputCausesCollision() == false) {
-				interm = fallingPiece.rotatingTetBlockCoords();
-				fallingPiece.setAllTetBlockCoords(interm);
-				interm = fallingPiece.translatedTetBlockCoords();
-				fallingPiece.setAllTetBlockCoords(interm);
-			}
-			else {
-				//reset the rotation and translation if player move is illegal
-				fallingPiece.rotate(Rotate.NONE);
-				fallingPiece.translate(Move.NONE);
-			}
-			interm = fallingPiece.fallingTetBlockCoords();
-			fallingPiece.setAllTetBlockCoords(interm);
-			//Step 2c
-			Color colorOfPiece = fallingPiece.getTetColor();
-			lightUpFallingPiece(colorOfPiece);
+			syncFallingPiece();
 		}
+		markFallingPieceDirty();
 		return true;
 	}
 	/**
-	 * This helper function checks all Tiles one row down from the
-	 * falling piece's blocks to see if they are lit. If there is
-	 * at least one which is NOT part of the falling piece itself.
-	 * the falling piece must stop moving.
-	 * 
-	 * @return true if piece should stop falling.
-	 *         false otherwise
+	 * This function runs one frame of real time play: the falling piece
+	 * falls as many rows as the gravity of the current level adds up to
+	 * (see GameEngine.runFrame()), which can be none, one or up to 20.
+	 *
+	 * Like tickTock(), the state of the game is saved before the falling
+	 * piece stops, and the cells which changed are marked dirty. The
+	 * translation and rotation set on the falling piece are not used:
+	 * moves are done right away with moveLeft(), moveRight() and rotate().
+	 * Frames which pass are counted (see getFrameCount()).
+	 *
+	 * @return true if the frame passed
+	 * 		   false if the frame failed to pass (game is paused or over)
 	 */
-	private boolean pieceStopsFalling() {
-		int[] currTetPos = fallingPiece.getTetBlockCoords();
-		int[] oneRowDownVersion = new int[8];
-		
-		for (int i = 0; i < 8; i += 2) {
-			oneRowDownVersion[i] = currTetPos[i] + 1;
-			oneRowDownVersion[i + 1] = currTetPos[i + 1];
+	public boolean runFrame() {
+		if (paused || engine.isGameOver())
+			return false;
+		frameCount++;
+		int rows = engine.gravityRowsDue();
+		if (rows == 0)
+			return true;
+
+		if (engine.pieceStopsFalling()) {
+			saveState();
 		}
-		
-		//check if the piece's block's next one-row-fall goes
-		//past the bottom or into another lit square.
-		for (int i = 0; i < 8; i += 2) {
-			int rowOfBlock = oneRowDownVersion[i];
-			int colOfBlock = oneRowDownVersion[i + 1];
-			
-			if (rowOfBlock >= BOARD_MAX_ROW) {
-				return true;
-			}
-			
-			if (board[rowOfBlock][colOfBlock].isLit() == true &&
-			    fallingPiece.isCoordABlockCoord(rowOfBlock, colOfBlock) == false) {
-				return true;
-			}
+		int pieceBottomRow = engine.getPivotRow() + engine.getPieceShape().getMaxRowOffset();
+		markFallingPieceDirty();
+		int result = engine.fall(rows);
+		if (GameEngine.isLocked(result)) {
+			fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
+			//Everything above cleared rows moved down.
+			if (GameEngine.linesCleared(result) > 0)
+				dirtyCells.markRows(BOARD_MIN_ROW, pieceBottomRow);
 		}
-		return false;
-		
+		else {
+			syncFallingPiece();
+		}
+		markFallingPieceDirty();
+		return true;
 	}
 	/**
-	 * This private helper function will save the state
-	 * of the board once the falling Tetrimino stops moving.
-	 * 
-	 * This function also restricts the size of the stack of game states.
-	 * @return Nothing
+	 * Getter for how many frames passed in runFrame()
+	 * since this Game was made. Paused frames don't count.
+	 * @return long frame count
 	 */
-	private void saveState() {
-		GameState currState = new GameState(this.board, this.fallingPiece);
-		
-		// remove the least recent game state (bottommost one)
-		if (stack.size() == MAX_STACK_SIZE)
-			stack.removeElementAt(0);
-		
-		stack.addElement(currState);
+	public long getFrameCount() {
+		return frameCount;
 	}
 	/**
-	 * This helper function finds rows which are filled
-	 * up and unlights them. Then, all lit blocks above
-	 * are moved down.
-	 * @return None
+	 * Getter for the seed of the piece sequence.
+	 * @return long seed the piece generator was last reset with
 	 */
-	private void checkForCompletedRows() {
-		int numFilledRowsUnder= 0;
-		
-		//Iterate upward through the rows.
-		for (int rowIter = BOARD_MAX_ROW - 1; rowIter > BOARD_MIN_ROW; rowIter--) {
-			//counts how many tiles are lit on one row.
-			int numLitTilesOnRow = Tile.numTilesLit(board[rowIter]);
-			
-			//short-circuit. There cannot possibly be any pieces further up the rows
-			if (numLitTilesOnRow == 0)
-				return;
-	
-			boolean isRowFilled = numLitTilesOnRow == NUM_ROW_TILES;
-			//All flled rows get eliminated.
-			if (isRowFilled) {
-				for (int colIter = BOARD_MIN_COL; colIter < BOARD_MAX_COL; colIter++) {
-					board[rowIter][colIter].setColor(Color.BLACK);
-				}
-				numFilledRowsUnder++;
-			}
-			//All lit blocks on non-filled rows above eliminated rows go down.
-			if (numFilledRowsUnder > 0 && isRowFilled == false) {
-				for (int colIter = BOARD_MIN_COL; colIter < BOARD_MAX_COL; colIter++) {
-					Tile movingTile = board[rowIter + numFilledRowsUnder][colIter];
-					//boolean wasOrigTileLit = board[rowIter][colIter].isLit();
-					Color origTileColor = board[rowIter][colIter].getColor();
-				
-					movingTile.setColor(origTileColor);
-					board[rowIter][colIter].setColor(Color.BLACK);
-				}
-			}
-		} //end rowIter for loop
+	public long getSeed() {
+		return engine.getGenerator().getSeed();
 	}
 	/**
-	 * This helper function edits the board by light and unlighting
-	 * certain tiles to animate a falling piece.
-	 * 
-	 * Notice through the other functions that once the piece
-	 * stops moving, its lit blocks do not disappear.
-	 * 
-	 * @param color Color to light the tile with
-	 */
-	private void lightUpFallingPiece(Color color) {
-		int[] currPiecePos = fallingPiece.getTetBlockCoords();
-		for (int i = 0; i < 8; i += 2) {
-			int row = currPiecePos[i];
-			int col = currPiecePos[i + 1];
-			
-			board[row][col].setColor(color);
+	 * This function moves the falling piece one col left right
+	 * away, instead of on the next time unit like translate() does.
+	 * @return true if the piece moved
+	 * 		   false if it didn't fit, or the game is paused or over
+	 */
+	public boolean moveLeft() {
+		if (paused || engine.isGameOver())
+			return false;
+		markFallingPieceDirty();
+		return pieceMoved(engine.moveLeft());
+	}
+	/**
+	 * This function moves the falling piece one col right right
+	 * away, instead of on the next time unit like translate() does.
+	 * @return true if the piece moved
+	 * 		   false if it didn't fit, or the game is paused or over
+	 */
+	public boolean moveRight() {
+		if (paused || engine.isGameOver())
+			return false;
+		markFallingPieceDirty();
+		return pieceMoved(engine.moveRight());
+	}
+	/**
+	 * This function rotates the falling piece clockwise right
+	 * away, instead of on the next time unit like rotate() does.
+	 * @return true if the piece rotated
+	 * 		   false if it didn't fit, or the game is paused or over
+	 */
+	public boolean rotate() {
+		if (paused || engine.isGameOver())
+			return false;
+		markFallingPieceDirty();
+		return pieceMoved(engine.rotate());
+	}
+	/**
+	 * This function makes the falling piece fall one row right away.
+	 * A piece that cannot fall stops on the next time unit, as usual.
+	 * @return true if the piece fell
+	 * 		   false if it couldn't, or the game is paused or over
+	 */
+	public boolean softDrop() {
+		if (paused || engine.isGameOver())
+			return false;
+		markFallingPieceDirty();
+		return pieceMoved(engine.softDrop());
+	}
+	/**
+	 * This helper function updates the falling piece member
+	 * and the dirty cells after an immediate move.
+	 * @param moved if the engine moved the piece
+	 * @return moved
+	 */
+	private boolean pieceMoved(boolean moved) {
+		if (moved) {
+			syncFallingPiece();
+			markFallingPieceDirty();
 		}
+		return moved;
 	}
 	/**
-	 * This helper function checks if the new translation and
-	 * rotation ordered by the Player wont run a part of the piece out of
-	 * the boundaries.
-	 * @return true if player move makes piece go out of bounds
-	 * 		   false otherwise
+	 * This function drops the falling piece straight down
+	 * to where it lands and stops it there, in one time unit
+	 * (see GameEngine.hardDrop()). The translation and rotation
+	 * set on the falling piece are ignored.
+	 * @return true if the piece was dropped
+	 * 		   false if it failed to (game is paused or over)
 	 */
-	private boolean pieceRunsOutOfBounds() {
-		//We have these values to reset fallingPiece to since we 
-		//are editing fallingPiece for out of bounds detection
-		int[] origTetPos = fallingPiece.getTetBlockCoords();
-		Move origMove = fallingPiece.getTranslation();
-		Rotate origRot = fallingPiece.getRotation();
-		int origOrientationNum = fallingPiece.getOrientationNum();
+	public boolean hardDrop() {
+		if (paused || engine.isGameOver())
+			return false;
+		saveState();
+		markFallingPieceDirty();
+		int landingRow = engine.getLandingRow();
+		int pieceBottomRow = landingRow + engine.getPieceShape().getMaxRowOffset();
+		dirtyCells.markBlocks(engine.getPieceShape().blockCoords(landingRow, engine.getPivotCol(), 
+																 scratchCoords));
+		int result = engine.hardDrop();
 		
-		//Check if the translations or rotations after the fall don't 
-		//make the piece run off the board.
-		int[] newTetPos = fallingPiece.fallingTetBlockCoords();
-		fallingPiece.setAllTetBlockCoords(newTetPos);
-		newTetPos = fallingPiece.translatedTetBlockCoords();
-		fallingPiece.setAllTetBlockCoords(newTetPos);
-		newTetPos = fallingPiece.rotatingTetBlockCoords();
+		fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
+		//Everything above cleared rows moved down.
+		if (GameEngine.linesCleared(result) > 0)
+			dirtyCells.markRows(BOARD_MIN_ROW, pieceBottomRow);
+		markFallingPieceDirty();
+		return true;
+	}
+	/**
+	 * This helper function turns the translation and rotation
+	 * the Player set on the falling piece into GameEngine input flags.
+	 * @return int combination of GameEngine's input flags
+	 */
+	private int playerInput() {
+		int input = GameEngine.NONE;
 		
-		boolean checker = false;
-		for (int i = 0; i < 8; i += 2) {
-			int newRow = newTetPos[i];
-			int newCol = newTetPos[i + 1];
-			if (newRow < BOARD_MIN_ROW || newRow >= BOARD_MAX_ROW 
-				|| newCol < BOARD_MIN_COL || newCol >= BOARD_MAX_COL)
-				checker = true;
-		}
-		//restore falling piece to its unedited form
-		fallingPiece.setAllMembersOfPiece(origTetPos, origMove, origRot, origOrientationNum);
-		return checker;
+		if (fallingPiece.getTranslation() == Move.LEFT)
+			input |= GameEngine.LEFT;
+		else if (fallingPiece.getTranslation() == Move.RIGHT)
+			input |= GameEngine.RIGHT;
+		if (fallingPiece.getRotation() == Rotate.CW)
+			input |= GameEngine.ROTATE;
+		return input;
 	}
 	/**
-	 * This helper function checks if the new translation and
-	 * rotation ordered by the Player (after the tickTock() ends)
-	 * is legal.
-	 * @return true if player move causes collision and is illegal
-	 * 		   false otherwise
+	 * This helper function marks the cells of the
+	 * engine's falling piece and of its ghost as dirty.
+	 * @return Nothing
+	 */
+	private void markFallingPieceDirty() {
+		dirtyCells.markBlocks(engine.getPieceShape().blockCoords(engine.getPivotRow(), 
+																 engine.getPivotCol(), scratchCoords));
+		dirtyCells.markBlocks(engine.getPieceShape().blockCoords(engine.getLandingRow(), 
+																 engine.getPivotCol(), scratchCoords));
+	}
+	/**
+	 * This helper function moves the falling piece member to
+	 * where the engine's falling piece is, and clears its
+	 * translation and rotation since the engine used them.
+	 * @return Nothing
+	 */
+	private void syncFallingPiece() {
+		int[] coords = engine.getPieceShape().blockCoords(engine.getPivotRow(), 
+														  engine.getPivotCol(), scratchCoords);
+		fallingPiece.setAllMembersOfPiece(coords, Move.NONE, Rotate.NONE, engine.getOrientation());
+	}
+	/**
+	 * This private helper function will save the state
+	 * of the board once the falling Tetrimino stops moving.
+	 * 
+	 * This function also restricts the size of the stack of game states.
+	 * @return Nothing
 	 */
-	private boolean playerInputCausesCollision() {
-		//We have these values to reset fallingPiece to since we 
-		//are editing fallingPiece for collision detection
-		int[] origTetPos = fallingPiece.getTetBlockCoords();
-		Move origMove = fallingPiece.getTranslation();
-		Rotate origRot = fallingPiece.getRotation();
-		int origOrientationNum = fallingPiece.getOrientationNum();
+	private void saveState() {
+		GameState currState = new GameState(engine.getBoard(), this.fallingPiece);
 		
-		//Emulate the translations and rotations the player wanted
-		int[] newTetPos = fallingPiece.fallingTetBlockCoords();
-		fallingPiece.setAllTetBlockCoords(newTetPos);
-		newTetPos = fallingPiece.translatedTetBlockCoords();
-		fallingPiece.setAllTetBlockCoords(newTetPos);
-		newTetPos = fallingPiece.rotatingTetBlockCoords();
-		fallingPiece.setAllTetBlockCoords(newTetPos);
-		newTetPos = fallingPiece.getTetBlockCoords();
+		// remove the least recent game state (bottommost one)
+		if (stack.size() == MAX_STACK_SIZE)
+			stack.removeElementAt(0);
 		
-		//Check if the translations or rotations are legal.
-		boolean checker = false;
-		for (int i = 0; i < 8; i += 2) {
-			int newRow = newTetPos[i];
-			int newCol = newTetPos[i + 1];
-			//if there is already a lit block to where the falling
-			//block wants to go, player input will cause collision.
-			if (board[newRow][newCol].isLit() == true) {
-				checker = true;
-				break;
-			}
-		}
-		//restore falling piece to its unedited form
-		fallingPiece.setAllMembersOfPiece(origTetPos, origMove, origRot, origOrientationNum);
-		return checker;
+		stack.addElement(currState);
 	}
 	/**
 	 * Modifies the board member to display a fail image.
@@ -364,36 +354,44 @@ public class Game {
 	 */
 	public void makeFailScreen() {
 		//Blacken the board
-		for (int row = 0; row < BOARD_MAX_ROW; row++) {
-			for (int col = 0; col < BOARD_MAX_COL; col++) {
-				board[row][col].setColor(Color.BLACK);
-			}
-		}
+		engine.endGame();
+		engine.getBoard().clear();
+		dirtyCells.markAll();
 		//Make "F"
-		board[1][4].setColor(Color.BLUE);
-		board[1][5].setColor(Color.BLUE);
-		board[2][4].setColor(Color.BLUE);
-		board[3][4].setColor(Color.BLUE);
+		paint(1, 4, Color.BLUE);
+		paint(1, 5, Color.BLUE);
+		paint(2, 4, Color.BLUE);
+		paint(3, 4, Color.BLUE);
 		//Make left half of "A"
-		board[5][3].setColor(Color.PINK);
-		board[6][3].setColor(Color.PINK);
-		board[6][4].setColor(Color.PINK);
-		board[7][3].setColor(Color.PINK);
+		paint(5, 3, Color.PINK);
+		paint(6, 3, Color.PINK);
+		paint(6, 4, Color.PINK);
+		paint(7, 3, Color.PINK);
 		//Make right half of "A"
-		board[5][4].setColor(Color.ORANGE);
-		board[5][5].setColor(Color.ORANGE);
-		board[6][5].setColor(Color.ORANGE);
-		board[7][5].setColor(Color.ORANGE);
+		paint(5, 4, Color.ORANGE);
+		paint(5, 5, Color.ORANGE);
+		paint(6, 5, Color.ORANGE);
+		paint(7, 5, Color.ORANGE);
 		//Make "I"
-		board[9][4].setColor(Color.CYAN);
-		board[10][4].setColor(Color.CYAN);
-		board[11][4].setColor(Color.CYAN);
-		board[12][4].setColor(Color.CYAN);
+		paint(9, 4, Color.CYAN);
+		paint(10, 4, Color.CYAN);
+		paint(11, 4, Color.CYAN);
+		paint(12, 4, Color.CYAN);
 		//Make "L"
-		board[14][4].setColor(Color.ORANGE);
-		board[15][4].setColor(Color.ORANGE);
-		board[16][4].setColor(Color.ORANGE);
-		board[16][5].setColor(Color.ORANGE);
+		paint(14, 4, Color.ORANGE);
+		paint(15, 4, Color.ORANGE);
+		paint(16, 4, Color.ORANGE);
+		paint(16, 5, Color.ORANGE);
+	}
+	/**
+	 * This helper function lights up one cell of the board.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @param color Color to light the cell with
+	 * @return Nothing
+	 */
+	private void paint(int row, int col, Color color) {
+		engine.getBoard().setColorCode(row, col, Tile.codeOfColor(color));
 	}
 	/**
 	 * Checker if the game is paused
@@ -412,75 +410,125 @@ public class Game {
 		paused = toPause;
 	}
 	/**
-	 * This saves the game to savefile.txt.
-	 * If savefile.txt doesn't exist, it is created.
+	 * This saves the game to the DEFAULT_SLOT of the SaveStore.
 	 * @return Nothing
 	 */
 	public void saveGame() {
-		//Use of a Board State to reset position of the falling piece
-		//for the save.
-		GameState toSave = new GameState(this.board, this.fallingPiece);
-		Tile[][] boardToSave = toSave.getSavedBoard();
-		Tetrimino pieceToSave = toSave.getSavedFallingPiece();
-		
-        try {
-        	//open savefile.txt for writing
-            FileWriter fileWriter = new FileWriter(FILENAME);
-            BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
+		saveGame(DEFAULT_SLOT);
+	}
+	/**
+	 * This saves the game to a slot of the SaveStore, in the binary
+	 * SaveFormat: the whole snapshot of the game (see snapshot()),
+	 * which is loaded right where it was left.
+	 * If the slot doesn't exist, it is created.
+	 * @param slot name of the slot (see SaveStore.isValidName())
+	 * @return Nothing
+	 */
+	public void saveGame(String slot) {
+		try {
+			getSaveStore().write(slot, encodeSave());
+		}
+		catch(IOException ex) {
+			System.out.println("Error writing to save '" + slot + "': " + ex.getMessage());
+		}
+	}
+	/**
+	 * This encodes the game as a save in memory, without writing it,
+	 * so it can be written later or on another thread (see SaveWriter).
+	 * The save is the whole snapshot of the game (see snapshot()).
+	 * @return ByteBuffer of the save, in the SaveFormat
+	 */
+	public ByteBuffer encodeSave() {
+		return SaveFormat.encode(snapshot());
+	}
+	/**
+	 * This takes a snapshot of the whole state of the game:
+	 * the board, the falling piece where it is, the undo history,
+	 * the state of the piece generator, the counters and the pause.
+	 * The saved GameStates of the undo history are shared, not copied,
+	 * since they never change.
+	 * @return GameSnapshot of the game
+	 */
+	public GameSnapshot snapshot() {
+		PieceGenerator generator = engine.getGenerator();
+		return new GameSnapshot(engine.getBoard(), engine.getPieceType(), engine.getOrientation(),
+								engine.getPivotRow(), engine.getPivotCol(), playerInput(),
+								engine.isGameOver(), paused, engine.getGravityProgress(),
+								engine.getTotalLinesCleared(), generator.getState(), stack);
+	}
+	/**
+	 * This brings the game back to exactly the state of a snapshot,
+	 * without replaying any input or frame. The piece generator is set
+	 * back to its saved state (see PieceGenerator.restore()), without
+	 * drawing its dealt types again. If the snapshot has no state of
+	 * its piece generator (a version 1 save), the game keeps its own.
+	 * @param snapshot GameSnapshot, from snapshot() or a save
+	 * @return Nothing
+	 * @throws IllegalArgumentException if the piece generator of the snapshot
+	 * 		   is of another kind than this game's, which is left as it was
+	 */
+	public void restore(GameSnapshot snapshot) {
+		engine.restore(snapshot);
+		paused = snapshot.isPaused();
+		stack.clear();
+		List<GameState> history = snapshot.getHistory();
+		stack.addAll(history.subList(Math.max(0, history.size() - MAX_STACK_SIZE), history.size()));
 
-            //saves board state to file
-            for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
-            	Tile[] boardRow = boardToSave[row];
-            	String stringRepOfRow = Tile.rowOfBoardToString(boardRow);
-            	
-            	bufferedWriter.write(stringRepOfRow);
-            	bufferedWriter.newLine();
-            }
-            //saves name of falling piece to file
-            bufferedWriter.write(pieceToSave.toString());
-            bufferedWriter.newLine();
-            //close savefile.txt
-            bufferedWriter.close();
-        }
-        catch(IOException ex) {
-            System.out.println("Error writing to file '" + FILENAME + "'");
-        }
-	}
-	/**
-	 * This loads a game from Tetris
+		fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
+		int[] coords = engine.getPieceShape().blockCoords(engine.getPivotRow(), 
+														  engine.getPivotCol(), scratchCoords);
+		int input = snapshot.getPendingInput();
+		Move translation = Move.NONE;
+		if ((input & GameEngine.LEFT) != 0)
+			translation = Move.LEFT;
+		else if ((input & GameEngine.RIGHT) != 0)
+			translation = Move.RIGHT;
+		Rotate rotation = (input & GameEngine.ROTATE) != 0 ? Rotate.CW : Rotate.NONE;
+		fallingPiece.setAllMembersOfPiece(coords, translation, rotation, engine.getOrientation());
+		dirtyCells.markAll();
+	}
+	/**
+	 * Static Function that returns the SaveStore games are
+	 * saved to and loaded from, opening it on the first call.
+	 * @return SaveStore of the save directory
+	 */
+	public static synchronized SaveStore getSaveStore() {
+		if (saveStore == null)
+			saveStore = SaveStore.open(Paths.get(SAVE_DIR));
+		return saveStore;
+	}
+	/**
+	 * This loads a game from the most recently saved slot.
 	 * @return Nothing
 	 */
 	public void loadGame() {
-        String line = null;
-
-        try {
-        	//open savefile.txt for reading
-            FileReader fileReader = new FileReader(FILENAME);
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
- 
-            //loads board row by row from string representation
-            //on savefile.txt
-            for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
-            	line = bufferedReader.readLine();
-            	Tile[] boardRow = Tile.stringToRowOfBoard(line);
-            	//Initialize baord member row by row.
-            	board[row] = boardRow;
-            }
-            //loads falling piece from string representation
-            //on savefile.txt
-            line = bufferedReader.readLine();
-            char charRepOfPiece = line.charAt(0);
-            fallingPiece = Tetrimino.charToTetrimino(charRepOfPiece);
-
-            //close savefile.txt
-            bufferedReader.close();            
-        }
-        catch(FileNotFoundException ex) {
-            System.out.println("Unable to open file '" + FILENAME + "'");                
-        }
-        catch(IOException ex) {
-            System.out.println("Error reading file '" + FILENAME + "'");
-        }
+		List<SaveSlot> slots = getSaveStore().list();
+		if (slots.isEmpty())
+			System.out.println("No saved game to load");
+		else
+			loadGame(slots.get(0).getName());
+	}
+	/**
+	 * This loads a game from a slot of the SaveStore, right
+	 * where it was saved (see restore()). A version 1 save only
+	 * has the board, so its falling piece starts from the top.
+	 * A save which is corrupted (see SaveFormat) isn't loaded.
+	 * @param slot name of the slot
+	 * @return Nothing
+	 */
+	public void loadGame(String slot) {
+		try {
+			restore(getSaveStore().readSnapshot(slot));
+		}
+		catch(NoSuchFileException ex) {
+			System.out.println("No save in slot '" + slot + "'");
+		}
+		catch(IOException ex) {
+			System.out.println("Error reading save '" + slot + "': " + ex.getMessage());
+		}
+		catch(IllegalArgumentException ex) {
+			System.out.println("Error loading save '" + slot + "': " + ex.getMessage());
+		}
 	}
 	/**
 	 * This undoes a move in the Tetris Game by reverting
@@ -497,17 +545,16 @@ public class Game {
 		GameState prevState = stack.lastElement();
 		stack.removeElementAt(stack.size() - 1);
 		
-		Tile[][] prevBoard = prevState.getSavedBoard();
+		Board prevBoard = prevState.getSavedBitboard();
 		Tetrimino prevPiece = prevState.getSavedFallingPiece();
 		
-		//Restores board to previous state
-		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
-			for (int col = BOARD_MIN_COL; col < BOARD_MAX_COL; col++) {
-				this.board[row][col] = prevBoard[row][col];
-			}
-		}
-		//Restores falling piece to previous state
-		this.fallingPiece = prevPiece;
+		//Restores board and falling piece to previous state.
+		//The saved piece may be shared by a GameSnapshot, so it
+		//isn't moved around: a new one mirrors the engine's.
+		engine.restore(prevBoard, prevPiece.getType());
+		fallingPiece = Tetrimino.typeToTetrimino(engine.getPieceType());
+		syncFallingPiece();
+		dirtyCells.markAll();
 		
 		return true;
 	}
@@ -521,11 +568,11 @@ public class Game {
 		return stack.isEmpty() == false;
 	}
 	/**
-	 * This function returns the gameover member.
-	 * @return boolean value of gameover member
+	 * This function returns if the game is over.
+	 * @return boolean value of the engine's gameover member
 	 */
 	public boolean isGameOver() {
-		return gameover;
+		return engine.isGameOver();
 	}
 	/**
 	 * This function returns the fallingPiece member.
@@ -537,38 +584,138 @@ public class Game {
 		return fallingPiece;
 	}
 	/**
-	 * This function returns the board member.
+	 * This function returns the board as Tiles, with the
+	 * falling piece lit up on top of the stopped pieces
+	 * (unless the game is over).
 	 * This return will allow the GUI to get a display
 	 * of the board and allow for deeper testing.
-	 * @return Tile[][] board member
+	 * 
+	 * The same Tile[][] is returned on every call, with its
+	 * colors refreshed from the engine.
+	 * @return Tile[][] view of the board
 	 */
 	public Tile[][] getBoard() {
-		return board;
+		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
+			for (int col = BOARD_MIN_COL; col < BOARD_MAX_COL; col++) {
+				tiles[row][col].setColor(Tile.colorOfCode(engine.getColorCode(row, col)));
+			}
+		}
+		if (engine.isGameOver() == false) {
+			int[] coords = engine.getPieceShape().blockCoords(engine.getPivotRow(), 
+															  engine.getPivotCol(), scratchCoords);
+			Color pieceColor = Tile.colorOfCode(GameEngine.colorCodeOf(engine.getPieceType()));
+			for (int i = 0; i < NUM_BLOCK_COORDS; i += 2) {
+				tiles[coords[i]][coords[i + 1]].setColor(pieceColor);
+			}
+		}
+		return tiles;
+	}
+	/**
+	 * Writes what getBoard() shows into a BoardSnapshot, as color
+	 * codes straight from the engine, without going through the Tiles,
+	 * along with the ghost of the falling piece (see getLandingRow()).
+	 * Every cell is written, and marked as changed (see
+	 * BoardSnapshot.getChangedMask()). Nothing is allocated.
+	 * @param snapshot BoardSnapshot of the board size to write into
+	 * @param frameNumber number of the frame the snapshot is of
+	 * @return Nothing
+	 */
+	public void writeSnapshot(BoardSnapshot snapshot, long frameNumber) {
+		writeCells(snapshot, null);
+		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++)
+			snapshot.setChangedMask(row, FULL_ROW_MASK);
+		snapshot.setFrameNumber(frameNumber);
+	}
+	/**
+	 * Writes some cells of what getBoard() shows into a BoardSnapshot,
+	 * like writeSnapshot() does, leaving the others as they are.
+	 * SnapshotWriter uses it to copy only the cells which changed.
+	 * Nothing is allocated.
+	 * @param snapshot BoardSnapshot of the board size to write into
+	 * @param rowMasks mask of the cells to write of every row, bit col
+	 * 		  set to write (row, col), or null to write every cell
+	 * @return Nothing
+	 */
+	void writeCells(BoardSnapshot snapshot, int[] rowMasks) {
+		for (int row = BOARD_MIN_ROW; row < BOARD_MAX_ROW; row++) {
+			int mask = rowMasks == null ? FULL_ROW_MASK : rowMasks[row];
+			for (int col = BOARD_MIN_COL; mask != 0; col++, mask >>>= 1) {
+				if ((mask & 1) != 0)
+					snapshot.setCellCode(row, col, engine.getColorCode(row, col));
+			}
+		}
+		if (engine.isGameOver() == false) {
+			int pieceCode = GameEngine.colorCodeOf(engine.getPieceType());
+			//The ghost goes first, so the piece is drawn over it where they meet.
+			int[] coords = engine.getPieceShape().blockCoords(getLandingRow(),
+															  engine.getPivotCol(), scratchCoords);
+			for (int i = 0; i < NUM_BLOCK_COORDS; i += 2) {
+				if (rowMasks == null || (rowMasks[coords[i]] & (1 << coords[i + 1])) != 0)
+					snapshot.setCellCode(coords[i], coords[i + 1], pieceCode | BoardSnapshot.GHOST_FLAG);
+			}
+			coords = engine.getPieceShape().blockCoords(engine.getPivotRow(),
+														engine.getPivotCol(), scratchCoords);
+			for (int i = 0; i < NUM_BLOCK_COORDS; i += 2) {
+				if (rowMasks == null || (rowMasks[coords[i]] & (1 << coords[i + 1])) != 0)
+					snapshot.setCellCode(coords[i], coords[i + 1], pieceCode);
+			}
+		}
+	}
+	/**
+	 * Getter for where the falling piece would land if it only fell
+	 * from now on, which is where its ghost is shown.
+	 * It comes from the col heights the engine keeps up to date,
+	 * so it only looks at the cols under the piece.
+	 * @return int pivot row of the landed piece
+	 */
+	public int getLandingRow() {
+		return engine.getLandingRow();
 	}
 	/**
-	 * Static Function that checks if we can load a game
-	 * by attempting to load savefile.txt.
+	 * Getter for how many cells of one row of stopped pieces
+	 * are filled, without looking at the Tiles.
+	 * @param row row of the board
+	 * @return int 0 to 10
+	 */
+	public int getRowFillCount(int row) {
+		return engine.getRowFillCount(row);
+	}
+	/**
+	 * Getter for the height of one col of stopped pieces,
+	 * without looking at the Tiles.
+	 * @param col col of the board
+	 * @return int how many rows its topmost filled cell is
+	 * 		   from the bottom of the board, 0 if the col is empty
+	 */
+	public int getColHeight(int col) {
+		return engine.getColHeight(col);
+	}
+	/**
+	 * Getter for the cells which changed, falling piece and ghost
+	 * included, since a SnapshotWriter last wrote a frame of the game.
+	 * It clears them once it wrote them.
+	 * @return DirtyCells member
+	 */
+	public DirtyCells getDirtyCells() {
+		return dirtyCells;
+	}
+	/**
+	 * This function returns the headless engine this game runs on,
+	 * for callers that only need the ints (bots, simulations).
+	 * @return GameEngine member
+	 */
+	public GameEngine getEngine() {
+		return engine;
+	}
+	/**
+	 * Static Function that checks if we can load a game by
+	 * checking that a slot was saved to. The index of the
+	 * SaveStore is in memory, so no file is opened.
 	 * @return true if load is possible.
 	 * 		   false otherwise.
 	 */
 	public static boolean canWeLoad() {
-        try {
-            //Open savefile.txt for reading.
-            FileReader fileReader = new FileReader(FILENAME);
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-
-            //If savefile.txt was opened, close it.
-            bufferedReader.close();  
-            return true;
-        }
-        catch(FileNotFoundException ex) {
-            //If savefile.txt doesn't exist, that means we didn't save.
-        	//So we cannot load a savefile that doesn't exist
-        	return false;
-        }
-        catch(IOException ex) {
-            System.out.println("Error reading file '" + FILENAME + "'");
-            return false;
-        }
+		//If no slot was saved to, there is nothing to load.
+		return getSaveStore().isEmpty() == false;
 	}
 }
@@ -0,0 +1,558 @@
+package game.tetris.lib;
+
+import game.tetris.lib.pieces.PieceGenerator;
+import game.tetris.lib.pieces.PieceShape;
+import game.tetris.lib.pieces.UniformPieceGenerator;
+
+import java.util.Random;
+
+/**
+ * GameEngine is the headless core of a Tetris Game.
+ *
+ * It runs the same rules as Game, but only on ints: a Board
+ * of stopped pieces plus the type, orientation and pivot
+ * (see PieceShape) of the falling piece. It never touches
+ * Tile, Tetrimino or any other class that loads AWT, so bots and
+ * simulations can run it on server JVMs.
+ *
+ * Pieces come from a PieceGenerator, uniform by default.
+ * A game is started with reset(seed) and driven with step(action),
+ * where action is a combination of the input flags LEFT, RIGHT and ROTATE.
+ * step() returns a compact int result: the number of lines cleared
+ * (see linesCleared()) plus the LOCKED and GAME_OVER flags.
+ *
+ * Real time play is driven with runFrame() instead, where the piece
+ * falls as fast as the GravityCurve says for the current level:
+ * from a row every few frames up to 20 rows in one frame.
+ *
+ * Game wraps a GameEngine to add the Tetrimino control, undo,
+ * pausing and saving used by the GUI.
+ *
+ * @author Rahul
+ *
+ */
+public class GameEngine {
+	//Input flags of step()
+	public static final int NONE = 0;
+	public static final int LEFT = 1;
+	public static final int RIGHT = 1 << 1;
+	public static final int ROTATE = 1 << 2;
+
+	//Result flags of step(). The low bits hold the lines cleared.
+	public static final int LINES_MASK = 0x7;
+	public static final int LOCKED = 1 << 3;
+	public static final int GAME_OVER = 1 << 4;
+
+	private Board board;
+	private PieceGenerator generator;
+
+	private int pieceType;
+	private int orientation;
+	private int pivotRow;
+	private int pivotCol;
+	private boolean gameover;
+
+	private GravityCurve gravityCurve;
+	//Fraction of a row fallen since the piece last fell, in GravityCurve.ROW units
+	private int gravityProgress;
+	private int totalLinesCleared;
+
+	/**
+	 * Constructs a GameEngine with a game already started
+	 * from a random seed.
+	 */
+	public GameEngine() {
+		this(new Random().nextLong());
+	}
+	/**
+	 * Constructs a GameEngine with a game already started.
+	 * @param seed seed of the random piece sequence
+	 */
+	public GameEngine(long seed) {
+		this(new UniformPieceGenerator(seed));
+	}
+	/**
+	 * Constructs a GameEngine with a game already started,
+	 * from the seed the generator was last reset with.
+	 * @param generator PieceGenerator picking the pieces, reset along with the game
+	 */
+	public GameEngine(PieceGenerator generator) {
+		board = new Board();
+		this.generator = generator;
+		gravityCurve = GravityCurve.STANDARD;
+		reset(generator.getSeed());
+	}
+	/**
+	 * Starts a new game: the board is emptied and
+	 * a first piece is put at the top.
+	 * The same seed always gives the same piece sequence.
+	 * @param seed seed of the random piece sequence
+	 * @return Nothing
+	 */
+	public void reset(long seed) {
+		generator.reset(seed);
+		board.clear();
+		gameover = false;
+		totalLinesCleared = 0;
+		putRandPiece();
+	}
+	/**
+	 * Runs one time unit of the game, like Game.tickTock().
+	 *
+	 * 1. If the falling piece cannot fall, it stops: it is written
+	 *    to the board, completed rows are cleared and a new
+	 *    random piece is put at the top.
+	 * 2. Otherwise, the input is applied if the fallen, translated
+	 *    and rotated piece is legal, and the piece falls one row.
+	 *
+	 * @param action combination of LEFT, RIGHT and ROTATE, or NONE
+	 * @return int result. linesCleared() of it is how many rows were
+	 * 		   cleared, and it has LOCKED set if the piece stopped
+	 * 		   and GAME_OVER set if the game is over.
+	 */
+	public int step(int action) {
+		if (gameover)
+			return GAME_OVER;
+		//Step 1
+		if (pieceStopsFalling()) {
+			PieceShape shape = PieceShape.of(pieceType, orientation);
+			lockPiece();
+			//Only the rows the piece stopped on can have become full.
+			int linesCleared = board.clearCompletedRows(pivotRow + shape.getMinRowOffset(),
+														pivotRow + shape.getMaxRowOffset());
+			totalLinesCleared += linesCleared;
+			putRandPiece();
+
+			return LOCKED | linesCleared | (gameover ? GAME_OVER : 0);
+		}
+		//Step 2
+		int newOrientation = orientation;
+		if ((action & ROTATE) != 0)
+			newOrientation = PieceShape.nextOrientation(pieceType, orientation);
+		int newPivotCol = pivotCol;
+		if ((action & LEFT) != 0)
+			newPivotCol--;
+		if ((action & RIGHT) != 0)
+			newPivotCol++;
+
+		if (fits(PieceShape.of(pieceType, newOrientation), pivotRow + 1, newPivotCol)) {
+			orientation = newOrientation;
+			pivotCol = newPivotCol;
+		}
+		pivotRow++;
+		return 0;
+	}
+	/**
+	 * Runs one frame of the game: the gravity of the current level
+	 * (see GravityCurve) is added up, and the falling piece falls
+	 * every whole row of it, like fall(gravityRowsDue()).
+	 * @return int result, like step()
+	 */
+	public int runFrame() {
+		return fall(gravityRowsDue());
+	}
+	/**
+	 * Adds one frame of gravity of the current level, and
+	 * takes the whole rows the piece must now fall out of it.
+	 * The rest is kept for the next frames, so gravity
+	 * below one row per frame adds up exactly.
+	 * @return int rows to fall this frame, up to GravityCurve.MAX_GRAVITY rows
+	 */
+	public int gravityRowsDue() {
+		if (gameover)
+			return 0;
+		gravityProgress += gravityCurve.getGravity(getLevel());
+		int rows = gravityProgress / GravityCurve.ROW;
+		gravityProgress -= rows * GravityCurve.ROW;
+		return rows;
+	}
+	/**
+	 * Makes the falling piece fall some rows at once.
+	 *
+	 * 1. If the falling piece cannot fall, it stops, like step().
+	 * 2. Otherwise, it falls the rows, but never past
+	 *    its landing row (see getLandingRow()).
+	 *
+	 * @param rows rows to fall, from gravityRowsDue(). Nothing happens if 0.
+	 * @return int result, like step()
+	 */
+	public int fall(int rows) {
+		if (gameover)
+			return GAME_OVER;
+		if (rows <= 0)
+			return 0;
+		//Step 1
+		if (pieceStopsFalling())
+			return step(NONE);
+		//Step 2
+		pivotRow = Math.min(pivotRow + rows, getLandingRow());
+		return 0;
+	}
+	/**
+	 * Moves the falling piece one col left right away,
+	 * if it fits there. Gravity isn't applied.
+	 * @return true if the piece moved
+	 * 		   false otherwise
+	 */
+	public boolean moveLeft() {
+		return tryMove(orientation, pivotRow, pivotCol - 1);
+	}
+	/**
+	 * Moves the falling piece one col right right away,
+	 * if it fits there. Gravity isn't applied.
+	 * @return true if the piece moved
+	 * 		   false otherwise
+	 */
+	public boolean moveRight() {
+		return tryMove(orientation, pivotRow, pivotCol + 1);
+	}
+	/**
+	 * Rotates the falling piece clockwise right away,
+	 * if it fits. Gravity isn't applied.
+	 * @return true if the piece rotated
+	 * 		   false otherwise
+	 */
+	public boolean rotate() {
+		return tryMove(PieceShape.nextOrientation(pieceType, orientation), pivotRow, pivotCol);
+	}
+	/**
+	 * Makes the falling piece fall one row right away,
+	 * if it can. A piece that cannot fall is not stopped here:
+	 * the next step() stops it, as usual.
+	 * @return true if the piece fell
+	 * 		   false otherwise
+	 */
+	public boolean softDrop() {
+		if (gameover || pieceStopsFalling())
+			return false;
+		pivotRow++;
+		return true;
+	}
+	/**
+	 * This helper function moves the falling piece
+	 * if it fits at the new place.
+	 * @param newOrientation orientation to move to
+	 * @param newPivotRow pivot row to move to
+	 * @param newPivotCol pivot col to move to
+	 * @return true if the piece moved
+	 * 		   false otherwise
+	 */
+	private boolean tryMove(int newOrientation, int newPivotRow, int newPivotCol) {
+		if (gameover || fits(PieceShape.of(pieceType, newOrientation), newPivotRow, newPivotCol) == false)
+			return false;
+		orientation = newOrientation;
+		pivotRow = newPivotRow;
+		pivotCol = newPivotCol;
+		return true;
+	}
+	/**
+	 * Drops the falling piece straight down to its landing row
+	 * (see getLandingRow()) and stops it there, as one step.
+	 * @return int result, like step()
+	 */
+	public int hardDrop() {
+		if (gameover)
+			return GAME_OVER;
+		pivotRow = getLandingRow();
+		return step(NONE);
+	}
+	/**
+	 * Finds the row the pivot of the falling piece would stop at
+	 * if it only fell from now on, from the col heights of the board.
+	 * @return int pivot row of the landed piece
+	 */
+	public int getLandingRow() {
+		return board.landingRow(PieceShape.of(pieceType, orientation), pivotRow, pivotCol);
+	}
+	/**
+	 * Static Function that decodes a result of step().
+	 * @param result int returned by step()
+	 * @return int how many rows were cleared
+	 */
+	public static int linesCleared(int result) {
+		return result & LINES_MASK;
+	}
+	/**
+	 * Static Function that decodes a result of step().
+	 * @param result int returned by step()
+	 * @return true if the falling piece stopped
+	 * 		   false otherwise
+	 */
+	public static boolean isLocked(int result) {
+		return (result & LOCKED) != 0;
+	}
+	/**
+	 * Static Function that decodes a result of step().
+	 * @param result int returned by step()
+	 * @return true if the game is over
+	 * 		   false otherwise
+	 */
+	public static boolean isGameOver(int result) {
+		return (result & GAME_OVER) != 0;
+	}
+	/**
+	 * Static Function that returns the Board color code
+	 * pieces of a Tetrimino type are drawn with.
+	 * @param type one of PieceShape's TYPE_ constants
+	 * @return int color code (see Tile)
+	 */
+	public static int colorCodeOf(int type) {
+		return type + 1;
+	}
+	/**
+	 * This helper function puts the generator's next
+	 * piece at the top of the board, and ends the game
+	 * if it cannot fall from there.
+	 * @return Nothing
+	 */
+	private void putRandPiece() {
+		putPiece(generator.next());
+
+		//This means the piece cannot fall from
+		//its initial position, ending the game.
+		if (pieceStopsFalling())
+			gameover = true;
+	}
+	/**
+	 * This helper function makes a piece of a type the
+	 * falling piece, at the top of the board.
+	 * @param type one of PieceShape's TYPE_ constants
+	 * @return Nothing
+	 */
+	private void putPiece(int type) {
+		pieceType = type;
+		orientation = 0;
+		pivotRow = PieceShape.spawnRow(type);
+		pivotCol = PieceShape.spawnCol(type);
+		//A new piece starts falling from a whole row.
+		gravityProgress = 0;
+	}
+	/**
+	 * This function checks the cells one row down from
+	 * the falling piece against the occupancy masks of the board.
+	 * Cells which are part of the falling piece itself don't count,
+	 * which only matters for a piece put on top of stopped pieces.
+	 * If it returns true, the next step() locks the piece.
+	 * @return true if piece should stop falling.
+	 *         false otherwise
+	 */
+	public boolean pieceStopsFalling() {
+		PieceShape shape = PieceShape.of(pieceType, orientation);
+		int topRow = pivotRow + shape.getMinRowOffset();
+		int shift = pivotCol + shape.getMinColOffset();
+
+		//check if the piece's next one-row-fall goes past the bottom
+		if (topRow + shape.getHeight() >= Board.NUM_ROWS)
+			return true;
+		//check if the piece's next one-row-fall goes into a filled cell.
+		for (int i = 0; i < shape.getHeight(); i++) {
+			int fallenMask = shape.getRowMask(i) << shift;
+			int ownMask = 0;
+			if (i + 1 < shape.getHeight())
+				ownMask = shape.getRowMask(i + 1) << shift;
+
+			if ((board.getRowMask(topRow + i + 1) & fallenMask & ~ownMask) != 0)
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * This helper function checks if a shape is on the board
+	 * and doesn't overlap stopped pieces.
+	 * @param shape PieceShape to check
+	 * @param newPivotRow row of the pivot of the shape
+	 * @param newPivotCol col of the pivot of the shape
+	 * @return true if the shape fits there
+	 * 		   false otherwise
+	 */
+	private boolean fits(PieceShape shape, int newPivotRow, int newPivotCol) {
+		return shape.isInBounds(newPivotRow, newPivotCol, Board.NUM_ROWS, Board.NUM_COLS)
+			&& board.collides(shape, newPivotRow, newPivotCol) == false;
+	}
+	/**
+	 * This helper function writes the falling piece's blocks
+	 * to the board.
+	 * @return Nothing
+	 */
+	private void lockPiece() {
+		PieceShape shape = PieceShape.of(pieceType, orientation);
+		int colorCode = colorCodeOf(pieceType);
+
+		for (int i = 0; i < 8; i += 2) {
+			board.setColorCode(pivotRow + shape.getBlockOffset(i),
+							   pivotCol + shape.getBlockOffset(i + 1), colorCode);
+		}
+	}
+	/**
+	 * Restores the engine to a board of stopped pieces with a
+	 * piece of a type at the top. Used for undo and load.
+	 * @param stoppedPieces Board to copy, without the falling piece
+	 * @param type one of PieceShape's TYPE_ constants
+	 * @return Nothing
+	 */
+	void restore(Board stoppedPieces, int type) {
+		board.copyFrom(stoppedPieces);
+		putPiece(type);
+	}
+	/**
+	 * Restores the engine to exactly the state of a GameSnapshot:
+	 * the board, the falling piece where it was, the gravity and
+	 * line counters and, if the snapshot has it, the generator.
+	 * @param snapshot GameSnapshot to restore
+	 * @return Nothing
+	 * @throws IllegalArgumentException if the generator of the snapshot is of
+	 * 		   another kind than this engine's, or its state is impossible;
+	 * 		   the engine is left as it was
+	 */
+	void restore(GameSnapshot snapshot) {
+		//Checks the state of the generator before anything changes.
+		if (snapshot.getGeneratorState() != null)
+			generator.restore(snapshot.getGeneratorState());
+		board.copyFrom(snapshot.getBoard());
+		pieceType = snapshot.getPieceType();
+		orientation = snapshot.getOrientation();
+		pivotRow = snapshot.getPivotRow();
+		pivotCol = snapshot.getPivotCol();
+		gameover = snapshot.isGameOver();
+		gravityProgress = snapshot.getGravityProgress();
+		totalLinesCleared = snapshot.getTotalLinesCleared();
+	}
+	/**
+	 * Ends the game. Used when the fail screen is shown.
+	 * @return Nothing
+	 */
+	void endGame() {
+		gameover = true;
+	}
+	/**
+	 * Getter for the board of stopped pieces.
+	 * Game uses it to draw the fail screen and to save.
+	 * @return Board member
+	 */
+	Board getBoard() {
+		return board;
+	}
+	/**
+	 * Checker if the game is over
+	 * @return boolean value of gameover member
+	 */
+	public boolean isGameOver() {
+		return gameover;
+	}
+	/**
+	 * Getter for the occupancy mask of one row of stopped pieces.
+	 * @param row row of the board
+	 * @return int where bit col is set iff (row, col) is filled
+	 */
+	public int getRowMask(int row) {
+		return board.getRowMask(row);
+	}
+	/**
+	 * Getter for how many cells of one row of stopped pieces are filled.
+	 * @param row row of the board
+	 * @return int 0 to Board.NUM_COLS
+	 */
+	public int getRowFillCount(int row) {
+		return board.getRowFillCount(row);
+	}
+	/**
+	 * Getter for the height of one col of stopped pieces.
+	 * @param col col of the board
+	 * @return int how many rows its topmost filled cell is
+	 * 		   from the bottom of the board, 0 if the col is empty
+	 */
+	public int getColHeight(int col) {
+		return board.getColHeight(col);
+	}
+	/**
+	 * Getter for the color code of one cell of stopped pieces.
+	 * @param row row of the cell
+	 * @param col col of the cell
+	 * @return int color code (see Tile), Board.EMPTY if it isn't filled
+	 */
+	public int getColorCode(int row, int col) {
+		return board.getColorCode(row, col);
+	}
+	/**
+	 * Getter for how many lines were cleared since the game started.
+	 * @return int total lines cleared
+	 */
+	public int getTotalLinesCleared() {
+		return totalLinesCleared;
+	}
+	/**
+	 * Getter for the level of the game, which goes up
+	 * every GravityCurve.LINES_PER_LEVEL cleared lines.
+	 * @return int level, from 0
+	 */
+	public int getLevel() {
+		return GravityCurve.levelOf(totalLinesCleared);
+	}
+	/**
+	 * Getter for the fraction of a row the falling piece fell
+	 * since it last fell a whole row. Game uses it to snapshot.
+	 * @return int from 0 to GravityCurve.ROW - 1
+	 */
+	int getGravityProgress() {
+		return gravityProgress;
+	}
+	/**
+	 * Getter for the gravity curve runFrame() uses.
+	 * @return GravityCurve member
+	 */
+	public GravityCurve getGravityCurve() {
+		return gravityCurve;
+	}
+	/**
+	 * Setter for the gravity curve runFrame() uses.
+	 * The game itself goes on unchanged.
+	 * @param gravityCurve GravityCurve to use from now on
+	 * @return Nothing
+	 */
+	public void setGravityCurve(GravityCurve gravityCurve) {
+		this.gravityCurve = gravityCurve;
+	}
+	/**
+	 * Getter for the type of the falling piece.
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	public int getPieceType() {
+		return pieceType;
+	}
+	/**
+	 * Getter for the orientation of the falling piece.
+	 * @return int orientation number (see PieceShape)
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
+	/**
+	 * Getter for the pivot row of the falling piece.
+	 * @return int row of the pivot
+	 */
+	public int getPivotRow() {
+		return pivotRow;
+	}
+	/**
+	 * Getter for the pivot col of the falling piece.
+	 * @return int col of the pivot
+	 */
+	public int getPivotCol() {
+		return pivotCol;
+	}
+	/**
+	 * Getter for the generator of the pieces,
+	 * to preview the upcoming ones with peek().
+	 * @return PieceGenerator member
+	 */
+	public PieceGenerator getGenerator() {
+		return generator;
+	}
+	/**
+	 * Getter for the shape of the falling piece.
+	 * @return PieceShape of the falling piece
+	 */
+	public PieceShape getPieceShape() {
+		return PieceShape.of(pieceType, orientation);
+	}
+}
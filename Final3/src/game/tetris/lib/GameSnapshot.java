@@ -0,0 +1,159 @@
+package game.tetris.lib;
+
+import game.tetris.lib.pieces.GeneratorState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * GameSnapshot is the whole state of a Tetris Game at one
+ * moment, as taken by Game.snapshot(): restoring it with
+ * Game.restore() gives back exactly the game that was left,
+ * to the row the falling piece was at and the pieces to come.
+ *
+ * It holds the board of stopped pieces, the falling piece with
+ * its orientation, pivot and the input set on it for the next
+ * time unit, the undo history, the state of the PieceGenerator
+ * (see PieceGenerator.getState()), the gravity and line counters,
+ * and whether the game is paused or over.
+ *
+ * Instances are immutable. See SaveFormat for how they are saved.
+ *
+ * @author Rahul
+ *
+ */
+public class GameSnapshot {
+	private final Board board;
+	private final int pieceType;
+	private final int orientation;
+	private final int pivotRow;
+	private final int pivotCol;
+	private final int pendingInput;
+	private final boolean gameOver;
+	private final boolean paused;
+	private final int gravityProgress;
+	private final int totalLinesCleared;
+	private final GeneratorState generatorState;
+	private final List<GameState> history;
+
+	/**
+	 * Constructor of a GameSnapshot.
+	 * @param board Board of the stopped pieces, which is copied
+	 * @param pieceType type of the falling piece, one of PieceShape's TYPE_ constants
+	 * @param orientation orientation of the falling piece
+	 * @param pivotRow pivot row of the falling piece
+	 * @param pivotCol pivot col of the falling piece
+	 * @param pendingInput GameEngine input flags set on the falling piece
+	 * 		  for the next time unit (see Game.tickTock())
+	 * @param gameOver if the game is over
+	 * @param paused if the game is paused
+	 * @param gravityProgress fraction of a row fallen, in GravityCurve.ROW units
+	 * @param totalLinesCleared lines cleared since the game started
+	 * @param generatorState GeneratorState of the PieceGenerator, or null if unknown
+	 * @param history undo history, the oldest GameState first
+	 */
+	GameSnapshot(Board board, int pieceType, int orientation, int pivotRow, int pivotCol,
+				 int pendingInput, boolean gameOver, boolean paused, int gravityProgress,
+				 int totalLinesCleared, GeneratorState generatorState, List<GameState> history) {
+		this.board = new Board(board);
+		this.pieceType = pieceType;
+		this.orientation = orientation;
+		this.pivotRow = pivotRow;
+		this.pivotCol = pivotCol;
+		this.pendingInput = pendingInput;
+		this.gameOver = gameOver;
+		this.paused = paused;
+		this.gravityProgress = gravityProgress;
+		this.totalLinesCleared = totalLinesCleared;
+		this.generatorState = generatorState;
+		this.history = Collections.unmodifiableList(new ArrayList<GameState>(history));
+	}
+	/**
+	 * Getter for the board of stopped pieces.
+	 * It must not be changed.
+	 * @return Board without the falling piece
+	 */
+	Board getBoard() {
+		return board;
+	}
+	/**
+	 * Getter for the type of the falling piece.
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	public int getPieceType() {
+		return pieceType;
+	}
+	/**
+	 * Getter for the orientation of the falling piece.
+	 * @return int orientation number (see PieceShape)
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
+	/**
+	 * Getter for the pivot row of the falling piece.
+	 * @return int row of the pivot
+	 */
+	public int getPivotRow() {
+		return pivotRow;
+	}
+	/**
+	 * Getter for the pivot col of the falling piece.
+	 * @return int col of the pivot
+	 */
+	public int getPivotCol() {
+		return pivotCol;
+	}
+	/**
+	 * Getter for the input set on the falling piece
+	 * for the next time unit.
+	 * @return int combination of GameEngine's input flags
+	 */
+	public int getPendingInput() {
+		return pendingInput;
+	}
+	/**
+	 * Checker if the game is over.
+	 * @return boolean
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+	/**
+	 * Checker if the game is paused.
+	 * @return boolean
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+	/**
+	 * Getter for the fraction of a row the falling piece fell.
+	 * @return int from 0 to GravityCurve.ROW - 1
+	 */
+	public int getGravityProgress() {
+		return gravityProgress;
+	}
+	/**
+	 * Getter for how many lines were cleared since the game started.
+	 * @return int total lines cleared
+	 */
+	public int getTotalLinesCleared() {
+		return totalLinesCleared;
+	}
+	/**
+	 * Getter for the state of the PieceGenerator.
+	 * @return GeneratorState, or null if the snapshot
+	 * 		   doesn't have the state of its generator
+	 */
+	public GeneratorState getGeneratorState() {
+		return generatorState;
+	}
+	/**
+	 * Getter for the undo history.
+	 * @return List of GameStates, the oldest first, which can't be changed
+	 */
+	public List<GameState> getHistory() {
+		return history;
+	}
+}
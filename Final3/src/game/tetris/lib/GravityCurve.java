@@ -0,0 +1,98 @@
+package game.tetris.lib;
+
+/**
+ * GravityCurve gives how fast the falling piece falls
+ * at each level of a Tetris Game.
+ *
+ * Gravity is measured in fixed point rows per frame: ROW is
+ * one row every frame (1G), ROW / 30 one row every 30 frames,
+ * and MAX_GRAVITY twenty rows every frame (20G), which puts
+ * any piece on the stack in a single frame.
+ * At FRAMES_PER_SECOND, 20G is a row every 0.83 milliseconds.
+ *
+ * The level goes up every LINES_PER_LEVEL cleared lines.
+ * Levels past the last one of the curve keep its gravity.
+ *
+ * Instances are immutable.
+ *
+ * @author Rahul
+ *
+ */
+public class GravityCurve {
+	public static final int ROW = 1 << 16;
+	public static final int MAX_GRAVITY = 20 * ROW;
+	public static final int FRAMES_PER_SECOND = 60;
+	public static final int LINES_PER_LEVEL = 10;
+
+	//From one row every 30 frames (every 500 ms) at level 0 to 20G at level 20
+	private static final int STANDARD_LEVELS = 21;
+	public static final GravityCurve STANDARD = standardCurve();
+
+	private final int[] gravityByLevel;
+
+	/**
+	 * Constructor of a GravityCurve.
+	 * @param gravityByLevel gravity of each level, from level 0.
+	 * 						 Each one must be from 1 to MAX_GRAVITY.
+	 */
+	public GravityCurve(int[] gravityByLevel) {
+		if (gravityByLevel.length == 0)
+			throw new IllegalArgumentException("A gravity curve needs at least one level");
+		for (int level = 0; level < gravityByLevel.length; level++) {
+			if (gravityByLevel[level] < 1 || gravityByLevel[level] > MAX_GRAVITY)
+				throw new IllegalArgumentException("Gravity of level " + level + " out of range: "
+												   + gravityByLevel[level]);
+		}
+		this.gravityByLevel = gravityByLevel.clone();
+	}
+	/**
+	 * Static Function that builds the standard curve: gravity grows
+	 * by the same ratio every level, from one row every 30 frames
+	 * to MAX_GRAVITY. StrictMath keeps it the same on every JVM.
+	 * @return GravityCurve of STANDARD_LEVELS levels
+	 */
+	private static GravityCurve standardCurve() {
+		int[] gravity = new int[STANDARD_LEVELS];
+		double first = ROW / 30.0;
+		double ratio = StrictMath.pow(MAX_GRAVITY / first, 1.0 / (STANDARD_LEVELS - 1));
+
+		for (int level = 0; level < STANDARD_LEVELS - 1; level++)
+			gravity[level] = (int)StrictMath.round(first * StrictMath.pow(ratio, level));
+		gravity[STANDARD_LEVELS - 1] = MAX_GRAVITY;
+		return new GravityCurve(gravity);
+	}
+	/**
+	 * Static Function that converts a falling speed to gravity.
+	 * @param rowsPerSecond rows fallen every second, at FRAMES_PER_SECOND
+	 * @return int gravity, from 1 to MAX_GRAVITY
+	 */
+	public static int fromRowsPerSecond(double rowsPerSecond) {
+		long gravity = Math.round(rowsPerSecond * ROW / FRAMES_PER_SECOND);
+		return (int)Math.max(1, Math.min(MAX_GRAVITY, gravity));
+	}
+	/**
+	 * Static Function that gives the level reached
+	 * after some cleared lines.
+	 * @param linesCleared lines cleared since the start of the game
+	 * @return int level, from 0
+	 */
+	public static int levelOf(int linesCleared) {
+		return linesCleared / LINES_PER_LEVEL;
+	}
+	/**
+	 * Getter for the gravity of a level.
+	 * @param level level, from 0
+	 * @return int gravity, in ROW units per frame
+	 */
+	public int getGravity(int level) {
+		return gravityByLevel[Math.min(level, gravityByLevel.length - 1)];
+	}
+	/**
+	 * Getter for how many levels the curve has before
+	 * the gravity stops changing.
+	 * @return int number of levels
+	 */
+	public int getNumLevels() {
+		return gravityByLevel.length;
+	}
+}
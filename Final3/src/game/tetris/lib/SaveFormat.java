@@ -0,0 +1,512 @@
+package game.tetris.lib;
+
+import game.tetris.lib.pieces.GeneratorState;
+import game.tetris.lib.pieces.PieceGenerator;
+import game.tetris.lib.pieces.PieceShape;
+import game.tetris.lib.pieces.Tetrimino;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * SaveFormat is the binary format a Tetris Game is saved in.
+ *
+ * A version 2 save (see encode(GameSnapshot)) holds the whole
+ * GameSnapshot of a game, so it is loaded right where it was left:
+ *
+ *   magic      4 bytes  "TTRS"
+ *   version    1 byte   2
+ *   numRows    1 byte
+ *   numCols    1 byte
+ *   pieceType  1 byte   one of PieceShape's TYPE_ constants
+ *   piece      orientation, pivot row and pivot col (1 byte each),
+ *              then 1 byte of flags: the pending input (GameEngine's
+ *              input flags), GAME_OVER_FLAG and PAUSED_FLAG
+ *   counters   gravity progress and total lines cleared (4 bytes each)
+ *   generator  state of the PieceGenerator (see GeneratorState): its kind
+ *              (1 byte, see PieceGenerator.getKind()), seed, dealt count
+ *              and random state (8 bytes each), then extra state (4 bytes)
+ *   rows       count (1 byte), then every distinct row of the boards,
+ *              4 bytes each: the color codes (see Tile) of its cells,
+ *              3 bits each from the lowest bit up
+ *   board      for every row, the index of its distinct row (1 byte)
+ *   history    count (1 byte), then for every undo GameState, the
+ *              oldest first, its piece type (1 byte) and board
+ *   crc        4 bytes  CRC-32 of everything before it
+ *
+ * Boards are lists of rows into the table of distinct rows, which they
+ * all share: the undo history mostly holds the same rows as the board,
+ * so each GameState of it takes little more than one byte per row.
+ * Only the newest MAX_HISTORY GameStates of the history are saved.
+ *
+ * A version 1 save (see encode(Board, int)) holds the board and
+ * the type of the falling piece, which starts from the top when
+ * loaded, with the cells packed 3 bits each after the header:
+ *
+ *   header     the 8 bytes above, with version 1
+ *   cells      3 bits per cell, the color code of every
+ *              cell row by row, packed from the lowest bit up
+ *   crc        4 bytes  CRC-32 of everything before it
+ *
+ * All numbers are big endian. The 20x10 board takes 87 bytes.
+ * Saves are read and written whole, through NIO channels, and a
+ * save file is only ever replaced atomically (see write()).
+ *
+ * @author Rahul
+ *
+ */
+public class SaveFormat {
+	public static final int VERSION = 2;
+	//Version of the saves of encode(Board, int)
+	public static final int BOARD_VERSION = 1;
+	public static final int MAX_HISTORY = 8;
+	//Flags of the flags byte of a version 2 save, above the pending input
+	public static final int GAME_OVER_FLAG = 1 << 3;
+	public static final int PAUSED_FLAG = 1 << 4;
+	//"TTRS"
+	private static final int MAGIC = 0x54545253;
+	private static final int BITS_PER_CELL = 3;
+	private static final int CELL_MASK = (1 << BITS_PER_CELL) - 1;
+	private static final int INPUT_MASK = GameEngine.LEFT | GameEngine.RIGHT | GameEngine.ROTATE;
+	private static final int HEADER_SIZE = 8;
+	//Piece, counters and generator of a version 2 save
+	private static final int STATE_SIZE = 4 + 8 + 1 + 24 + 4;
+	private static final int CRC_SIZE = 4;
+
+	/**
+	 * Private Constructor, SaveFormat only has static functions.
+	 */
+	private SaveFormat() {
+	}
+	/**
+	 * Static Function that gives the size of a version 1 save of a board size.
+	 * @param numRows how many rows the board has
+	 * @param numCols how many cols the board has
+	 * @return int size in bytes
+	 */
+	public static int sizeOf(int numRows, int numCols) {
+		return HEADER_SIZE + (numRows * numCols * BITS_PER_CELL + 7) / 8 + CRC_SIZE;
+	}
+	/**
+	 * Static Function that gives the biggest size a save can have,
+	 * a version 2 save of a full history with no rows in common.
+	 * @return int size in bytes
+	 */
+	public static int maxSize() {
+		int numBoards = 1 + MAX_HISTORY;
+		return HEADER_SIZE + STATE_SIZE + 1 + numBoards * Board.NUM_ROWS * 4 
+			   + Board.NUM_ROWS + 1 + MAX_HISTORY * (1 + Board.NUM_ROWS) + CRC_SIZE;
+	}
+	/**
+	 * Static Function that encodes a version 2 save of a whole game.
+	 * @param snapshot GameSnapshot of the game (see Game.snapshot()),
+	 * 		  with the state of its generator
+	 * @return ByteBuffer of the save, ready to be read from
+	 */
+	public static ByteBuffer encode(GameSnapshot snapshot) {
+		List<GameState> history = snapshot.getHistory();
+		history = history.subList(Math.max(0, history.size() - MAX_HISTORY), history.size());
+
+		//Every distinct row, in the order they are first met.
+		Map<Integer, Integer> rowIndex = new HashMap<Integer, Integer>();
+		List<Integer> rows = new ArrayList<Integer>();
+		byte[] boardRows = indexRows(snapshot.getBoard(), rowIndex, rows);
+		byte[][] historyRows = new byte[history.size()][];
+		for (int i = 0; i < history.size(); i++)
+			historyRows[i] = indexRows(history.get(i).getSavedBitboard(), rowIndex, rows);
+
+		ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + STATE_SIZE + 1 + rows.size() * 4 + Board.NUM_ROWS 
+											   + 1 + history.size() * (1 + Board.NUM_ROWS) + CRC_SIZE);
+		putHeader(bytes, VERSION, snapshot.getPieceType());
+		bytes.put((byte)snapshot.getOrientation());
+		bytes.put((byte)snapshot.getPivotRow());
+		bytes.put((byte)snapshot.getPivotCol());
+		bytes.put((byte)((snapshot.getPendingInput() & INPUT_MASK)
+						 | (snapshot.isGameOver() ? GAME_OVER_FLAG : 0)
+						 | (snapshot.isPaused() ? PAUSED_FLAG : 0)));
+		bytes.putInt(snapshot.getGravityProgress());
+		bytes.putInt(snapshot.getTotalLinesCleared());
+		GeneratorState generator = snapshot.getGeneratorState();
+		bytes.put((byte)generator.getKind());
+		bytes.putLong(generator.getSeed());
+		bytes.putLong(generator.getDealt());
+		bytes.putLong(generator.getRandomState());
+		bytes.putInt(generator.getExtraState());
+
+		bytes.put((byte)rows.size());
+		for (int row : rows)
+			bytes.putInt(row);
+		bytes.put(boardRows);
+		bytes.put((byte)history.size());
+		for (int i = 0; i < history.size(); i++) {
+			bytes.put((byte)history.get(i).getSavedFallingPiece().getType());
+			bytes.put(historyRows[i]);
+		}
+		return finish(bytes);
+	}
+	/**
+	 * Static Function that encodes a version 1 save, of the board
+	 * only: the falling piece starts from the top when it is loaded.
+	 * @param board Board of the stopped pieces
+	 * @param pieceType type of the falling piece, one of PieceShape's TYPE_ constants
+	 * @return ByteBuffer of the save, ready to be read from
+	 */
+	public static ByteBuffer encode(Board board, int pieceType) {
+		ByteBuffer bytes = ByteBuffer.allocate(sizeOf(Board.NUM_ROWS, Board.NUM_COLS));
+		putHeader(bytes, BOARD_VERSION, pieceType);
+
+		//Cells go into bits, 8 at a time into the bytes.
+		long bits = 0;
+		int numBits = 0;
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				bits |= (long)board.getColorCode(row, col) << numBits;
+				numBits += BITS_PER_CELL;
+				while (numBits >= 8) {
+					bytes.put((byte)bits);
+					bits >>>= 8;
+					numBits -= 8;
+				}
+			}
+		}
+		if (numBits > 0)
+			bytes.put((byte)bits);
+		return finish(bytes);
+	}
+	/**
+	 * This helper function writes the header every save starts with.
+	 * @param bytes ByteBuffer to write to
+	 * @param version version of the save
+	 * @param pieceType type of the falling piece
+	 * @return Nothing
+	 */
+	private static void putHeader(ByteBuffer bytes, int version, int pieceType) {
+		bytes.putInt(MAGIC);
+		bytes.put((byte)version);
+		bytes.put((byte)Board.NUM_ROWS);
+		bytes.put((byte)Board.NUM_COLS);
+		bytes.put((byte)pieceType);
+	}
+	/**
+	 * This helper function ends a save with the CRC of all of it.
+	 * @param bytes ByteBuffer of the save, full but for the CRC
+	 * @return bytes, ready to be read from
+	 */
+	private static ByteBuffer finish(ByteBuffer bytes) {
+		bytes.putInt((int)crcOf(bytes.array(), bytes.position()));
+		bytes.flip();
+		return bytes;
+	}
+	/**
+	 * This helper function adds the rows of a board to the
+	 * table of distinct rows, and lists where they are in it.
+	 * @param board Board to add
+	 * @param rowIndex index in rows of every distinct row, updated
+	 * @param rows distinct rows, packed (see packRow()), updated
+	 * @return byte[] index of every row of the board
+	 */
+	private static byte[] indexRows(Board board, Map<Integer, Integer> rowIndex, List<Integer> rows) {
+		byte[] indexes = new byte[Board.NUM_ROWS];
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			int packed = packRow(board, row);
+			Integer index = rowIndex.get(packed);
+			if (index == null) {
+				index = rows.size();
+				rowIndex.put(packed, index);
+				rows.add(packed);
+			}
+			indexes[row] = (byte)(int)index;
+		}
+		return indexes;
+	}
+	/**
+	 * This helper function packs the color codes of a row into an int.
+	 * @param board Board of the row
+	 * @param row row to pack
+	 * @return int with 3 bits per cell, col 0 in the lowest bits
+	 */
+	private static int packRow(Board board, int row) {
+		int packed = 0;
+		for (int col = 0; col < Board.NUM_COLS; col++)
+			packed |= board.getColorCode(row, col) << (col * BITS_PER_CELL);
+		return packed;
+	}
+	/**
+	 * Static Function that decodes the board and the falling
+	 * piece of a save of any version.
+	 * @param bytes ByteBuffer of the save, from its position to its limit
+	 * @return GameState with the saved board of stopped pieces,
+	 * 		   and the saved falling piece at the top
+	 * @throws IOException if the save isn't one of this format,
+	 * 		   or doesn't match its CRC
+	 */
+	public static GameState decode(ByteBuffer bytes) throws IOException {
+		GameSnapshot snapshot = decodeSnapshot(bytes);
+		return new GameState(snapshot.getBoard(), Tetrimino.typeToTetrimino(snapshot.getPieceType()));
+	}
+	/**
+	 * Static Function that decodes the whole GameSnapshot of a save.
+	 * A version 1 save gives a snapshot with its falling piece at the
+	 * top, no history and no state of its generator.
+	 * @param bytes ByteBuffer of the save, from its position to its limit
+	 * @return GameSnapshot of the save
+	 * @throws IOException if the save isn't one of this format,
+	 * 		   doesn't match its CRC or has an impossible state
+	 */
+	public static GameSnapshot decodeSnapshot(ByteBuffer bytes) throws IOException {
+		if (bytes.remaining() < HEADER_SIZE + CRC_SIZE)
+			throw new IOException("Save is too short: " + bytes.remaining() + " bytes");
+		int start = bytes.position();
+		CRC32 crc = new CRC32();
+		ByteBuffer checked = bytes.duplicate();
+		checked.limit(bytes.limit() - CRC_SIZE);
+		crc.update(checked);
+
+		if (bytes.getInt() != MAGIC)
+			throw new IOException("Not a save file");
+		int version = bytes.get();
+		if (version < BOARD_VERSION || version > VERSION)
+			throw new IOException("Unknown save version " + version);
+		int numRows = bytes.get() & 0xFF;
+		int numCols = bytes.get() & 0xFF;
+		if (numRows != Board.NUM_ROWS || numCols != Board.NUM_COLS)
+			throw new IOException("Save is of a " + numRows + "x" + numCols + " board");
+		int pieceType = bytes.get();
+		if (pieceType < 0 || pieceType >= PieceShape.NUM_TYPES)
+			throw new IOException("Unknown piece type " + pieceType);
+		if (version == BOARD_VERSION) {
+			int size = sizeOf(numRows, numCols);
+			if (bytes.limit() - start != size)
+				throw new IOException("Save is " + (bytes.limit() - start) + " bytes instead of " + size);
+		}
+		if ((int)crc.getValue() != bytes.getInt(bytes.limit() - CRC_SIZE))
+			throw new IOException("Save doesn't match its checksum");
+		bytes.limit(bytes.limit() - CRC_SIZE);
+
+		try {
+			GameSnapshot snapshot;
+			if (version == BOARD_VERSION)
+				snapshot = decodeBoard(bytes, pieceType);
+			else
+				snapshot = decodeGame(bytes, pieceType);
+			if (bytes.hasRemaining())
+				throw new IOException("Save has " + bytes.remaining() + " bytes too many");
+			return snapshot;
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Save is cut off");
+		}
+	}
+	/**
+	 * This helper function decodes the rest of a version 1 save.
+	 * @param bytes ByteBuffer of the save, after the header and without the CRC
+	 * @param pieceType type of the falling piece
+	 * @return GameSnapshot with the falling piece at the top
+	 */
+	private static GameSnapshot decodeBoard(ByteBuffer bytes, int pieceType) {
+		Board board = new Board();
+		long bits = 0;
+		int numBits = 0;
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				while (numBits < BITS_PER_CELL) {
+					bits |= (long)(bytes.get() & 0xFF) << numBits;
+					numBits += 8;
+				}
+				int code = (int)bits & CELL_MASK;
+				bits >>>= BITS_PER_CELL;
+				numBits -= BITS_PER_CELL;
+				if (code != Board.EMPTY)
+					board.setColorCode(row, col, code);
+			}
+		}
+		return new GameSnapshot(board, pieceType, 0, PieceShape.spawnRow(pieceType), 
+								PieceShape.spawnCol(pieceType), GameEngine.NONE, false, false, 0, 0,
+								null, new ArrayList<GameState>());
+	}
+	/**
+	 * This helper function decodes the rest of a version 2 save,
+	 * and checks that its state is one a game can be in.
+	 * @param bytes ByteBuffer of the save, after the header and without the CRC
+	 * @param pieceType type of the falling piece
+	 * @return GameSnapshot of the save
+	 * @throws IOException if the state is impossible
+	 */
+	private static GameSnapshot decodeGame(ByteBuffer bytes, int pieceType) throws IOException {
+		int orientation = bytes.get();
+		int pivotRow = bytes.get();
+		int pivotCol = bytes.get();
+		int flags = bytes.get();
+		int gravityProgress = bytes.getInt();
+		int totalLinesCleared = bytes.getInt();
+		int generatorKind = bytes.get();
+		long generatorSeed = bytes.getLong();
+		long generatorDealt = bytes.getLong();
+		long generatorRandomState = bytes.getLong();
+		int generatorExtraState = bytes.getInt();
+		if ((flags & ~(INPUT_MASK | GAME_OVER_FLAG | PAUSED_FLAG)) != 0)
+			throw new IOException("Unknown flags " + flags);
+		if (gravityProgress < 0 || gravityProgress >= GravityCurve.ROW || totalLinesCleared < 0)
+			throw new IOException("Counters out of range");
+		if (generatorKind < 0 || generatorKind >= PieceGenerator.NUM_KINDS)
+			throw new IOException("Unknown piece generator kind " + generatorKind);
+		if (generatorDealt < 0)
+			throw new IOException("Generator state out of range");
+
+		int[] rows = new int[bytes.get() & 0xFF];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = bytes.getInt();
+			if ((rows[i] >>> (Board.NUM_COLS * BITS_PER_CELL)) != 0)
+				throw new IOException("Row " + i + " out of range");
+		}
+		Board board = decodeRows(bytes, rows);
+		int numHistory = bytes.get() & 0xFF;
+		if (numHistory > MAX_HISTORY)
+			throw new IOException("History of " + numHistory + " states");
+		List<GameState> history = new ArrayList<GameState>();
+		for (int i = 0; i < numHistory; i++) {
+			int type = bytes.get();
+			if (type < 0 || type >= PieceShape.NUM_TYPES)
+				throw new IOException("Unknown piece type " + type);
+			history.add(new GameState(decodeRows(bytes, rows), Tetrimino.typeToTetrimino(type)));
+		}
+
+		boolean gameOver = (flags & GAME_OVER_FLAG) != 0;
+		if (orientation < 0 || orientation >= PieceShape.NUM_ORIENTATIONS)
+			throw new IOException("Unknown orientation " + orientation);
+		PieceShape shape = PieceShape.of(pieceType, orientation);
+		if (shape.isInBounds(pivotRow, pivotCol, Board.NUM_ROWS, Board.NUM_COLS) == false
+			|| (gameOver == false && board.collides(shape, pivotRow, pivotCol)))
+			throw new IOException("Falling piece out of place");
+
+		return new GameSnapshot(board, pieceType, orientation, pivotRow, pivotCol, flags & INPUT_MASK,
+								gameOver, (flags & PAUSED_FLAG) != 0, gravityProgress, totalLinesCleared,
+								new GeneratorState(generatorKind, generatorSeed, generatorDealt, 
+												   generatorRandomState, generatorExtraState), history);
+	}
+	/**
+	 * This helper function decodes a board, as the index of each of
+	 * its rows in the table of distinct rows.
+	 * @param bytes ByteBuffer at the board
+	 * @param rows distinct rows, packed (see packRow())
+	 * @return Board decoded
+	 * @throws IOException if an index is out of the table
+	 */
+	private static Board decodeRows(ByteBuffer bytes, int[] rows) throws IOException {
+		Board board = new Board();
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			int index = bytes.get() & 0xFF;
+			if (index >= rows.length)
+				throw new IOException("Row index " + index + " out of range");
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				int code = (rows[index] >>> (col * BITS_PER_CELL)) & CELL_MASK;
+				if (code != Board.EMPTY)
+					board.setColorCode(row, col, code);
+			}
+		}
+		return board;
+	}
+	/**
+	 * Static Function that writes a save to a file, replacing it
+	 * if it exists, so that the file always holds a whole save:
+	 * the save is written to a temp file next to it through a
+	 * FileChannel, forced to the disk, then atomically renamed over it.
+	 * A write torn by a crash only ever leaves a temp file behind.
+	 * @param path Path of the file
+	 * @param bytes ByteBuffer of the save, from encode()
+	 * @return Nothing
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, ByteBuffer bytes) throws IOException {
+		Path dir = path.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				while (bytes.hasRemaining())
+					channel.write(bytes);
+				channel.force(true);
+			}
+			finally {
+				channel.close();
+			}
+			try {
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			forceDirectory(dir);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	/**
+	 * This helper function forces the entries of a directory to the
+	 * disk, so a rename in it survives a crash. Not every platform
+	 * can open a directory, and those which can't are left alone.
+	 * @param dir Path of the directory
+	 * @return Nothing
+	 */
+	private static void forceDirectory(Path dir) {
+		try {
+			FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			}
+			finally {
+				channel.close();
+			}
+		}
+		catch (IOException ex) {
+			//The rename itself is done, only its durability isn't known.
+		}
+	}
+	/**
+	 * Static Function that reads a whole save file through a FileChannel.
+	 * @param path Path of the file
+	 * @return ByteBuffer of the file, ready to be decoded
+	 * @throws IOException if the file cannot be read, or is too
+	 * 		   big to be a save
+	 */
+	public static ByteBuffer read(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > maxSize())
+				throw new IOException("Save is too big: " + size + " bytes");
+			ByteBuffer bytes = ByteBuffer.allocate((int)size);
+			while (bytes.hasRemaining() && channel.read(bytes) >= 0)
+				continue;
+			bytes.flip();
+			return bytes;
+		}
+		finally {
+			channel.close();
+		}
+	}
+	/**
+	 * This helper function finds the CRC-32 of the start of an array.
+	 * @param array bytes
+	 * @param length how many bytes to check
+	 * @return long CRC-32 value
+	 */
+	private static long crcOf(byte[] array, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(array, 0, length);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,22 @@
+package game.tetris.lib;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A SaveListener is told when a SaveWriter
+ * is done writing a save, on the writer's thread.
+ *
+ * @author Rahul
+ *
+ */
+public interface SaveListener {
+	/**
+	 * Gets the outcome of one save.
+	 * @param path Path the save was written to
+	 * @param error null if the save was written,
+	 * 		  what went wrong otherwise
+	 * @return Nothing
+	 */
+	void saveWritten(Path path, IOException error);
+}
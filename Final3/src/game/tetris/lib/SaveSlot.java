@@ -0,0 +1,86 @@
+package game.tetris.lib;
+
+/**
+ * SaveSlot is what the index of a SaveStore knows
+ * about one save, without opening its file:
+ * when it was saved, the type of its falling piece,
+ * how high its stack of stopped pieces is and its size.
+ *
+ * Instances are immutable.
+ *
+ * @author Rahul
+ *
+ */
+public class SaveSlot {
+	private final String name;
+	private final long savedAt;
+	private final int pieceType;
+	private final int boardHeight;
+	private final int size;
+
+	/**
+	 * Constructor of a SaveSlot.
+	 * @param name name of the slot (see SaveStore.isValidName())
+	 * @param savedAt when the save was written, in milliseconds since the epoch
+	 * @param pieceType type of the falling piece, one of PieceShape's TYPE_ constants
+	 * @param boardHeight height of the highest col of stopped pieces
+	 * @param size size of the save file, in bytes
+	 */
+	public SaveSlot(String name, long savedAt, int pieceType, int boardHeight, int size) {
+		this.name = name;
+		this.savedAt = savedAt;
+		this.pieceType = pieceType;
+		this.boardHeight = boardHeight;
+		this.size = size;
+	}
+	/**
+	 * Static Function that builds the SaveSlot of a save.
+	 * @param name name of the slot
+	 * @param savedAt when the save was written, in milliseconds since the epoch
+	 * @param state GameState the save decodes to (see SaveFormat.decode())
+	 * @param size size of the save, in bytes
+	 * @return SaveSlot of the save
+	 */
+	public static SaveSlot of(String name, long savedAt, GameState state, int size) {
+		Board board = state.getSavedBitboard();
+		int boardHeight = 0;
+		for (int col = 0; col < Board.NUM_COLS; col++)
+			boardHeight = Math.max(boardHeight, board.getColHeight(col));
+		return new SaveSlot(name, savedAt, state.getSavedFallingPiece().getType(), boardHeight, size);
+	}
+	/**
+	 * Getter for the name of the slot.
+	 * @return String name
+	 */
+	public String getName() {
+		return name;
+	}
+	/**
+	 * Getter for when the save was written.
+	 * @return long milliseconds since the epoch
+	 */
+	public long getSavedAt() {
+		return savedAt;
+	}
+	/**
+	 * Getter for the type of the saved falling piece.
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	public int getPieceType() {
+		return pieceType;
+	}
+	/**
+	 * Getter for the height of the highest col of stopped pieces.
+	 * @return int 0 to Board.NUM_ROWS
+	 */
+	public int getBoardHeight() {
+		return boardHeight;
+	}
+	/**
+	 * Getter for the size of the save file.
+	 * @return int size in bytes
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,328 @@
+package game.tetris.lib;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * SaveStore is a directory of named save slots, each one a
+ * file in the SaveFormat, along with an index file which holds
+ * the SaveSlot of every one of them.
+ *
+ * The index is read once, when the store is opened, and kept in
+ * memory: listing the slots or checking one exists never touches
+ * the disk. Writing a slot updates the index in memory and on the
+ * disk, both atomically (see SaveFormat.write()). An index which is
+ * missing or corrupted is rebuilt from the slot files.
+ *
+ * The index file is:
+ *
+ *   magic      4 bytes  "TTRI"
+ *   version    1 byte   INDEX_VERSION
+ *   numSlots   2 bytes
+ *   slots      for each one: name length (1 byte), name (ASCII),
+ *              savedAt (8 bytes), pieceType (1 byte),
+ *              boardHeight (1 byte), size (4 bytes)
+ *   crc        4 bytes  CRC-32 of everything before it
+ *
+ * Slots can be listed and looked up from any thread, while
+ * they are written, but are written one at a time.
+ *
+ * @author Rahul
+ *
+ */
+public class SaveStore {
+	public static final int INDEX_VERSION = 1;
+	public static final String SLOT_EXTENSION = ".bin";
+	//Can't clash with a slot file, since it has another extension
+	public static final String INDEX_FILENAME = "slots.idx";
+	//"TTRI"
+	private static final int INDEX_MAGIC = 0x54545249;
+	private static final int MAX_NAME_LENGTH = 32;
+	private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1," + MAX_NAME_LENGTH + "}");
+	private static final int INDEX_HEADER_SIZE = 7;
+	private static final int INDEX_ENTRY_SIZE = 15;
+	private static final int CRC_SIZE = 4;
+
+	private final Path dir;
+	//SaveSlot of every slot, by name
+	private final Map<String, SaveSlot> slots;
+	//Held while writing, so slot files and the index are written one at a time
+	private final Object writeLock;
+
+	/**
+	 * Constructor of an empty SaveStore.
+	 * Nothing is read; see open().
+	 * @param dir Path of the save directory, created on the first write
+	 */
+	public SaveStore(Path dir) {
+		this.dir = dir;
+		slots = new ConcurrentHashMap<String, SaveSlot>();
+		writeLock = new Object();
+	}
+	/**
+	 * Static Function that opens the SaveStore of a directory, reading
+	 * its index. If the index can't be read, it is rebuilt from the
+	 * slot files, and slot files that can't be read are left out.
+	 * A directory which doesn't exist is an empty store.
+	 * @param dir Path of the save directory
+	 * @return SaveStore of the directory
+	 */
+	public static SaveStore open(Path dir) {
+		SaveStore store = new SaveStore(dir);
+		try {
+			store.readIndex();
+		}
+		catch (NoSuchFileException ex) {
+			store.rebuildIndex();
+		}
+		catch (IOException ex) {
+			System.out.println("Error reading save index: " + ex.getMessage());
+			store.rebuildIndex();
+		}
+		return store;
+	}
+	/**
+	 * Static Function that checks if a name can be the name of a slot:
+	 * 1 to 32 letters, digits, underscores or dashes.
+	 * @param name name to check
+	 * @return true if it can
+	 * 		   false otherwise
+	 */
+	public static boolean isValidName(String name) {
+		return name != null && NAME_PATTERN.matcher(name).matches();
+	}
+	/**
+	 * Getter for the save directory.
+	 * @return Path of the directory
+	 */
+	public Path getDirectory() {
+		return dir;
+	}
+	/**
+	 * Getter for the file of a slot, which may not exist.
+	 * @param name name of the slot
+	 * @return Path of the slot file
+	 */
+	public Path pathOf(String name) {
+		checkName(name);
+		return dir.resolve(name + SLOT_EXTENSION);
+	}
+	/**
+	 * Lists the slots, from memory.
+	 * @return List of the SaveSlot of every slot, the most recently saved first
+	 */
+	public List<SaveSlot> list() {
+		List<SaveSlot> list = new ArrayList<SaveSlot>(slots.values());
+		Collections.sort(list, new Comparator<SaveSlot>() {
+			public int compare(SaveSlot first, SaveSlot second) {
+				if (first.getSavedAt() != second.getSavedAt())
+					return first.getSavedAt() > second.getSavedAt() ? -1 : 1;
+				return first.getName().compareTo(second.getName());
+			}
+		});
+		return list;
+	}
+	/**
+	 * Looks up one slot, from memory.
+	 * @param name name of the slot
+	 * @return SaveSlot of the slot, or null if it wasn't saved to
+	 */
+	public SaveSlot getSlot(String name) {
+		return slots.get(name);
+	}
+	/**
+	 * Checks if a slot was saved to, from memory.
+	 * @param name name of the slot
+	 * @return true if it was
+	 * 		   false otherwise
+	 */
+	public boolean contains(String name) {
+		return slots.containsKey(name);
+	}
+	/**
+	 * Checks if no slot was saved to, from memory.
+	 * @return true if there are no slots
+	 * 		   false otherwise
+	 */
+	public boolean isEmpty() {
+		return slots.isEmpty();
+	}
+	/**
+	 * Writes a save to a slot, replacing what it held,
+	 * then writes the updated index.
+	 * @param name name of the slot
+	 * @param bytes ByteBuffer of the save, from SaveFormat.encode()
+	 * @return SaveSlot of the written slot
+	 * @throws IOException if the save isn't one of the SaveFormat,
+	 * 		   or it or the index cannot be written
+	 */
+	public SaveSlot write(String name, ByteBuffer bytes) throws IOException {
+		Path path = pathOf(name);
+		int size = bytes.remaining();
+		GameState state = SaveFormat.decode(bytes.duplicate());
+
+		synchronized (writeLock) {
+			Files.createDirectories(dir);
+			SaveFormat.write(path, bytes);
+			SaveSlot slot = SaveSlot.of(name, System.currentTimeMillis(), state, size);
+			slots.put(name, slot);
+			SaveFormat.write(dir.resolve(INDEX_FILENAME), encodeIndex());
+			return slot;
+		}
+	}
+	/**
+	 * Reads the save of a slot.
+	 * @param name name of the slot
+	 * @return GameState of the save (see SaveFormat.decode())
+	 * @throws NoSuchFileException if the slot wasn't saved to
+	 * @throws IOException if the save cannot be read, or is corrupted
+	 */
+	public GameState read(String name) throws IOException {
+		if (contains(name) == false)
+			throw new NoSuchFileException(pathOf(name).toString());
+		return SaveFormat.decode(SaveFormat.read(pathOf(name)));
+	}
+	/**
+	 * Reads the whole GameSnapshot of the save of a slot.
+	 * @param name name of the slot
+	 * @return GameSnapshot of the save (see SaveFormat.decodeSnapshot())
+	 * @throws NoSuchFileException if the slot wasn't saved to
+	 * @throws IOException if the save cannot be read, or is corrupted
+	 */
+	public GameSnapshot readSnapshot(String name) throws IOException {
+		if (contains(name) == false)
+			throw new NoSuchFileException(pathOf(name).toString());
+		return SaveFormat.decodeSnapshot(SaveFormat.read(pathOf(name)));
+	}
+	/**
+	 * This helper function throws if a name can't be the name of a slot,
+	 * so it can't point outside of the directory.
+	 * @param name name to check
+	 * @return Nothing
+	 */
+	private static void checkName(String name) {
+		if (isValidName(name) == false)
+			throw new IllegalArgumentException("Not a slot name: " + name);
+	}
+	/**
+	 * This helper function encodes the index of every slot.
+	 * @return ByteBuffer of the index, ready to be read from
+	 */
+	private ByteBuffer encodeIndex() {
+		List<SaveSlot> list = list();
+		int size = INDEX_HEADER_SIZE + CRC_SIZE;
+		for (SaveSlot slot : list)
+			size += INDEX_ENTRY_SIZE + slot.getName().length();
+
+		ByteBuffer bytes = ByteBuffer.allocate(size);
+		bytes.putInt(INDEX_MAGIC);
+		bytes.put((byte)INDEX_VERSION);
+		bytes.putShort((short)list.size());
+		for (SaveSlot slot : list) {
+			byte[] name = slot.getName().getBytes(StandardCharsets.US_ASCII);
+			bytes.put((byte)name.length);
+			bytes.put(name);
+			bytes.putLong(slot.getSavedAt());
+			bytes.put((byte)slot.getPieceType());
+			bytes.put((byte)slot.getBoardHeight());
+			bytes.putInt(slot.getSize());
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.array(), 0, bytes.position());
+		bytes.putInt((int)crc.getValue());
+		bytes.flip();
+		return bytes;
+	}
+	/**
+	 * This helper function reads the index file into memory.
+	 * @return Nothing
+	 * @throws NoSuchFileException if there is no index
+	 * @throws IOException if the index cannot be read, or is corrupted
+	 */
+	private void readIndex() throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(dir.resolve(INDEX_FILENAME)));
+		if (bytes.remaining() < INDEX_HEADER_SIZE + CRC_SIZE)
+			throw new IOException("Index is too short: " + bytes.remaining() + " bytes");
+		CRC32 crc = new CRC32();
+		crc.update(bytes.array(), 0, bytes.limit() - CRC_SIZE);
+		if ((int)crc.getValue() != bytes.getInt(bytes.limit() - CRC_SIZE))
+			throw new IOException("Index doesn't match its checksum");
+		bytes.limit(bytes.limit() - CRC_SIZE);
+
+		if (bytes.getInt() != INDEX_MAGIC)
+			throw new IOException("Not a save index");
+		int version = bytes.get();
+		if (version < 1 || version > INDEX_VERSION)
+			throw new IOException("Unknown index version " + version);
+		int numSlots = bytes.getShort() & 0xFFFF;
+		try {
+			for (int i = 0; i < numSlots; i++) {
+				byte[] name = new byte[bytes.get() & 0xFF];
+				bytes.get(name);
+				SaveSlot slot = new SaveSlot(new String(name, StandardCharsets.US_ASCII), bytes.getLong(),
+											 bytes.get(), bytes.get(), bytes.getInt());
+				if (isValidName(slot.getName()) == false)
+					throw new IOException("Bad slot name in index");
+				slots.put(slot.getName(), slot);
+			}
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Index is truncated");
+		}
+	}
+	/**
+	 * This helper function rebuilds the index from the slot files,
+	 * and writes it if there are any. Each slot file is read once.
+	 * @return Nothing
+	 */
+	private void rebuildIndex() {
+		slots.clear();
+		if (Files.isDirectory(dir) == false)
+			return;
+		try {
+			DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SLOT_EXTENSION);
+			try {
+				for (Path file : files) {
+					String fileName = file.getFileName().toString();
+					String name = fileName.substring(0, fileName.length() - SLOT_EXTENSION.length());
+					if (isValidName(name) == false)
+						continue;
+					try {
+						ByteBuffer bytes = SaveFormat.read(file);
+						int size = bytes.remaining();
+						long savedAt = Files.getLastModifiedTime(file).toMillis();
+						slots.put(name, SaveSlot.of(name, savedAt, SaveFormat.decode(bytes), size));
+					}
+					catch (IOException ex) {
+						System.out.println("Skipping save '" + fileName + "': " + ex.getMessage());
+					}
+				}
+			}
+			finally {
+				files.close();
+			}
+			if (slots.isEmpty() == false) {
+				synchronized (writeLock) {
+					SaveFormat.write(dir.resolve(INDEX_FILENAME), encodeIndex());
+				}
+			}
+		}
+		catch (IOException ex) {
+			System.out.println("Error rebuilding save index: " + ex.getMessage());
+		}
+	}
+}
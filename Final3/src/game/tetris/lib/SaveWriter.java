@@ -0,0 +1,118 @@
+package game.tetris.lib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SaveWriter writes saves on its own background thread,
+ * so whoever saves never waits on the disk.
+ *
+ * A save is handed over already encoded (see SaveFormat.encode()),
+ * so it is a snapshot of the game as it was when saved, whatever
+ * happens to the game afterwards. Saves are written one at a time,
+ * in the order they were handed over, each one atomically
+ * (see SaveFormat.write()), and a SaveListener is told the outcome.
+ *
+ * @author Rahul
+ *
+ */
+public class SaveWriter {
+	private ExecutorService executor;
+
+	/**
+	 * Constructor of a SaveWriter, with its thread.
+	 * The thread doesn't keep the JVM running.
+	 */
+	public SaveWriter() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "Tetris save writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	/**
+	 * Hands a save over to be written. Never blocks.
+	 * @param path Path of the save file
+	 * @param bytes ByteBuffer of the save, which must not be changed afterwards
+	 * @param listener SaveListener to tell the outcome, or null
+	 * @return Future which is done once the save was written or failed;
+	 * 		   its get() returns null or throws the IOException
+	 */
+	public Future<Void> save(final Path path, final ByteBuffer bytes, final SaveListener listener) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				IOException error = null;
+				try {
+					SaveFormat.write(path, bytes);
+				}
+				catch (IOException ex) {
+					error = ex;
+				}
+				return written(path, error, listener);
+			}
+		});
+	}
+	/**
+	 * Hands a save over to be written to a slot of a SaveStore,
+	 * which updates its index too (see SaveStore.write()). Never blocks.
+	 * @param store SaveStore to write to
+	 * @param slot name of the slot (see SaveStore.isValidName())
+	 * @param bytes ByteBuffer of the save, which must not be changed afterwards
+	 * @param listener SaveListener to tell the outcome, or null
+	 * @return Future which is done once the save was written or failed;
+	 * 		   its get() returns null or throws the IOException
+	 */
+	public Future<Void> save(final SaveStore store, final String slot, final ByteBuffer bytes, 
+							 final SaveListener listener) {
+		final Path path = store.pathOf(slot);
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				IOException error = null;
+				try {
+					store.write(slot, bytes);
+				}
+				catch (IOException ex) {
+					error = ex;
+				}
+				return written(path, error, listener);
+			}
+		});
+	}
+	/**
+	 * This helper function tells a SaveListener the outcome of
+	 * a save, then rethrows what went wrong, if anything.
+	 * @param path Path the save was written to
+	 * @param error null if the save was written, what went wrong otherwise
+	 * @param listener SaveListener to tell the outcome, or null
+	 * @return null
+	 * @throws IOException error, if not null
+	 */
+	private static Void written(Path path, IOException error, SaveListener listener) throws IOException {
+		if (listener != null)
+			listener.saveWritten(path, error);
+		if (error != null)
+			throw error;
+		return null;
+	}
+	/**
+	 * Stops taking saves, and waits for the ones
+	 * handed over already to be written.
+	 * @param timeoutMillis longest time to wait
+	 * @return true if every save was written in time
+	 * 		   false otherwise
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean shutdown(long timeoutMillis) throws InterruptedException {
+		executor.shutdown();
+		return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
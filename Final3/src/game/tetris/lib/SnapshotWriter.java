@@ -0,0 +1,75 @@
+package game.tetris.lib;
+
+/**
+ * SnapshotWriter writes the frames of a Game into BoardSnapshots,
+ * copying only the cells which changed (see Game.getDirtyCells()),
+ * and hands those changes on with the snapshot (see
+ * BoardSnapshot.getChangedMask()).
+ *
+ * The snapshot written into doesn't always hold the frame before:
+ * in a TripleBuffer, the back buffer holds whichever frame the
+ * renderer last let go of. So the changes of the last HISTORY frames
+ * are kept, as row masks, and a snapshot gets the cells which changed
+ * in any frame since the one it holds. A snapshot older than that,
+ * or never written, is written whole.
+ *
+ * Frames are numbered from 0, one a write(). Nothing is allocated.
+ *
+ * @author Rahul
+ *
+ */
+public class SnapshotWriter {
+	//Frames whose changes are kept
+	public static final int HISTORY = 8;
+
+	//Changes of frame n, in changes[n % HISTORY]
+	private final int[][] changes;
+	//Cells to write into the snapshot being written
+	private final int[] scratchMasks;
+	private long nextFrame;
+
+	/**
+	 * Default Constructor. The first frame is numbered 0.
+	 */
+	public SnapshotWriter() {
+		changes = new int[HISTORY][Board.NUM_ROWS];
+		scratchMasks = new int[Board.NUM_ROWS];
+		nextFrame = 0;
+	}
+	/**
+	 * Writes the next frame of a game into a snapshot, and marks the
+	 * dirty cells of the game clean.
+	 * @param game Game to write the frame of
+	 * @param snapshot BoardSnapshot of the board size, holding an
+	 * 		  older frame of this writer, or never written
+	 * @return long number of the frame written
+	 */
+	public long write(Game game, BoardSnapshot snapshot) {
+		long frame = nextFrame++;
+		DirtyCells dirtyCells = game.getDirtyCells();
+		int[] frameChanges = changes[(int)(frame % HISTORY)];
+		for (int row = 0; row < Board.NUM_ROWS; row++)
+			frameChanges[row] = dirtyCells.getRowMask(row);
+		dirtyCells.clear();
+
+		long held = snapshot.getFrameNumber();
+		if (held < 0 || held >= frame || frame - held > HISTORY) {
+			game.writeSnapshot(snapshot, frame);
+		}
+		else {
+			//Every cell which changed in a frame since the one held
+			for (int row = 0; row < Board.NUM_ROWS; row++)
+				scratchMasks[row] = 0;
+			for (long since = held + 1; since <= frame; since++) {
+				int[] sinceChanges = changes[(int)(since % HISTORY)];
+				for (int row = 0; row < Board.NUM_ROWS; row++)
+					scratchMasks[row] |= sinceChanges[row];
+			}
+			game.writeCells(snapshot, scratchMasks);
+			snapshot.setFrameNumber(frame);
+		}
+		for (int row = 0; row < Board.NUM_ROWS; row++)
+			snapshot.setChangedMask(row, frameChanges[row]);
+		return frame;
+	}
+}
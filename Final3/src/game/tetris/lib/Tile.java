@@ -20,6 +20,11 @@ public class Tile {
 	private static final String RED_STR = "R";
 	private static final String BLACK_STR = "X";
 	
+	//Color of each color code a Board stores.
+	//Index Board.EMPTY must stay black.
+	private static final Color[] PALETTE = {Color.BLACK, Color.CYAN, Color.BLUE, Color.ORANGE,
+											Color.YELLOW, Color.GREEN, Color.PINK, Color.RED};
+	
 	private Color tileColor;
 	
 	/**
@@ -55,6 +60,36 @@ public class Tile {
 			return false;
 	}
 	
+	/**
+	 * This static function returns the Color a Board
+	 * color code stands for.
+	 * @param code color code from a Board
+	 * @return Color of the code
+	 */
+	public static Color colorOfCode(int code) {
+		return PALETTE[code];
+	}
+	/**
+	 * This static function returns how many color codes
+	 * there are, from Board.EMPTY up.
+	 * @return int size of the palette
+	 */
+	public static int numColorCodes() {
+		return PALETTE.length;
+	}
+	/**
+	 * This static function returns the Board color code
+	 * of a Color. Colors outside of the palette are black.
+	 * @param color Color to find the code of
+	 * @return int color code of color
+	 */
+	public static int codeOfColor(Color color) {
+		for (int code = 0; code < PALETTE.length; code++) {
+			if (PALETTE[code] == color)
+				return code;
+		}
+		return Board.EMPTY;
+	}
 	/**
 	 * This static function counts how many Tiles within the
 	 * Tile array are lit.
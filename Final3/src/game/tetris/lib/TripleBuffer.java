@@ -0,0 +1,95 @@
+package game.tetris.lib;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TripleBuffer hands frames from one writer thread to one
+ * reader thread with no locking and no allocation.
+ *
+ * It holds three buffers: the writer's back buffer, the reader's
+ * front buffer and a middle one. The writer fills its back buffer and
+ * publishes it by swapping it with the middle one; the reader takes
+ * the newest frame by swapping its front buffer with the middle one,
+ * if a new frame was published since. Both swaps are one atomic
+ * exchange, so:
+ * - the writer never waits for the reader, and can publish frames
+ *   faster than they are read (the unread ones are overwritten),
+ * - the reader always sees a whole frame, which nobody
+ *   writes to until it takes the next one.
+ *
+ * @author Rahul
+ *
+ * @param <T> type of the buffers
+ */
+public class TripleBuffer<T> {
+	//Bit of the middle state set when it holds a frame the reader hasn't taken
+	private static final int FRESH = 1 << 2;
+	private static final int INDEX_MASK = FRESH - 1;
+
+	private final T[] buffers;
+	//Index of the middle buffer, plus FRESH
+	private final AtomicInteger middle;
+	//Only used by the writer
+	private int back;
+	//Only used by the reader
+	private int front;
+
+	/**
+	 * Constructor of a TripleBuffer over three buffers.
+	 * @param first buffer the writer starts on
+	 * @param second buffer in the middle
+	 * @param third buffer the reader starts on
+	 */
+	@SuppressWarnings("unchecked")
+	public TripleBuffer(T first, T second, T third) {
+		buffers = (T[])new Object[] {first, second, third};
+		back = 0;
+		middle = new AtomicInteger(1);
+		front = 2;
+	}
+	/**
+	 * Getter for the buffer the writer fills next.
+	 * Only the writer thread may call it.
+	 * @return T back buffer
+	 */
+	public T getBackBuffer() {
+		return buffers[back];
+	}
+	/**
+	 * Publishes the back buffer as the newest frame, and gives
+	 * the writer another buffer to fill (see getBackBuffer()).
+	 * Only the writer thread may call it. Never blocks.
+	 * @return Nothing
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+	/**
+	 * Checks if a frame was published since the reader last took one.
+	 * Can be called from any thread.
+	 * @return true if takeNewest() would give a new frame
+	 * 		   false otherwise
+	 */
+	public boolean hasNewFrame() {
+		return (middle.get() & FRESH) != 0;
+	}
+	/**
+	 * Takes the newest published frame, if there is a new one.
+	 * Only the reader thread may call it. Never blocks.
+	 * @return T the newest frame, or the same front
+	 * 		   buffer as before if nothing was published since
+	 */
+	public T takeNewest() {
+		if (hasNewFrame())
+			front = middle.getAndSet(front) & INDEX_MASK;
+		return buffers[front];
+	}
+	/**
+	 * Getter for the frame the reader took last.
+	 * Only the reader thread may call it.
+	 * @return T front buffer
+	 */
+	public T getFrontBuffer() {
+		return buffers[front];
+	}
+}
@@ -0,0 +1,114 @@
+package game.tetris.lib.pieces;
+
+/**
+ * BagPieceGenerator is a 7-bag generator: it deals out all
+ * 7 types in a random order, then shuffles them again.
+ *
+ * Every type comes up once in every 7 pieces of a bag,
+ * so there are never more than 12 pieces between two of a kind.
+ * The bag is one int[] shuffled in place with a SplitMix64. Its
+ * order and how much of it was dealt are saved along with the
+ * state of the SplitMix64, 3 bits a type (see getExtraState()).
+ *
+ * @author Rahul
+ *
+ */
+public class BagPieceGenerator extends PieceGenerator {
+	//Factory for Game and BatchSimulator
+	public static final PieceGeneratorFactory FACTORY = new PieceGeneratorFactory() {
+		public PieceGenerator newGenerator(long seed) {
+			return new BagPieceGenerator(seed);
+		}
+	};
+
+	private static final int BITS_PER_TYPE = 3;
+	private static final int TYPE_MASK = (1 << BITS_PER_TYPE) - 1;
+
+	private final int[] bag;
+	private int bagIndex;
+	private SplitMix64 randomizer;
+
+	/**
+	 * Constructor with the default lookahead.
+	 * @param seed seed of the sequence
+	 */
+	public BagPieceGenerator(long seed) {
+		this(seed, DEFAULT_LOOKAHEAD);
+	}
+	/**
+	 * Constructor.
+	 * @param seed seed of the sequence
+	 * @param lookahead how many upcoming types can be peeked
+	 */
+	public BagPieceGenerator(long seed, int lookahead) {
+		super(lookahead);
+		bag = new int[PieceShape.NUM_TYPES];
+		for (int type = 0; type < bag.length; type++)
+			bag[type] = type;
+		randomizer = new SplitMix64(seed);
+		reset(seed);
+	}
+	@Override
+	public int getKind() {
+		return KIND_BAG;
+	}
+	@Override
+	protected void reseed(long seed) {
+		randomizer.setState(seed);
+		//Start over with the bag in TYPE_ order, and empty.
+		for (int type = 0; type < bag.length; type++)
+			bag[type] = type;
+		bagIndex = bag.length;
+	}
+	@Override
+	protected long getRandomState() {
+		return randomizer.getState();
+	}
+	/**
+	 * Gives the order of the bag, a type every 3 bits from
+	 * the lowest, then how many of its types were dealt.
+	 * @return int state of the bag
+	 */
+	@Override
+	protected int getExtraState() {
+		int state = bagIndex << (bag.length * BITS_PER_TYPE);
+		for (int i = 0; i < bag.length; i++)
+			state |= bag[i] << (i * BITS_PER_TYPE);
+		return state;
+	}
+	@Override
+	protected void setState(long randomState, int extraState) {
+		//The bag must hold every type once.
+		int index = extraState >>> (bag.length * BITS_PER_TYPE);
+		int seen = 0;
+		for (int i = 0; i < bag.length; i++)
+			seen |= 1 << ((extraState >>> (i * BITS_PER_TYPE)) & TYPE_MASK);
+		if (index > bag.length || seen != (1 << bag.length) - 1)
+			throw new IllegalArgumentException("Not a bag generator state: " + extraState);
+
+		randomizer.setState(randomState);
+		for (int i = 0; i < bag.length; i++)
+			bag[i] = (extraState >>> (i * BITS_PER_TYPE)) & TYPE_MASK;
+		bagIndex = index;
+	}
+	@Override
+	protected int generate() {
+		if (bagIndex == bag.length) {
+			shuffleBag();
+			bagIndex = 0;
+		}
+		return bag[bagIndex++];
+	}
+	/**
+	 * This helper function shuffles the bag in place (Fisher-Yates).
+	 * @return Nothing
+	 */
+	private void shuffleBag() {
+		for (int i = bag.length - 1; i > 0; i--) {
+			int j = randomizer.nextInt(i + 1);
+			int swap = bag[i];
+			bag[i] = bag[j];
+			bag[j] = swap;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package game.tetris.lib.pieces;
+
+/**
+ * GeneratorState is the whole state of a PieceGenerator, as
+ * taken by PieceGenerator.getState(): its kind, the seed and dealt
+ * count it was at, and the state of its random source as of the
+ * next type to be dealt, so PieceGenerator.restore() sets it back
+ * at once, without drawing the dealt types again.
+ *
+ * Instances are immutable. See SaveFormat for how they are saved.
+ *
+ * @author Rahul
+ *
+ */
+public final class GeneratorState {
+	private final int kind;
+	private final long seed;
+	private final long dealt;
+	private final long randomState;
+	private final int extraState;
+
+	/**
+	 * Constructor of a GeneratorState.
+	 * @param kind kind of the generator, one of PieceGenerator's KIND_ constants
+	 * @param seed seed the generator was last reset with
+	 * @param dealt types taken since then
+	 * @param randomState state of the random source before the next type was drawn
+	 * @param extraState state of the kind besides its random source (the bag of
+	 * 		  a BagPieceGenerator), 0 if it has none
+	 */
+	public GeneratorState(int kind, long seed, long dealt, long randomState, int extraState) {
+		this.kind = kind;
+		this.seed = seed;
+		this.dealt = dealt;
+		this.randomState = randomState;
+		this.extraState = extraState;
+	}
+	/**
+	 * Getter for the kind of the generator.
+	 * @return int one of PieceGenerator's KIND_ constants
+	 */
+	public int getKind() {
+		return kind;
+	}
+	/**
+	 * Getter for the seed the generator was last reset with.
+	 * @return long seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	/**
+	 * Getter for how many types were taken since then.
+	 * @return long count of next() calls
+	 */
+	public long getDealt() {
+		return dealt;
+	}
+	/**
+	 * Getter for the state of the random source
+	 * before the next type was drawn.
+	 * @return long state
+	 */
+	public long getRandomState() {
+		return randomState;
+	}
+	/**
+	 * Getter for the state of the kind besides its random source.
+	 * @return int state, 0 if the kind has none
+	 */
+	public int getExtraState() {
+		return extraState;
+	}
+}
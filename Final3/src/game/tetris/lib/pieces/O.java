@@ -13,26 +13,16 @@ import java.awt.Color;
  *
  */
 public class O extends Tetrimino {
-	private static final int[] INIT_TET_COORDS = {0, 4, 0, 5, 1, 4, 1, 5};
 	private static final Color TET_COLOR = Color.YELLOW;
 	
 	/**
 	 * "Default" O Constructor
-	 * This builds the Tetrimino's default position and color via the
-	 * class constants.
+	 * This builds the Tetrimino's default position via the shape table
+	 * and its color via the class constant.
 	 * 
 	 */
 	public O() {
-		super(INIT_TET_COORDS, TET_COLOR);
-	}
-	/**
-	 * @see Tetrimino.java for more information
-	 */
-	@Override
-	public int[] rotatingTetBlockCoords() {
-		//A rotated O stays the same orientation, silly!
-		rotation = Rotate.NONE; 
-		return getTetBlockCoords();
+		super(PieceShape.TYPE_O, TET_COLOR);
 	}
 	/**
 	 * See Tetrimino.java for more information
@@ -41,19 +31,4 @@ public class O extends Tetrimino {
 	public String toString() {
 		return "O";
 	}
-	/**
-	 * @see Tetrimino.java for more information
-	 */
-	public int getOrientationNum() {
-		return 0;
-	}
-	/**
-	 * @see Tetrimino.java for more information
-	 */
-	public void setAllMembersOfPiece(int [] newTetBlockCoords, Move trans, Rotate rot, int orientNum) {
-		setAllTetBlockCoords(newTetBlockCoords);
-		translate(trans);
-		rotate(rot);
-		//ignore orientNum as it is not a member here.
-	}
 }
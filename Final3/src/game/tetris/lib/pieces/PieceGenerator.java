@@ -0,0 +1,198 @@
+package game.tetris.lib.pieces;
+
+/**
+ * PieceGenerator picks the types (see PieceShape's TYPE_ constants)
+ * of the pieces put at the top of the board.
+ *
+ * It keeps a fixed-size lookahead queue of upcoming types, so
+ * a preview can peek at them. The queue is a ring buffer of ints
+ * refilled in place, so taking a piece allocates nothing.
+ *
+ * Subclasses only pick types one at a time in generate() and
+ * reseed themselves in reseed(). The same seed always gives the
+ * same sequence, whatever the lookahead is.
+ *
+ * The random source of every subclass is a long which can be read
+ * and set, so the whole state of a generator (see getState()) is
+ * its kind, seed and dealt count, and the state of its source as
+ * it was before the next type to be dealt was drawn: it is kept for
+ * every queued type. restore() sets it back and draws only the
+ * lookahead queue again, so it takes no longer after a long game.
+ * Which subclass dealt a sequence is told by getKind(), so a
+ * saved state is never brought back into another kind.
+ *
+ * @author Rahul
+ *
+ */
+public abstract class PieceGenerator {
+	public static final int DEFAULT_LOOKAHEAD = 3;
+	//Kinds of generator (see getKind()), as saved
+	public static final int KIND_UNIFORM = 0;
+	public static final int KIND_SPLITTABLE = 1;
+	public static final int KIND_BAG = 2;
+	public static final int NUM_KINDS = 3;
+
+	private final int[] queue;
+	//State of the random source, and the extra state, before each queued type was drawn
+	private final long[] queueRandomStates;
+	private final int[] queueExtraStates;
+	private int head;
+	//State as of the last reset(): its seed, and the types taken since
+	private long seed;
+	private long dealt;
+
+	/**
+	 * Constructor for subclasses. The queue is empty
+	 * until reset() is called.
+	 * @param lookahead how many upcoming types can be peeked, at least 1
+	 */
+	protected PieceGenerator(int lookahead) {
+		if (lookahead < 1)
+			throw new IllegalArgumentException("lookahead must be at least 1: " + lookahead);
+		queue = new int[lookahead];
+		queueRandomStates = new long[lookahead];
+		queueExtraStates = new int[lookahead];
+	}
+	/**
+	 * Reseeds the generator and refills the lookahead queue.
+	 * @param seed seed of the sequence
+	 * @return Nothing
+	 */
+	public void reset(long seed) {
+		reseed(seed);
+		this.seed = seed;
+		dealt = 0;
+		fillQueue();
+	}
+	/**
+	 * Takes the next type off the queue, and queues a new one.
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	public int next() {
+		int type = queue[head];
+		draw(head);
+		head = (head + 1) % queue.length;
+		dealt++;
+		return type;
+	}
+	/**
+	 * This helper function draws a type into a slot of the queue,
+	 * keeping the state it was drawn from.
+	 * @param index slot of the queue
+	 * @return Nothing
+	 */
+	private void draw(int index) {
+		queueRandomStates[index] = getRandomState();
+		queueExtraStates[index] = getExtraState();
+		queue[index] = generate();
+	}
+	/**
+	 * This helper function draws every type of the queue.
+	 * @return Nothing
+	 */
+	private void fillQueue() {
+		head = 0;
+		for (int i = 0; i < queue.length; i++)
+			draw(i);
+	}
+	/**
+	 * Takes the whole state of the generator, which
+	 * restore() brings back exactly.
+	 * @return GeneratorState as of the next type to be dealt
+	 */
+	public GeneratorState getState() {
+		return new GeneratorState(getKind(), seed, dealt, queueRandomStates[head], queueExtraStates[head]);
+	}
+	/**
+	 * Brings back the state a generator had, from getState(): the state
+	 * of the random source is set back, and only the lookahead queue is
+	 * drawn again, whatever the lookahead of the generator it came from.
+	 * @param state GeneratorState of a generator of the same kind
+	 * @return Nothing
+	 * @throws IllegalArgumentException if the state is of another kind, or
+	 * 		   isn't one this kind can be in; the generator is left as it was
+	 */
+	public void restore(GeneratorState state) {
+		if (state.getKind() != getKind())
+			throw new IllegalArgumentException("Piece generator state is of kind " + state.getKind() 
+											   + ", not " + getKind());
+		if (state.getDealt() < 0)
+			throw new IllegalArgumentException("dealt must not be negative: " + state.getDealt());
+		setState(state.getRandomState(), state.getExtraState());
+		seed = state.getSeed();
+		dealt = state.getDealt();
+		fillQueue();
+	}
+	/**
+	 * Getter for the seed the generator was last reset with.
+	 * @return long seed of the sequence
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	/**
+	 * Getter for how many types were taken
+	 * since the generator was last reset.
+	 * @return long count of next() calls
+	 */
+	public long getDealt() {
+		return dealt;
+	}
+	/**
+	 * Peeks at an upcoming type without taking it.
+	 * peek(0) is the type the next call of next() returns.
+	 * @param index how far ahead to look, less than getLookahead()
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	public int peek(int index) {
+		if (index < 0 || index >= queue.length)
+			throw new IndexOutOfBoundsException("lookahead index: " + index);
+		return queue[(head + index) % queue.length];
+	}
+	/**
+	 * Getter for the size of the lookahead queue.
+	 * @return int how many upcoming types can be peeked
+	 */
+	public int getLookahead() {
+		return queue.length;
+	}
+	/**
+	 * Getter for the kind of the generator, which
+	 * is saved along with its state.
+	 * @return int one of the KIND_ constants
+	 */
+	public abstract int getKind();
+	/**
+	 * Reseeds the random source of the subclass
+	 * and drops any of its own state.
+	 * @param seed seed of the sequence
+	 * @return Nothing
+	 */
+	protected abstract void reseed(long seed);
+	/**
+	 * Getter for the state of the random source of the subclass.
+	 * @return long state
+	 */
+	protected abstract long getRandomState();
+	/**
+	 * Getter for the state of the subclass besides its random source.
+	 * @return int state, 0 if it has none
+	 */
+	protected abstract int getExtraState();
+	/**
+	 * Sets the random source and the state of the subclass
+	 * back to what getRandomState() and getExtraState() gave.
+	 * @param randomState state of the random source
+	 * @param extraState state besides the random source
+	 * @return Nothing
+	 * @throws IllegalArgumentException if the subclass can't be in the
+	 * 		   state, before anything is changed
+	 */
+	protected abstract void setState(long randomState, int extraState);
+	/**
+	 * Picks the type that comes after all queued ones.
+	 * Must not allocate.
+	 * @return int one of PieceShape's TYPE_ constants
+	 */
+	protected abstract int generate();
+}
@@ -0,0 +1,21 @@
+package game.tetris.lib.pieces;
+
+/**
+ * A PieceGeneratorFactory makes the PieceGenerator of a game,
+ * so whoever starts games (see Game and BatchSimulator) can be
+ * told which kind of generator to deal their pieces with.
+ *
+ * For games to be deterministic, the generator made for a
+ * seed must always deal the same sequence.
+ *
+ * @author Rahul
+ *
+ */
+public interface PieceGeneratorFactory {
+	/**
+	 * Makes the PieceGenerator of one game.
+	 * @param seed seed of the piece sequence
+	 * @return PieceGenerator new instance, not shared with other games
+	 */
+	PieceGenerator newGenerator(long seed);
+}
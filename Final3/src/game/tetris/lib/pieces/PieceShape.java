@@ -0,0 +1,307 @@
+package game.tetris.lib.pieces;
+
+import java.util.Arrays;
+
+/**
+ * PieceShape is one immutable entry of a shared table
+ * of 7 Tetrimino types x 4 orientations.
+ *
+ * Every Tetrimino block is placed relative to a pivot,
+ * the second block of the piece, which never moves during
+ * a rotation. An entry holds:
+ *
+ * - the row and col offsets of the 4 blocks from the pivot,
+ *   in the same block order as Tetrimino's block members,
+ * - the bounding box of the blocks, as offsets from the pivot,
+ * - one bitmask per row of the bounding box, where bit i is set
+ *   iff the block at col (minColOffset + i) is part of the shape,
+ * - the bottommost row offset of every col of the bounding box,
+ *   which a drop lines up against the col heights of a Board.
+ *
+ * With a piece at pivot (row, col), row r of the bounding box
+ * covers board row (row + minRowOffset + r) and its mask shifted left
+ * by (col + minColOffset) lines up with a row mask of a Board.
+ * This turns collision and bounds checks into a table lookup plus shifts.
+ *
+ * Pieces with fewer than 4 distinct orientations (I, O, S and Z)
+ * repeat them, so every type has 4 entries.
+ *
+ * @author Rahul
+ *
+ */
+public final class PieceShape {
+	public static final int TYPE_I = 0;
+	public static final int TYPE_J = 1;
+	public static final int TYPE_L = 2;
+	public static final int TYPE_O = 3;
+	public static final int TYPE_S = 4;
+	public static final int TYPE_T = 5;
+	public static final int TYPE_Z = 6;
+
+	public static final int NUM_TYPES = 7;
+	public static final int NUM_ORIENTATIONS = 4;
+	public static final int NUM_BLOCKS = 4;
+
+	/**
+	 * Block offsets from the pivot of every orientation of every type.
+	 * Element 1 = first block row offset, element 2 = first block col offset,
+	 * Element 3 = second block (pivot) row offset, etc.
+	 *
+	 * To see what each orientation looks like, look at the
+	 * constructors of the Tetrimino subclasses.
+	 */
+	private static final int[][][] BLOCK_OFFSETS = {
+		//I
+		{{0, -1, 0, 0, 0, 1, 0, 2},
+		 {-1, 0, 0, 0, 1, 0, 2, 0}},
+		//J
+		{{0, -1, 0, 0, 0, 1, 1, 1},
+		 {-1, 0, 0, 0, 1, 0, 1, -1},
+		 {0, 1, 0, 0, 0, -1, -1, -1},
+		 {1, 0, 0, 0, -1, 0, -1, 1}},
+		//L
+		{{0, -1, 0, 0, 0, 1, 1, -1},
+		 {-1, 0, 0, 0, 1, 0, -1, -1},
+		 {0, 1, 0, 0, 0, -1, -1, 1},
+		 {1, 0, 0, 0, -1, 0, 1, 1}},
+		//O
+		{{0, -1, 0, 0, 1, -1, 1, 0}},
+		//S
+		{{0, 1, 0, 0, 1, 0, 1, -1},
+		 {-1, 0, 0, 0, 0, 1, 1, 1}},
+		//T
+		{{0, -1, 0, 0, 0, 1, 1, 0},
+		 {-1, 0, 0, 0, 1, 0, 0, -1},
+		 {0, 1, 0, 0, 0, -1, -1, 0},
+		 {1, 0, 0, 0, -1, 0, 0, 1}},
+		//Z
+		{{0, -1, 0, 0, 1, 0, 1, 1},
+		 {-1, 0, 0, 0, 0, -1, 1, -1}}};
+	//Pivot (row, col) of every type when it is put on the board.
+	private static final int[][] SPAWN_PIVOTS = {{0, 4}, {0, 4}, {0, 4}, {0, 5}, {0, 4}, {0, 4}, {0, 4}};
+
+	private static final PieceShape[][] TABLE = buildTable();
+
+	private final int type;
+	private final int orientation;
+	private final int[] blockOffsets;
+	private final int minRowOffset;
+	private final int maxRowOffset;
+	private final int minColOffset;
+	private final int maxColOffset;
+	private final int[] rowMasks;
+	private final int[] colBottomOffsets;
+
+	/**
+	 * Private Constructor, only used to fill up the table.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @param orientation orientation number of the shape
+	 * @param blockOffsets offsets of the 4 blocks from the pivot
+	 */
+	private PieceShape(int type, int orientation, int[] blockOffsets) {
+		this.type = type;
+		this.orientation = orientation;
+		this.blockOffsets = blockOffsets;
+
+		int minRow = Integer.MAX_VALUE;
+		int maxRow = Integer.MIN_VALUE;
+		int minCol = Integer.MAX_VALUE;
+		int maxCol = Integer.MIN_VALUE;
+		for (int i = 0; i < NUM_BLOCKS * 2; i += 2) {
+			minRow = Math.min(minRow, blockOffsets[i]);
+			maxRow = Math.max(maxRow, blockOffsets[i]);
+			minCol = Math.min(minCol, blockOffsets[i + 1]);
+			maxCol = Math.max(maxCol, blockOffsets[i + 1]);
+		}
+		minRowOffset = minRow;
+		maxRowOffset = maxRow;
+		minColOffset = minCol;
+		maxColOffset = maxCol;
+
+		rowMasks = new int[maxRow - minRow + 1];
+		for (int i = 0; i < NUM_BLOCKS * 2; i += 2) {
+			rowMasks[blockOffsets[i] - minRow] |= 1 << (blockOffsets[i + 1] - minCol);
+		}
+		colBottomOffsets = new int[maxCol - minCol + 1];
+		Arrays.fill(colBottomOffsets, Integer.MIN_VALUE);
+		for (int i = 0; i < NUM_BLOCKS * 2; i += 2) {
+			int col = blockOffsets[i + 1] - minCol;
+			colBottomOffsets[col] = Math.max(colBottomOffsets[col], blockOffsets[i]);
+		}
+	}
+	/**
+	 * This private helper function builds the shared table
+	 * from BLOCK_OFFSETS, repeating orientations of pieces
+	 * that have less than NUM_ORIENTATIONS of them.
+	 * @return PieceShape[][] indexed by type and then orientation
+	 */
+	private static PieceShape[][] buildTable() {
+		PieceShape[][] table = new PieceShape[NUM_TYPES][NUM_ORIENTATIONS];
+
+		for (int type = 0; type < NUM_TYPES; type++) {
+			int numDistinct = BLOCK_OFFSETS[type].length;
+			for (int orient = 0; orient < NUM_ORIENTATIONS; orient++) {
+				if (orient < numDistinct)
+					table[type][orient] = new PieceShape(type, orient, BLOCK_OFFSETS[type][orient]);
+				else
+					table[type][orient] = table[type][orient % numDistinct];
+			}
+		}
+		return table;
+	}
+	/**
+	 * Static Function that looks up one shape of the table.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @param orientation orientation number of the shape
+	 * @return PieceShape of that type and orientation
+	 */
+	public static PieceShape of(int type, int orientation) {
+		return TABLE[type][orientation];
+	}
+	/**
+	 * Static Function that returns how many distinct
+	 * orientations a Tetrimino type has.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @return int 1, 2 or 4
+	 */
+	public static int numDistinctOrientations(int type) {
+		return BLOCK_OFFSETS[type].length;
+	}
+	/**
+	 * Static Function that returns the orientation a
+	 * clockwise rotation brings a Tetrimino type to.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @param orientation current orientation number
+	 * @return int next orientation number
+	 */
+	public static int nextOrientation(int type, int orientation) {
+		return (orientation + 1) % BLOCK_OFFSETS[type].length;
+	}
+	/**
+	 * Static Function that returns the pivot row
+	 * of a new piece of a Tetrimino type.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @return int row of the pivot
+	 */
+	public static int spawnRow(int type) {
+		return SPAWN_PIVOTS[type][0];
+	}
+	/**
+	 * Static Function that returns the pivot col
+	 * of a new piece of a Tetrimino type.
+	 * @param type Tetrimino type (one of the TYPE_ constants)
+	 * @return int col of the pivot
+	 */
+	public static int spawnCol(int type) {
+		return SPAWN_PIVOTS[type][1];
+	}
+	/**
+	 * Getter for the Tetrimino type of this shape.
+	 * @return type member
+	 */
+	public int getType() {
+		return type;
+	}
+	/**
+	 * Getter for the orientation number of this shape.
+	 * @return orientation member
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
+	/**
+	 * Getter for one block offset.
+	 * @param index 0 to 7. Index 0 = first block row offset,
+	 * 				index 1 = first block col offset, etc.
+	 * @return int offset from the pivot
+	 */
+	public int getBlockOffset(int index) {
+		return blockOffsets[index];
+	}
+	/**
+	 * Writes the block coords of this shape at a pivot
+	 * into a caller-supplied array.
+	 * @param pivotRow row of the pivot
+	 * @param pivotCol col of the pivot
+	 * @param coords array of size 8 to write the coords into
+	 * @return coords
+	 */
+	public int[] blockCoords(int pivotRow, int pivotCol, int[] coords) {
+		for (int i = 0; i < NUM_BLOCKS * 2; i += 2) {
+			coords[i] = pivotRow + blockOffsets[i];
+			coords[i + 1] = pivotCol + blockOffsets[i + 1];
+		}
+		return coords;
+	}
+	/**
+	 * Getter for the topmost row offset of the bounding box.
+	 * @return minRowOffset member
+	 */
+	public int getMinRowOffset() {
+		return minRowOffset;
+	}
+	/**
+	 * Getter for the bottommost row offset of the bounding box.
+	 * @return maxRowOffset member
+	 */
+	public int getMaxRowOffset() {
+		return maxRowOffset;
+	}
+	/**
+	 * Getter for the leftmost col offset of the bounding box.
+	 * @return minColOffset member
+	 */
+	public int getMinColOffset() {
+		return minColOffset;
+	}
+	/**
+	 * Getter for the rightmost col offset of the bounding box.
+	 * @return maxColOffset member
+	 */
+	public int getMaxColOffset() {
+		return maxColOffset;
+	}
+	/**
+	 * Getter for how many rows the bounding box spans.
+	 * @return int height of the shape
+	 */
+	public int getHeight() {
+		return rowMasks.length;
+	}
+	/**
+	 * Getter for how many cols the bounding box spans.
+	 * @return int width of the shape
+	 */
+	public int getWidth() {
+		return colBottomOffsets.length;
+	}
+	/**
+	 * Getter for the bottommost block of one col of the bounding box.
+	 * @param col 0 to getWidth() - 1, from the left of the bounding box
+	 * @return int row offset from the pivot of the lowest block in that col
+	 */
+	public int getColBottomOffset(int col) {
+		return colBottomOffsets[col];
+	}
+	/**
+	 * Getter for the mask of one row of the bounding box.
+	 * @param row 0 to getHeight() - 1, from the top of the bounding box
+	 * @return int where bit i is set iff col (minColOffset + i) is a block
+	 */
+	public int getRowMask(int row) {
+		return rowMasks[row];
+	}
+	/**
+	 * Checker if this shape fits inside a board at a pivot.
+	 * @param pivotRow row of the pivot
+	 * @param pivotCol col of the pivot
+	 * @param numRows how many rows the board has
+	 * @param numCols how many cols the board has
+	 * @return true if every block is on the board
+	 * 		   false otherwise
+	 */
+	public boolean isInBounds(int pivotRow, int pivotCol, int numRows, int numCols) {
+		return pivotRow + minRowOffset >= 0 && pivotRow + maxRowOffset < numRows
+			&& pivotCol + minColOffset >= 0 && pivotCol + maxColOffset < numCols;
+	}
+}
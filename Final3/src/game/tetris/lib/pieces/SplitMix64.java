@@ -0,0 +1,64 @@
+package game.tetris.lib.pieces;
+
+/**
+ * SplitMix64 is the random source of the generators which used
+ * a SplittableRandom: it draws the same numbers as a
+ * SplittableRandom of the same seed, but its whole state is
+ * one long which can be read and set (see PieceGenerator.getState()).
+ *
+ * @author Rahul
+ *
+ */
+final class SplitMix64 {
+	//Gamma of a SplittableRandom made from a seed
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long state;
+
+	/**
+	 * Constructor.
+	 * @param seed seed of the sequence
+	 */
+	SplitMix64(long seed) {
+		state = seed;
+	}
+	/**
+	 * Getter for the state, the seed after every number drawn.
+	 * @return long state
+	 */
+	long getState() {
+		return state;
+	}
+	/**
+	 * Setter for the state. Any long is one.
+	 * @param state long from getState(), or a seed
+	 * @return Nothing
+	 */
+	void setState(long state) {
+		this.state = state;
+	}
+	/**
+	 * Draws an int from 0 up to a bound, like SplittableRandom.nextInt().
+	 * @param bound highest int drawn plus one, positive
+	 * @return int from 0 to bound - 1
+	 */
+	int nextInt(int bound) {
+		int r = mix32(state += GOLDEN_GAMMA);
+		int m = bound - 1;
+		if ((bound & m) == 0)
+			return r & m;
+		//Draws again rather than favoring the lowest ints.
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(state += GOLDEN_GAMMA) >>> 1)
+			continue;
+		return r;
+	}
+	/**
+	 * Static Function that mixes a state into 32 random bits.
+	 * @param z state
+	 * @return int random bits
+	 */
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+}
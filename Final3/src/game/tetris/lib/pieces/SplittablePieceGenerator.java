@@ -0,0 +1,65 @@
+package game.tetris.lib.pieces;
+
+/**
+ * SplittablePieceGenerator picks every type with the same
+ * chance, like UniformPieceGenerator, but draws from a
+ * SplittableRandom (see SplitMix64): it is faster and has better
+ * statistical quality than java.util.Random, and it has no locking.
+ *
+ * @author Rahul
+ *
+ */
+public class SplittablePieceGenerator extends PieceGenerator {
+	//Factory for Game and BatchSimulator
+	public static final PieceGeneratorFactory FACTORY = new PieceGeneratorFactory() {
+		public PieceGenerator newGenerator(long seed) {
+			return new SplittablePieceGenerator(seed);
+		}
+	};
+
+	private SplitMix64 randomizer;
+
+	/**
+	 * Constructor with the default lookahead.
+	 * @param seed seed of the sequence
+	 */
+	public SplittablePieceGenerator(long seed) {
+		this(seed, DEFAULT_LOOKAHEAD);
+	}
+	/**
+	 * Constructor.
+	 * @param seed seed of the sequence
+	 * @param lookahead how many upcoming types can be peeked
+	 */
+	public SplittablePieceGenerator(long seed, int lookahead) {
+		super(lookahead);
+		randomizer = new SplitMix64(seed);
+		reset(seed);
+	}
+	@Override
+	public int getKind() {
+		return KIND_SPLITTABLE;
+	}
+	@Override
+	protected void reseed(long seed) {
+		randomizer.setState(seed);
+	}
+	@Override
+	protected long getRandomState() {
+		return randomizer.getState();
+	}
+	@Override
+	protected int getExtraState() {
+		return 0;
+	}
+	@Override
+	protected void setState(long randomState, int extraState) {
+		if (extraState != 0)
+			throw new IllegalArgumentException("Not a splittable generator state: " + extraState);
+		randomizer.setState(randomState);
+	}
+	@Override
+	protected int generate() {
+		return randomizer.nextInt(PieceShape.NUM_TYPES);
+	}
+}
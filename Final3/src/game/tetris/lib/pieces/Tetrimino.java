@@ -17,6 +17,15 @@ import java.awt.Color;
  * a tetrimino. Plus, it has the rotation and translation
  * that the player wants the tetrimino to do on the Board.
  * 
+ * The shape of every orientation of every Tetrimino type comes
+ * from one shared table (see PieceShape), with the second block
+ * of a piece as the pivot the shape is placed around.
+ * 
+ * Every function that returns block coords has a version
+ * which writes them into a caller-supplied array of size 8
+ * instead of allocating a new one, so a Game can tick
+ * without creating garbage.
+ * 
  * @author Rahul
  */
 public abstract class Tetrimino {
@@ -34,14 +43,21 @@ public abstract class Tetrimino {
 	
 	protected Move translation;
 	protected Rotate rotation;
+	
+	protected final int type;
+	protected int orientationNum;
 	/**
-	 * Constructs a Tetrimino
-	 * @param initCoords arrray of integers with ordering
-	 * 				     Element 1 = first block row, element 2 = first block col,
-	 * 					 Element 3 = second block row, etc.
+	 * Constructs a Tetrimino at its spawn position,
+	 * in orientation 0.
+	 * @param type Tetrimino type (one of PieceShape's TYPE_ constants)
 	 * @param color The color the Tetrimino will be.
 	 */
-	public Tetrimino(int[] initCoords, Color color) {
+	public Tetrimino(int type, Color color) {
+		this.type = type;
+		orientationNum = 0;
+		
+		int[] initCoords = PieceShape.of(type, 0).blockCoords(PieceShape.spawnRow(type), 
+															  PieceShape.spawnCol(type), new int[8]);
 		firstBlockRow = initCoords[0];
 		firstBlockCol = initCoords[1];
 		secondBlockRow = initCoords[2];
@@ -63,8 +79,15 @@ public abstract class Tetrimino {
 	 * 	       Tetrimino block dimensions.
 	 */
 	public int[] getTetBlockCoords() {
-		int[] newTetBlockCoords = new int[8];
-		
+		return getTetBlockCoords(new int[8]);
+	}
+	/**
+	 * Gets the Tetrimino block dimension members
+	 * without allocating.
+	 * @param newTetBlockCoords array of size 8 to write the dimensions into
+	 * @return newTetBlockCoords
+	 */
+	public int[] getTetBlockCoords(int[] newTetBlockCoords) {
 		newTetBlockCoords[0] = firstBlockRow;
 		newTetBlockCoords[1] = firstBlockCol;
 		newTetBlockCoords[2] = secondBlockRow;
@@ -141,7 +164,14 @@ public abstract class Tetrimino {
 	 * 							   Element 3 = second block row, etc.
 	 */
 	public int[] translatedTetBlockCoords() {
-		int[] newTetBlockCoords = new int[8];
+		return translatedTetBlockCoords(new int[8]);
+	}
+	/**
+	 * Same as translatedTetBlockCoords(), but without allocating.
+	 * @param newTetBlockCoords array of size 8 to write the coords into
+	 * @return newTetBlockCoords
+	 */
+	public int[] translatedTetBlockCoords(int[] newTetBlockCoords) {
 		int amtToMove = translation.toInt();
 		
 		newTetBlockCoords[0] = firstBlockRow;
@@ -165,8 +195,14 @@ public abstract class Tetrimino {
 	 * 							   Element 3 = second block row, etc.
 	 */
 	public int[] fallingTetBlockCoords() {
-		int[] newTetBlockCoords = new int[8];
-		
+		return fallingTetBlockCoords(new int[8]);
+	}
+	/**
+	 * Same as fallingTetBlockCoords(), but without allocating.
+	 * @param newTetBlockCoords array of size 8 to write the coords into
+	 * @return newTetBlockCoords
+	 */
+	public int[] fallingTetBlockCoords(int[] newTetBlockCoords) {
 		newTetBlockCoords[0] = firstBlockRow + 1;
 		newTetBlockCoords[1] = firstBlockCol;
 		newTetBlockCoords[2] = secondBlockRow + 1;
@@ -181,11 +217,38 @@ public abstract class Tetrimino {
 	 * Returns a array of integers that contain information on 
 	 * the new rows and cols of the Tetrimino blocks after the 
 	 * rotation specified in member rotation is done.
-	 * This method is abstract since each Tetrimino subclass has a different rotation.
 	 * @return array of integers. Element 1 = first block row, element 2 = first block col,
 	 * 							   Element 3 = second block row, etc.
 	 */
-	public abstract int[] rotatingTetBlockCoords();
+	public int[] rotatingTetBlockCoords() {
+		return rotatingTetBlockCoords(new int[8]);
+	}
+	/**
+	 * Same as rotatingTetBlockCoords(), but without allocating.
+	 * 
+	 * The blocks move by the difference between the block offsets
+	 * of the new and the current orientation in the shape table.
+	 * @param newTetBlockCoords array of size 8 to write the coords into
+	 * @return newTetBlockCoords
+	 */
+	public int[] rotatingTetBlockCoords(int[] newTetBlockCoords) {
+		getTetBlockCoords(newTetBlockCoords);
+		//If there is no rotation desired, then we 
+		//return the current Tetrimino block coords.
+		if (rotation == Rotate.NONE)
+			return newTetBlockCoords;
+		
+		PieceShape currShape = PieceShape.of(type, orientationNum);
+		orientationNum = PieceShape.nextOrientation(type, orientationNum);
+		PieceShape newShape = PieceShape.of(type, orientationNum);
+		
+		for (int i = 0; i < 8; i++)
+			newTetBlockCoords[i] += newShape.getBlockOffset(i) - currShape.getBlockOffset(i);
+		
+		//Stop the block from continuously rotating after this rotation
+		rotation = Rotate.NONE;
+		return newTetBlockCoords;
+	}
 	/**
 	 * Function that checks in params are actually coordinates
 	 * of this Tetrimono's Blocks.
@@ -210,7 +273,37 @@ public abstract class Tetrimino {
 	 * Getter for orientation number.
 	 * @return orientationNum
 	 */
-	public abstract int getOrientationNum();
+	public int getOrientationNum() {
+		return orientationNum;
+	}
+	/**
+	 * Getter for the Tetrimino type.
+	 * @return type member (one of PieceShape's TYPE_ constants)
+	 */
+	public int getType() {
+		return type;
+	}
+	/**
+	 * Getter for the row of the pivot (the second block).
+	 * @return secondBlockRow member
+	 */
+	public int getPivotRow() {
+		return secondBlockRow;
+	}
+	/**
+	 * Getter for the col of the pivot (the second block).
+	 * @return secondBlockCol member
+	 */
+	public int getPivotCol() {
+		return secondBlockCol;
+	}
+	/**
+	 * Getter for the table entry of the current orientation.
+	 * @return PieceShape of this piece
+	 */
+	public PieceShape getShape() {
+		return PieceShape.of(type, orientationNum);
+	}
 	/**
 	 * Setter that sets all members of this piece
 	 * @param newTetBlockCoords list of 8 coords of Tetrimino blocks
@@ -219,7 +312,34 @@ public abstract class Tetrimino {
 	 * @param orientNum Int specifying Tetrimino's orientation number 
 	 * @return Nothing
 	 */
-	public abstract void setAllMembersOfPiece(int [] newTetBlockCoords, Move trans, Rotate rot, int orientNum);
+	public void setAllMembersOfPiece(int [] newTetBlockCoords, Move trans, Rotate rot, int orientNum) {
+		setAllTetBlockCoords(newTetBlockCoords);
+		translate(trans);
+		rotate(rot);
+		orientationNum = orientNum % PieceShape.numDistinctOrientations(type);
+	}
+	/**
+	 * Static Function that returns a heap-allocated
+	 * Tetrmino subclass instance of a Tetrimino type.
+	 * @param type one of PieceShape's TYPE_ constants
+	 * @return Tetrmino subclass instance of that type
+	 */
+	public static Tetrimino typeToTetrimino(int type) {
+		if (type == PieceShape.TYPE_I)
+			return new I();
+		if (type == PieceShape.TYPE_J)
+			return new J();
+		if (type == PieceShape.TYPE_L)
+			return new L();
+		if (type == PieceShape.TYPE_O)
+			return new O();
+		if (type == PieceShape.TYPE_S)
+			return new S();
+		if (type == PieceShape.TYPE_T)
+			return new T();
+		else
+			return new Z();
+	}
 	/**
 	 * Static Function that returns a heap-allocated
 	 * Tetrmino subclass instance depending on the param.
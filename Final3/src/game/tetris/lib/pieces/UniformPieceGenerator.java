@@ -0,0 +1,88 @@
+package game.tetris.lib.pieces;
+
+/**
+ * UniformPieceGenerator picks every type with the same
+ * chance, independently of the previous ones.
+ *
+ * It draws the same numbers as java.util.Random, the way Game
+ * always did, so a seed gives the same games as before generators
+ * existed. The 48-bit linear congruential generator of Random is
+ * kept here as a long, so its state can be saved (see getState()).
+ *
+ * @author Rahul
+ *
+ */
+public class UniformPieceGenerator extends PieceGenerator {
+	//Factory for Game and BatchSimulator
+	public static final PieceGeneratorFactory FACTORY = new PieceGeneratorFactory() {
+		public PieceGenerator newGenerator(long seed) {
+			return new UniformPieceGenerator(seed);
+		}
+	};
+
+	//Constants of java.util.Random
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	//48-bit state of the generator, as in java.util.Random
+	private long randomState;
+
+	/**
+	 * Constructor with the default lookahead.
+	 * @param seed seed of the sequence
+	 */
+	public UniformPieceGenerator(long seed) {
+		this(seed, DEFAULT_LOOKAHEAD);
+	}
+	/**
+	 * Constructor.
+	 * @param seed seed of the sequence
+	 * @param lookahead how many upcoming types can be peeked
+	 */
+	public UniformPieceGenerator(long seed, int lookahead) {
+		super(lookahead);
+		reset(seed);
+	}
+	@Override
+	public int getKind() {
+		return KIND_UNIFORM;
+	}
+	@Override
+	protected void reseed(long seed) {
+		//Scrambled as Random.setSeed() does
+		randomState = (seed ^ MULTIPLIER) & MASK;
+	}
+	@Override
+	protected long getRandomState() {
+		return randomState;
+	}
+	@Override
+	protected int getExtraState() {
+		return 0;
+	}
+	@Override
+	protected void setState(long randomState, int extraState) {
+		if ((randomState & ~MASK) != 0 || extraState != 0)
+			throw new IllegalArgumentException("Not a uniform generator state: " + randomState + ", " + extraState);
+		this.randomState = randomState;
+	}
+	@Override
+	protected int generate() {
+		//Randomly pick a number from 0 to NUM_TYPES-1, as Random.nextInt() does.
+		//Draws again rather than favoring the lowest numbers.
+		int bound = PieceShape.NUM_TYPES;
+		int r = nextBits();
+		for (int u = r; u - (r = u % bound) + (bound - 1) < 0; u = nextBits())
+			continue;
+		return r;
+	}
+	/**
+	 * This helper function steps the generator, like Random.next(31).
+	 * @return int 31 random bits
+	 */
+	private int nextBits() {
+		randomState = (randomState * MULTIPLIER + ADDEND) & MASK;
+		return (int)(randomState >>> (48 - 31));
+	}
+}
@@ -0,0 +1,145 @@
+package game.tetris.lib.replay;
+
+import game.tetris.lib.Game;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Journal is the append-only format a Tetris Game is recorded in:
+ * the seed of the game and every input of the Player, which is
+ * all it takes to play the same game again (see ReplayPlayer).
+ *
+ *   magic      4 bytes  "TTRJ"
+ *   version    1 byte   VERSION
+ *   seed       8 bytes  seed of the piece sequence (see Game(long))
+ *   start      varint length, then a save in the SaveFormat of the
+ *              game when recording started, or nothing (length 0)
+ *              if it started as a new game from the seed
+ *   events     one varint each: (tickDelta << INPUT_BITS) | input,
+ *              and for a CHECKPOINT, a varint length and a save in
+ *              the SaveFormat of the game at its tick
+ *   index      once the journal is closed: the tick of its END event,
+ *              the number of checkpoints and, for each one, the offset
+ *              of its event and its tick, as varint deltas from the
+ *              checkpoint before
+ *   footer     offset of the index (4 bytes), then "TTRX"
+ *
+ * The tick of an event is how many frames the game ran before the
+ * input (see Game.getFrameCount()), and tickDelta is how many it ran
+ * since the event before. Inputs are the constants below. A journal
+ * ends with an END event at the last tick; a journal cut off by a
+ * crash ends at its last whole event instead, and has no index.
+ *
+ * Checkpoints are recorded every CHECKPOINT_PIECES pieces, so a
+ * replay can start again from any of them (see ReplayPlayer.seek())
+ * instead of from the start. Version 1 journals have none.
+ *
+ * Varints are unsigned LEB128: 7 bits a byte, lowest bits first,
+ * the top bit set on every byte but the last. Most events take one
+ * or two bytes, so an hour of play is a few kilobytes.
+ *
+ * @author Rahul
+ *
+ */
+public class Journal {
+	public static final int VERSION = 2;
+	public static final int CHECKPOINT_PIECES = 100;
+	//"TTRJ"
+	static final int MAGIC = 0x5454524A;
+	//"TTRX"
+	static final int INDEX_MAGIC = 0x54545258;
+	static final int FOOTER_SIZE = 8;
+
+	//Inputs of events
+	public static final int END = 0;
+	public static final int LEFT = 1;
+	public static final int RIGHT = 2;
+	public static final int ROTATE = 3;
+	public static final int SOFT_DROP = 4;
+	public static final int HARD_DROP = 5;
+	public static final int UNDO = 6;
+	public static final int PAUSE = 7;
+	public static final int RESUME = 8;
+	//Not an input of the Player: the game as it was at the tick
+	public static final int CHECKPOINT = 9;
+	public static final int NUM_INPUTS = 10;
+	public static final int INPUT_BITS = 4;
+
+	//Longest varint of a long
+	static final int MAX_VARINT_SIZE = 10;
+
+	/**
+	 * Private Constructor, Journal only has static functions.
+	 */
+	private Journal() {
+	}
+	/**
+	 * Static Function that applies an input to a Game,
+	 * as the Player did when it was recorded.
+	 * @param game Game to apply the input to
+	 * @param input one of the inputs, but END and CHECKPOINT
+	 * @return Nothing
+	 */
+	public static void apply(Game game, int input) {
+		switch (input) {
+		case LEFT:
+			game.moveLeft();
+			break;
+		case RIGHT:
+			game.moveRight();
+			break;
+		case ROTATE:
+			game.rotate();
+			break;
+		case SOFT_DROP:
+			game.softDrop();
+			break;
+		case HARD_DROP:
+			game.hardDrop();
+			break;
+		case UNDO:
+			game.undo();
+			break;
+		case PAUSE:
+			game.setGameToPause(true);
+			break;
+		case RESUME:
+			game.setGameToPause(false);
+			break;
+		default:
+			throw new IllegalArgumentException("Not an input to apply: " + input);
+		}
+	}
+	/**
+	 * Static Function that writes a varint.
+	 * @param bytes ByteBuffer with at least MAX_VARINT_SIZE bytes left
+	 * @param value value to write, as unsigned
+	 * @return Nothing
+	 */
+	static void putVarint(ByteBuffer bytes, long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		bytes.put((byte)value);
+	}
+	/**
+	 * Static Function that reads a varint.
+	 * @param bytes ByteBuffer at the varint
+	 * @return long value of the varint
+	 * @throws BufferUnderflowException if the varint is cut off
+	 * @throws IOException if the varint is longer than a long
+	 */
+	static long getVarint(ByteBuffer bytes) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+			int b = bytes.get();
+			value |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Varint is too long");
+	}
+}
@@ -0,0 +1,332 @@
+package game.tetris.lib.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JournalReader reads a game recorded in the Journal format,
+ * one event at a time, without allocating.
+ *
+ * A journal file is mapped into memory whole, so reading it
+ * is only decoding varints, and the offset of any event can
+ * be gone back to (see getOffset() and seek()).
+ *
+ * The index of the checkpoints is read from the end of the journal
+ * when it is opened, or if it has none (it was cut off, or is of
+ * version 1), made by reading the events once. Any checkpoint can
+ * then be gone to right away with seekCheckpoint().
+ *
+ * @author Rahul
+ *
+ */
+public class JournalReader {
+	private ByteBuffer bytes;
+	private long seed;
+	//Save of the game when recording started, null for a new game
+	private ByteBuffer start;
+	//Offset of the first event
+	private int eventsOffset;
+	//Offset of the event and tick of every checkpoint
+	private List<Integer> checkpointOffsets;
+	private List<Long> checkpointTicks;
+	//Tick of the last event
+	private long endTick;
+
+	private long tick;
+	private int input;
+	//If the END event was read
+	private boolean ended;
+	//Save of the checkpoint last read, in the journal
+	private int checkpointStart;
+	private int checkpointSize;
+
+	/**
+	 * Constructor of a JournalReader, which reads the header and the
+	 * index of the journal. It is then before the first event.
+	 * @param bytes ByteBuffer of the journal, from its position to its limit
+	 * @throws IOException if it isn't a journal of this format
+	 */
+	public JournalReader(ByteBuffer bytes) throws IOException {
+		this.bytes = bytes.slice();
+		int version;
+		try {
+			if (this.bytes.getInt() != Journal.MAGIC)
+				throw new IOException("Not a journal");
+			version = this.bytes.get();
+			if (version < 1 || version > Journal.VERSION)
+				throw new IOException("Unknown journal version " + version);
+			seed = this.bytes.getLong();
+			long startSize = Journal.getVarint(this.bytes);
+			if (startSize < 0 || startSize > this.bytes.remaining())
+				throw new IOException("Journal start is cut off");
+			if (startSize > 0) {
+				start = this.bytes.slice();
+				start.limit((int)startSize);
+				this.bytes.position(this.bytes.position() + (int)startSize);
+			}
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Journal header is cut off");
+		}
+		eventsOffset = this.bytes.position();
+		checkpointOffsets = new ArrayList<Integer>();
+		checkpointTicks = new ArrayList<Long>();
+		if (version < 2 || readIndex() == false)
+			scanIndex();
+		rewind();
+	}
+	/**
+	 * Static Function that opens a journal file,
+	 * mapping it into memory.
+	 * @param path Path of the file
+	 * @return JournalReader of the file
+	 * @throws IOException if it cannot be read, or isn't a journal
+	 */
+	public static JournalReader open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new JournalReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			//The mapping stays valid once the channel is closed.
+			channel.close();
+		}
+	}
+	/**
+	 * This helper function reads the index of the checkpoints from the
+	 * footer, and ends the events where the index starts.
+	 * @return true if it was read
+	 * 		   false if there is no index, or it is corrupted
+	 */
+	private boolean readIndex() {
+		int footer = bytes.limit() - Journal.FOOTER_SIZE;
+		if (footer < eventsOffset || bytes.getInt(footer + 4) != Journal.INDEX_MAGIC)
+			return false;
+		int indexOffset = bytes.getInt(footer);
+		if (indexOffset < eventsOffset || indexOffset > footer)
+			return false;
+		ByteBuffer index = bytes.duplicate();
+		index.position(indexOffset);
+		index.limit(footer);
+		try {
+			endTick = Journal.getVarint(index);
+			long numCheckpoints = Journal.getVarint(index);
+			long offset = 0;
+			long tick = 0;
+			for (long i = 0; i < numCheckpoints; i++) {
+				offset += Journal.getVarint(index);
+				tick += Journal.getVarint(index);
+				if (offset < eventsOffset || offset >= indexOffset)
+					throw new IOException("Checkpoint out of the journal: " + offset);
+				checkpointOffsets.add((int)offset);
+				checkpointTicks.add(tick);
+			}
+		}
+		catch (IOException ex) {
+			checkpointOffsets.clear();
+			checkpointTicks.clear();
+			return false;
+		}
+		catch (BufferUnderflowException ex) {
+			checkpointOffsets.clear();
+			checkpointTicks.clear();
+			return false;
+		}
+		bytes.limit(indexOffset);
+		return true;
+	}
+	/**
+	 * This helper function makes the index of the checkpoints
+	 * by reading every event of the journal.
+	 * @return Nothing
+	 * @throws IOException if an event is corrupted
+	 */
+	private void scanIndex() throws IOException {
+		rewind();
+		int offset = bytes.position();
+		while (next()) {
+			if (input == Journal.CHECKPOINT) {
+				checkpointOffsets.add(offset);
+				checkpointTicks.add(tick);
+			}
+			offset = bytes.position();
+		}
+		endTick = tick;
+	}
+	/**
+	 * Reads the next event. The save of a CHECKPOINT event
+	 * is skipped over, and can be had with getCheckpoint().
+	 * @return true if an input was read (see getTick() and getInput())
+	 * 		   false at the end of the journal, at its END event or
+	 * 		   where it was cut off, with getTick() the last tick
+	 * @throws IOException if the event is corrupted
+	 */
+	public boolean next() throws IOException {
+		if (ended || bytes.hasRemaining() == false)
+			return false;
+		int offset = bytes.position();
+		long event;
+		try {
+			event = Journal.getVarint(bytes);
+			if (((int)event & ((1 << Journal.INPUT_BITS) - 1)) == Journal.CHECKPOINT) {
+				long size = Journal.getVarint(bytes);
+				if (size < 0 || size > bytes.remaining())
+					throw new BufferUnderflowException();
+				checkpointStart = bytes.position();
+				checkpointSize = (int)size;
+				bytes.position(checkpointStart + checkpointSize);
+			}
+		}
+		catch (BufferUnderflowException ex) {
+			//A cut off event at the end is dropped, like a torn write.
+			bytes.position(offset);
+			bytes.limit(offset);
+			return false;
+		}
+		long delta = event >>> Journal.INPUT_BITS;
+		int newInput = (int)event & ((1 << Journal.INPUT_BITS) - 1);
+		if (newInput >= Journal.NUM_INPUTS)
+			throw new IOException("Unknown input " + newInput + " at offset " + offset);
+		tick += delta;
+		input = newInput;
+		if (input == Journal.END) {
+			ended = true;
+			return false;
+		}
+		return true;
+	}
+	/**
+	 * Goes back before the first event.
+	 * @return Nothing
+	 */
+	public void rewind() {
+		seek(eventsOffset, 0);
+	}
+	/**
+	 * Goes to an event, from where getOffset() was before it was read
+	 * and the tick of the event before it.
+	 * @param offset offset of the event
+	 * @param tickBefore tick of the event before it
+	 * @return Nothing
+	 */
+	public void seek(int offset, long tickBefore) {
+		if (offset < eventsOffset || offset > bytes.limit())
+			throw new IllegalArgumentException("Offset out of the journal: " + offset);
+		bytes.position(offset);
+		tick = tickBefore;
+		input = Journal.END;
+		ended = false;
+	}
+	/**
+	 * Goes to a checkpoint and reads it, so getTick() is its tick
+	 * and getCheckpoint() its save. Reading on gives the events after it.
+	 * @param index number of the checkpoint, less than getNumCheckpoints()
+	 * @return Nothing
+	 * @throws IOException if the checkpoint is corrupted
+	 */
+	public void seekCheckpoint(int index) throws IOException {
+		seek(checkpointOffsets.get(index), 0);
+		if (next() == false || input != Journal.CHECKPOINT)
+			throw new IOException("No checkpoint at offset " + checkpointOffsets.get(index));
+		tick = checkpointTicks.get(index);
+	}
+	/**
+	 * Finds the last checkpoint at or before a tick, from the index.
+	 * @param target tick to find a checkpoint for
+	 * @return int number of the checkpoint, or -1 if there is none
+	 */
+	public int findCheckpoint(long target) {
+		int index = Collections.binarySearch(checkpointTicks, target);
+		if (index < 0)
+			return -index - 2;
+		//The last of checkpoints at the same tick
+		while (index + 1 < checkpointTicks.size() && checkpointTicks.get(index + 1) == target)
+			index++;
+		return index;
+	}
+	/**
+	 * Getter for how many checkpoints the journal has.
+	 * @return int number of checkpoints
+	 */
+	public int getNumCheckpoints() {
+		return checkpointTicks.size();
+	}
+	/**
+	 * Getter for the tick of a checkpoint.
+	 * @param index number of the checkpoint, less than getNumCheckpoints()
+	 * @return long tick of the checkpoint
+	 */
+	public long getCheckpointTick(int index) {
+		return checkpointTicks.get(index);
+	}
+	/**
+	 * Getter for the save of the CHECKPOINT event last read.
+	 * @return ByteBuffer of the save, in the SaveFormat
+	 */
+	public ByteBuffer getCheckpoint() {
+		ByteBuffer save = bytes.duplicate();
+		save.limit(checkpointStart + checkpointSize);
+		save.position(checkpointStart);
+		return save.slice();
+	}
+	/**
+	 * Getter for the tick of the last event of the journal,
+	 * its END event or where it was cut off.
+	 * @return long frames the recorded game ran in all
+	 */
+	public long getEndTick() {
+		return endTick;
+	}
+	/**
+	 * Getter for the seed of the game.
+	 * @return long seed of the piece sequence
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	/**
+	 * Getter for the save of the game when recording started.
+	 * @return ByteBuffer of the save, in the SaveFormat,
+	 * 		   or null if it started as a new game from the seed
+	 */
+	public ByteBuffer getStart() {
+		return start == null ? null : start.duplicate();
+	}
+	/**
+	 * Getter for the tick of the event last read.
+	 * @return long frames the game ran before it
+	 */
+	public long getTick() {
+		return tick;
+	}
+	/**
+	 * Getter for the input of the event last read.
+	 * @return int one of Journal's inputs
+	 */
+	public int getInput() {
+		return input;
+	}
+	/**
+	 * Getter for the offset of the next event to read.
+	 * @return int offset from the start of the journal
+	 */
+	public int getOffset() {
+		return bytes.position();
+	}
+	/**
+	 * Checker if the journal was read to its END event,
+	 * so it wasn't cut off.
+	 * @return true if the END event was read
+	 * 		   false otherwise
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+}
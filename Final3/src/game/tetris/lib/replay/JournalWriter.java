@@ -0,0 +1,237 @@
+package game.tetris.lib.replay;
+
+import game.tetris.lib.Game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JournalWriter records a game in the Journal format,
+ * appending events to a channel through a buffer.
+ *
+ * Events go into the buffer, which is only written out when
+ * it fills up, on flush() and on close(). Recording an event
+ * allocates nothing and usually touches no file, so it can
+ * be done on the thread that runs the game.
+ *
+ * Checkpoints of the game are recorded every Journal.CHECKPOINT_PIECES
+ * pieces (see checkpointIfDue()), and close() writes their index.
+ *
+ * @author Rahul
+ *
+ */
+public class JournalWriter {
+	public static final int BUFFER_SIZE = 8192;
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	//Tick of the last event
+	private long lastTick;
+	private boolean closed;
+	//Bytes written out before the ones in the buffer
+	private long written;
+	//Offset of the event and tick of every checkpoint
+	private List<Integer> checkpointOffsets;
+	private List<Long> checkpointTicks;
+	//Pieces dealt (see PieceGenerator.getDealt()) when the next checkpoint is due, -1 until known
+	private long nextCheckpointDealt;
+
+	/**
+	 * Constructor of a JournalWriter, which writes the
+	 * header of the journal into its buffer right away.
+	 * @param channel WritableByteChannel to append to, closed by close()
+	 * @param seed seed of the game (see Game.getSeed())
+	 * @param start ByteBuffer of a save of the game when recording
+	 * 		  started (see Game.encodeSave()), or null for a new game
+	 * 		  from the seed
+	 * @throws IOException if the header cannot be written
+	 */
+	public JournalWriter(WritableByteChannel channel, long seed, ByteBuffer start) throws IOException {
+		this.channel = channel;
+		int startSize = start == null ? 0 : start.remaining();
+		buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 4 + 1 + 8 + Journal.MAX_VARINT_SIZE + startSize));
+		buffer.putInt(Journal.MAGIC);
+		buffer.put((byte)Journal.VERSION);
+		buffer.putLong(seed);
+		Journal.putVarint(buffer, startSize);
+		if (start != null)
+			buffer.put(start.duplicate());
+		lastTick = 0;
+		closed = false;
+		written = 0;
+		checkpointOffsets = new ArrayList<Integer>();
+		checkpointTicks = new ArrayList<Long>();
+		nextCheckpointDealt = -1;
+	}
+	/**
+	 * Static Function that starts a journal in a new file,
+	 * replacing any file already there.
+	 * @param path Path of the file, whose directory is created if needed
+	 * @param seed seed of the game (see Game.getSeed())
+	 * @param start ByteBuffer of a save of the game, or null for a new game
+	 * @return JournalWriter of the file
+	 * @throws IOException if the file cannot be made
+	 */
+	public static JournalWriter create(Path path, long seed, ByteBuffer start) throws IOException {
+		Path dir = path.toAbsolutePath().getParent();
+		if (dir != null)
+			Files.createDirectories(dir);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+											   StandardOpenOption.TRUNCATE_EXISTING);
+		return new JournalWriter(channel, seed, start);
+	}
+	/**
+	 * Records one input of the Player.
+	 * @param tick frames the game ran before the input (see Game.getFrameCount()),
+	 * 		  never less than the tick of the last event
+	 * @param input one of Journal's inputs, but END and CHECKPOINT
+	 * @return Nothing
+	 * @throws IOException if the buffer was full and couldn't be written out
+	 */
+	public void record(long tick, int input) throws IOException {
+		if (input <= Journal.END || input >= Journal.CHECKPOINT)
+			throw new IllegalArgumentException("Not an input to record: " + input);
+		append(tick, input);
+	}
+	/**
+	 * Records a checkpoint of the game if Journal.CHECKPOINT_PIECES
+	 * pieces were dealt since the last one, or since the first call.
+	 * Call it after every frame and input of the game.
+	 * @param game Game being recorded
+	 * @return true if a checkpoint was recorded
+	 * 		   false otherwise
+	 * @throws IOException if the buffer was full and couldn't be written out
+	 */
+	public boolean checkpointIfDue(Game game) throws IOException {
+		long dealt = game.getEngine().getGenerator().getDealt();
+		if (nextCheckpointDealt < 0)
+			nextCheckpointDealt = dealt + Journal.CHECKPOINT_PIECES;
+		if (dealt < nextCheckpointDealt)
+			return false;
+		checkpoint(game.getFrameCount(), game.encodeSave());
+		nextCheckpointDealt = dealt + Journal.CHECKPOINT_PIECES;
+		return true;
+	}
+	/**
+	 * Records a checkpoint: the game as it is at a tick,
+	 * after every input recorded so far.
+	 * @param tick frames the game ran (see Game.getFrameCount())
+	 * @param save ByteBuffer of a save of the game (see Game.encodeSave())
+	 * @return Nothing
+	 * @throws IOException if the buffer was full and couldn't be written out
+	 */
+	public void checkpoint(long tick, ByteBuffer save) throws IOException {
+		if (buffer.remaining() < 2 * Journal.MAX_VARINT_SIZE + save.remaining())
+			flush();
+		long offset = written + buffer.position();
+		append(tick, Journal.CHECKPOINT);
+		checkpointOffsets.add((int)offset);
+		checkpointTicks.add(tick);
+		Journal.putVarint(buffer, save.remaining());
+		if (buffer.remaining() >= save.remaining()) {
+			buffer.put(save.duplicate());
+			return;
+		}
+		//Bigger than the buffer: written out on its own.
+		flush();
+		ByteBuffer rest = save.duplicate();
+		while (rest.hasRemaining())
+			written += channel.write(rest);
+	}
+	/**
+	 * This helper function appends one event to the buffer,
+	 * writing the buffer out first if it might not fit.
+	 * @param tick tick of the event
+	 * @param input input of the event
+	 * @return Nothing
+	 * @throws IOException if the buffer couldn't be written out
+	 */
+	private void append(long tick, int input) throws IOException {
+		if (closed)
+			throw new IOException("Journal is closed");
+		if (tick < lastTick)
+			throw new IllegalArgumentException("Tick " + tick + " is before tick " + lastTick);
+		if (buffer.remaining() < Journal.MAX_VARINT_SIZE)
+			flush();
+		Journal.putVarint(buffer, ((tick - lastTick) << Journal.INPUT_BITS) | input);
+		lastTick = tick;
+	}
+	/**
+	 * Writes out everything recorded so far.
+	 * @return Nothing
+	 * @throws IOException if it cannot be written
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			written += channel.write(buffer);
+		buffer.clear();
+	}
+	/**
+	 * Ends the journal with an END event and the index of its
+	 * checkpoints, writes it out and closes the channel.
+	 * Nothing can be recorded afterwards.
+	 * @param tick frames the game ran in all (see Game.getFrameCount())
+	 * @return Nothing
+	 * @throws IOException if it cannot be written
+	 */
+	public void close(long tick) throws IOException {
+		try {
+			append(tick, Journal.END);
+			writeIndex(tick);
+		}
+		finally {
+			closed = true;
+			channel.close();
+		}
+	}
+	/**
+	 * This helper function writes out the buffer, then the index
+	 * of the checkpoints and the footer which points at it.
+	 * @param endTick tick of the END event
+	 * @return Nothing
+	 * @throws IOException if it cannot be written
+	 */
+	private void writeIndex(long endTick) throws IOException {
+		flush();
+		int indexOffset = (int)written;
+		ByteBuffer index = ByteBuffer.allocate((2 + 2 * checkpointTicks.size()) * Journal.MAX_VARINT_SIZE
+											   + Journal.FOOTER_SIZE);
+		Journal.putVarint(index, endTick);
+		Journal.putVarint(index, checkpointTicks.size());
+		long offset = 0;
+		long tick = 0;
+		for (int i = 0; i < checkpointTicks.size(); i++) {
+			Journal.putVarint(index, checkpointOffsets.get(i) - offset);
+			Journal.putVarint(index, checkpointTicks.get(i) - tick);
+			offset = checkpointOffsets.get(i);
+			tick = checkpointTicks.get(i);
+		}
+		index.putInt(indexOffset);
+		index.putInt(Journal.INDEX_MAGIC);
+		index.flip();
+		while (index.hasRemaining())
+			written += channel.write(index);
+	}
+	/**
+	 * Getter for how many checkpoints were recorded.
+	 * @return int number of checkpoints
+	 */
+	public int getNumCheckpoints() {
+		return checkpointTicks.size();
+	}
+	/**
+	 * Getter for the tick of the last event recorded.
+	 * @return long tick
+	 */
+	public long getLastTick() {
+		return lastTick;
+	}
+}
@@ -0,0 +1,191 @@
+package game.tetris.lib.replay;
+
+import game.tetris.lib.Game;
+import game.tetris.lib.SaveFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * ReplayPlayer plays a recorded game again, headless,
+ * from its Journal: it makes the Game the journal started
+ * from, then runs its frames (see Game.runFrame()) and
+ * applies its inputs at their ticks, as fast as it can.
+ *
+ * Since a Game only depends on its seed and its inputs,
+ * the game played is the very one that was recorded.
+ *
+ * A replay can also be played to any tick, forwards or backwards,
+ * with seek(): the game is made again from the last checkpoint
+ * of the journal before the tick, so at most Journal.CHECKPOINT_PIECES
+ * pieces are played, however long the game is.
+ *
+ * @author Rahul
+ *
+ */
+public class ReplayPlayer {
+	private JournalReader reader;
+	private Game game;
+	//Tick the game was made at, from the start or a checkpoint
+	private long baseTick;
+	//If the reader is at an input that wasn't applied yet
+	private boolean pending;
+
+	/**
+	 * Constructor of a ReplayPlayer, at the start of the journal.
+	 * @param reader JournalReader of the journal, before its first event
+	 * @throws IOException if the save the journal starts from is corrupted
+	 */
+	public ReplayPlayer(JournalReader reader) throws IOException {
+		this.reader = reader;
+		game = makeGame(reader.getStart());
+		baseTick = 0;
+		pending = false;
+	}
+	/**
+	 * This helper function makes the game of the journal as it was in a save.
+	 * @param save ByteBuffer of the save, in the SaveFormat, or null
+	 * 		  for a new game from the seed of the journal
+	 * @return Game of the save
+	 * @throws IOException if the save is corrupted, or of
+	 * 		   another kind of piece generator than the game
+	 */
+	private Game makeGame(ByteBuffer save) throws IOException {
+		Game newGame = new Game(reader.getSeed());
+		try {
+			if (save != null)
+				newGame.restore(SaveFormat.decodeSnapshot(save));
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IOException("Replay can't be played: " + ex.getMessage());
+		}
+		return newGame;
+	}
+	/**
+	 * Plays up to the next input and applies it.
+	 * At the end of the journal, the frames up to its last tick are run.
+	 * @return true if an input was applied
+	 * 		   false at the end of the journal
+	 * @throws IOException if the journal is corrupted, or the
+	 * 		   game can't run its frames as it did when recorded
+	 */
+	public boolean step() throws IOException {
+		boolean hasInput = pending || nextInput();
+		pending = false;
+		runFramesTo(reader.getTick());
+		if (hasInput)
+			Journal.apply(game, reader.getInput());
+		return hasInput;
+	}
+	/**
+	 * Plays the whole journal.
+	 * @return Game as it was when the recording ended
+	 * @throws IOException if the journal is corrupted, or the
+	 * 		   game can't run its frames as it did when recorded
+	 */
+	public Game playToEnd() throws IOException {
+		while (step())
+			continue;
+		return game;
+	}
+	/**
+	 * Plays up to a tick: the inputs at or before it are applied,
+	 * and the frames up to it are run, or up to the end of the journal.
+	 * @param tick tick to play to, not before getTick()
+	 * @return Nothing
+	 * @throws IOException if the journal is corrupted, or the
+	 * 		   game can't run its frames as it did when recorded
+	 */
+	public void playTo(long tick) throws IOException {
+		while (true) {
+			if (pending == false) {
+				if (nextInput() == false) {
+					runFramesTo(Math.min(tick, reader.getTick()));
+					return;
+				}
+				pending = true;
+			}
+			if (reader.getTick() > tick) {
+				runFramesTo(tick);
+				return;
+			}
+			step();
+		}
+	}
+	/**
+	 * Plays to any tick, before or after getTick(). The game is made
+	 * again from the last checkpoint at or before the tick if it has
+	 * to go back, or if that checkpoint is ahead of it; the rest
+	 * is played with playTo().
+	 * @param tick tick to go to
+	 * @return Nothing
+	 * @throws IOException if the journal is corrupted, or the
+	 * 		   game can't run its frames as it did when recorded
+	 */
+	public void seek(long tick) throws IOException {
+		int checkpoint = reader.findCheckpoint(tick);
+		long from = checkpoint < 0 ? 0 : reader.getCheckpointTick(checkpoint);
+		if (tick < getTick() || from > getTick()) {
+			if (checkpoint < 0) {
+				reader.rewind();
+				game = makeGame(reader.getStart());
+			}
+			else {
+				reader.seekCheckpoint(checkpoint);
+				game = makeGame(reader.getCheckpoint());
+			}
+			baseTick = from;
+			pending = false;
+		}
+		playTo(tick);
+	}
+	/**
+	 * This helper function reads up to the next input,
+	 * skipping over checkpoints.
+	 * @return true if an input was read
+	 * 		   false at the end of the journal
+	 * @throws IOException if the journal is corrupted
+	 */
+	private boolean nextInput() throws IOException {
+		while (reader.next()) {
+			if (reader.getInput() != Journal.CHECKPOINT)
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * This helper function runs frames until the game ran a tick of them.
+	 * @param tick frames the game must have run
+	 * @return Nothing
+	 * @throws IOException if a frame doesn't pass (the game is
+	 * 		   paused or over), so the journal doesn't fit the game
+	 */
+	private void runFramesTo(long tick) throws IOException {
+		while (getTick() < tick) {
+			if (game.runFrame() == false)
+				throw new IOException("Journal runs frames past the end of its game, at tick " 
+									  + getTick());
+		}
+	}
+	/**
+	 * Getter for the tick the game is at.
+	 * @return long frames the recorded game ran up to now
+	 */
+	public long getTick() {
+		return baseTick + game.getFrameCount();
+	}
+	/**
+	 * Getter for the game being played. seek() may make another one.
+	 * @return Game as of the last input applied
+	 */
+	public Game getGame() {
+		return game;
+	}
+	/**
+	 * Getter for the reader of the journal.
+	 * @return JournalReader member
+	 */
+	public JournalReader getReader() {
+		return reader;
+	}
+}
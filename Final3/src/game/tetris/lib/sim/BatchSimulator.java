@@ -0,0 +1,164 @@
+package game.tetris.lib.sim;
+
+import game.tetris.lib.GameEngine;
+import game.tetris.lib.pieces.PieceGeneratorFactory;
+import game.tetris.lib.pieces.UniformPieceGenerator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BatchSimulator plays many independent seeded games in
+ * parallel, each driven by its own Policy.
+ *
+ * The games run on GameEngines, not Games, since they need no
+ * Tiles, undo stack or GUI. Seeds are split into ranges on a
+ * ForkJoinPool and each worker writes the result of a seed to that
+ * seed's slot, so the results are in seed order and the same for
+ * the same seeds no matter how many cores run them.
+ *
+ * Pieces are dealt by a PieceGenerator of the kind a
+ * PieceGeneratorFactory makes, uniform unless told otherwise,
+ * so balance can be tested with a 7-bag as well.
+ *
+ * @author Rahul
+ *
+ */
+public class BatchSimulator {
+	//Fewest games a fork/join task plays without splitting further
+	private static final int GAMES_PER_TASK = 4;
+
+	private PolicyFactory policyFactory;
+	private PieceGeneratorFactory generatorFactory;
+	private int maxSteps;
+	private ForkJoinPool pool;
+
+	/**
+	 * Constructs a BatchSimulator which runs on the common ForkJoinPool.
+	 * @param policyFactory makes the Policy of every game
+	 * @param maxSteps a game still going after this many steps is stopped
+	 */
+	public BatchSimulator(PolicyFactory policyFactory, int maxSteps) {
+		this(policyFactory, maxSteps, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Constructs a BatchSimulator.
+	 * @param policyFactory makes the Policy of every game
+	 * @param maxSteps a game still going after this many steps is stopped
+	 * @param pool ForkJoinPool to run the games on
+	 */
+	public BatchSimulator(PolicyFactory policyFactory, int maxSteps, ForkJoinPool pool) {
+		this(policyFactory, UniformPieceGenerator.FACTORY, maxSteps, pool);
+	}
+	/**
+	 * Constructs a BatchSimulator whose games deal their
+	 * pieces with generators of another kind.
+	 * @param policyFactory makes the Policy of every game
+	 * @param generatorFactory makes the PieceGenerator of every worker's engine
+	 * @param maxSteps a game still going after this many steps is stopped
+	 * @param pool ForkJoinPool to run the games on
+	 */
+	public BatchSimulator(PolicyFactory policyFactory, PieceGeneratorFactory generatorFactory, 
+						  int maxSteps, ForkJoinPool pool) {
+		this.policyFactory = policyFactory;
+		this.generatorFactory = generatorFactory;
+		this.maxSteps = maxSteps;
+		this.pool = pool;
+	}
+	/**
+	 * Plays one game per seed in parallel and waits for all of them.
+	 * @param seeds seeds of the games
+	 * @return GameResult[] where index i is the result of seeds[i]
+	 */
+	public GameResult[] simulate(long[] seeds) {
+		GameResult[] results = new GameResult[seeds.length];
+		pool.invoke(new SimulateTask(seeds, results, 0, seeds.length));
+		return results;
+	}
+	/**
+	 * Plays one game until it is over or maxSteps steps have run.
+	 * @param seed seed of the game and its Policy
+	 * @return GameResult of the game
+	 */
+	public GameResult play(long seed) {
+		return play(new GameEngine(generatorFactory.newGenerator(seed)), seed);
+	}
+	/**
+	 * This helper function plays one game on an engine,
+	 * so a worker can reuse its engine for every game it plays.
+	 * @param engine GameEngine to reset and play on
+	 * @param seed seed of the game and its Policy
+	 * @return GameResult of the game
+	 */
+	private GameResult play(GameEngine engine, long seed) {
+		Policy policy = policyFactory.newPolicy(seed);
+		int piecesPlaced = 0;
+		int linesCleared = 0;
+		int steps = 0;
+
+		engine.reset(seed);
+		while (engine.isGameOver() == false && steps < maxSteps) {
+			int result = engine.step(policy.nextAction(engine));
+			steps++;
+
+			if (GameEngine.isLocked(result)) {
+				piecesPlaced++;
+				linesCleared += GameEngine.linesCleared(result);
+			}
+		}
+		return new GameResult(seed, piecesPlaced, linesCleared, steps, engine.isGameOver());
+	}
+	/**
+	 * Static Function that adds up the lines cleared of many games.
+	 * @param results GameResult[] returned by simulate()
+	 * @return long total lines cleared
+	 */
+	public static long totalLinesCleared(GameResult[] results) {
+		long total = 0;
+		for (GameResult result : results)
+			total += result.getLinesCleared();
+		return total;
+	}
+	/**
+	 * Static Function that adds up the pieces placed of many games.
+	 * @param results GameResult[] returned by simulate()
+	 * @return long total pieces placed
+	 */
+	public static long totalPiecesPlaced(GameResult[] results) {
+		long total = 0;
+		for (GameResult result : results)
+			total += result.getPiecesPlaced();
+		return total;
+	}
+	/**
+	 * Fork/join task that plays the games of a range of seeds,
+	 * splitting the range in half until it is small enough.
+	 */
+	private class SimulateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final long[] seeds;
+		private final GameResult[] results;
+		private final int from;
+		private final int to;
+
+		SimulateTask(long[] seeds, GameResult[] results, int from, int to) {
+			this.seeds = seeds;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected void compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				GameEngine engine = new GameEngine(generatorFactory.newGenerator(0));
+				for (int i = from; i < to; i++)
+					results[i] = play(engine, seeds[i]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SimulateTask(seeds, results, from, mid),
+					  new SimulateTask(seeds, results, mid, to));
+		}
+	}
+}
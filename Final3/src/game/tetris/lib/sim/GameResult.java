@@ -0,0 +1,91 @@
+package game.tetris.lib.sim;
+
+/**
+ * GameResult holds the outcome of one simulated game.
+ * Instances are immutable.
+ *
+ * @author Rahul
+ *
+ */
+public class GameResult {
+	private final long seed;
+	private final int piecesPlaced;
+	private final int linesCleared;
+	private final int survivalSteps;
+	private final boolean gameOver;
+
+	/**
+	 * Constructor.
+	 * @param seed seed the game was played with
+	 * @param piecesPlaced how many pieces stopped falling
+	 * @param linesCleared how many rows were cleared
+	 * @param survivalSteps how many steps the game ran
+	 * @param gameOver true if the game ended, false if it hit the step limit
+	 */
+	public GameResult(long seed, int piecesPlaced, int linesCleared,
+					  int survivalSteps, boolean gameOver) {
+		this.seed = seed;
+		this.piecesPlaced = piecesPlaced;
+		this.linesCleared = linesCleared;
+		this.survivalSteps = survivalSteps;
+		this.gameOver = gameOver;
+	}
+	/**
+	 * Getter for the seed of the game.
+	 * @return long seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	/**
+	 * Getter for the number of pieces placed.
+	 * @return int how many pieces stopped falling
+	 */
+	public int getPiecesPlaced() {
+		return piecesPlaced;
+	}
+	/**
+	 * Getter for the number of lines cleared.
+	 * @return int how many rows were cleared
+	 */
+	public int getLinesCleared() {
+		return linesCleared;
+	}
+	/**
+	 * Getter for the survival length.
+	 * @return int how many steps the game ran
+	 */
+	public int getSurvivalSteps() {
+		return survivalSteps;
+	}
+	/**
+	 * Checker if the game ended on its own.
+	 * @return true if the game is over
+	 * 		   false if it was stopped at the step limit
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+	@Override
+	public boolean equals(Object other) {
+		if (other instanceof GameResult == false)
+			return false;
+		GameResult result = (GameResult)other;
+		return seed == result.seed && piecesPlaced == result.piecesPlaced
+			&& linesCleared == result.linesCleared
+			&& survivalSteps == result.survivalSteps && gameOver == result.gameOver;
+	}
+	@Override
+	public int hashCode() {
+		int hash = (int)(seed ^ (seed >>> 32));
+		hash = 31 * hash + piecesPlaced;
+		hash = 31 * hash + linesCleared;
+		hash = 31 * hash + survivalSteps;
+		return 31 * hash + (gameOver ? 1 : 0);
+	}
+	@Override
+	public String toString() {
+		return "seed=" + seed + " pieces=" + piecesPlaced + " lines=" + linesCleared
+			+ " steps=" + survivalSteps + (gameOver ? " over" : " capped");
+	}
+}
@@ -0,0 +1,23 @@
+package game.tetris.lib.sim;
+
+import game.tetris.lib.GameEngine;
+
+/**
+ * A Policy plays a simulated game: it is asked for the
+ * input of every step of a GameEngine.
+ *
+ * A Policy instance only plays one game at a time, so it may
+ * keep state between steps. It must only read the engine,
+ * never step() or reset() it.
+ *
+ * @author Rahul
+ *
+ */
+public interface Policy {
+	/**
+	 * Picks the input of the engine's next step.
+	 * @param engine GameEngine being played, to read the board and falling piece from
+	 * @return int combination of GameEngine's input flags, or GameEngine.NONE
+	 */
+	int nextAction(GameEngine engine);
+}
@@ -0,0 +1,20 @@
+package game.tetris.lib.sim;
+
+/**
+ * A PolicyFactory makes a new Policy for every
+ * game a BatchSimulator plays.
+ *
+ * For results to be deterministic, the Policy made for a
+ * seed must always play the same way.
+ *
+ * @author Rahul
+ *
+ */
+public interface PolicyFactory {
+	/**
+	 * Makes the Policy of one game.
+	 * @param seed seed of the game the Policy will play
+	 * @return Policy new instance, not shared with other games
+	 */
+	Policy newPolicy(long seed);
+}
@@ -0,0 +1,45 @@
+package game.tetris.lib.sim;
+
+import game.tetris.lib.GameEngine;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomPolicy presses a random combination of
+ * LEFT, RIGHT and ROTATE (or nothing) every step.
+ *
+ * It is seeded from the game's seed, so it plays
+ * a game the same way every time.
+ *
+ * @author Rahul
+ *
+ */
+public class RandomPolicy implements Policy {
+	//Factory for BatchSimulator
+	public static final PolicyFactory FACTORY = new PolicyFactory() {
+		public Policy newPolicy(long seed) {
+			return new RandomPolicy(seed);
+		}
+	};
+
+	private static final int NUM_ACTIONS = (GameEngine.LEFT | GameEngine.RIGHT | GameEngine.ROTATE) + 1;
+
+	private SplittableRandom randomizer;
+
+	/**
+	 * Constructor.
+	 * @param seed seed of the random inputs
+	 */
+	public RandomPolicy(long seed) {
+		randomizer = new SplittableRandom(seed);
+	}
+	/**
+	 * Picks a random input.
+	 * @param engine GameEngine being played, unused
+	 * @return int random combination of GameEngine's input flags
+	 */
+	@Override
+	public int nextAction(GameEngine engine) {
+		return randomizer.nextInt(NUM_ACTIONS);
+	}
+}
@@ -0,0 +1,52 @@
+package game.tetris.gui;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GameLoopTest {
+
+	//A model whose frames take longer than the time step of the loop.
+	private static class SlowModel extends TetrisModel {
+		volatile int framesRun;
+		volatile int dropReports;
+
+		@Override
+		public synchronized void runOneFrame() {
+			framesRun++;
+			try {
+				Thread.sleep(3);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		@Override
+		public synchronized boolean isGameOver() {
+			return false;
+		}
+		@Override
+		public void framesDropped() {
+			dropReports++;
+		}
+	}
+
+	@Test
+	public void late_loop_keeps_dropping_frames_test() throws InterruptedException {
+		SlowModel model = new SlowModel();
+		GameLoop loop = new GameLoop(model, 1000);
+		loop.start();
+		Thread.sleep(200);
+		long dropped = loop.getDroppedFrames();
+		int reports = model.dropReports;
+		Thread.sleep(200);
+		loop.stop();
+
+		assertTrue(dropped > 0);
+		//Still dropped, and reported, while it stays late.
+		assertTrue(loop.getDroppedFrames() > dropped);
+		assertTrue(model.dropReports > reports);
+		//Frames that weren't dropped were all run.
+		assertTrue(model.framesRun > 0);
+	}
+}
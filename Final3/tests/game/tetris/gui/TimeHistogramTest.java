@@ -0,0 +1,77 @@
+package game.tetris.gui;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TimeHistogramTest {
+
+	@Test
+	public void bucket_boundaries_test() {
+		//Under 4 ns, a bucket a nanosecond.
+		assertEquals(TimeHistogram.bucketOf(-5), 0);
+		assertEquals(TimeHistogram.bucketOf(0), 0);
+		assertEquals(TimeHistogram.bucketOf(3), 3);
+		assertEquals(TimeHistogram.upperBoundOf(3), 3);
+		//From 4 to 7 ns, still one a nanosecond.
+		assertEquals(TimeHistogram.bucketOf(4), 4);
+		assertEquals(TimeHistogram.upperBoundOf(4), 4);
+		assertEquals(TimeHistogram.bucketOf(7), 7);
+		assertEquals(TimeHistogram.upperBoundOf(7), 7);
+		//From 8 ns, two nanoseconds a bucket.
+		assertEquals(TimeHistogram.bucketOf(8), 8);
+		assertEquals(TimeHistogram.bucketOf(9), 8);
+		assertEquals(TimeHistogram.upperBoundOf(8), 9);
+		assertEquals(TimeHistogram.bucketOf(10), 9);
+		//The longest time is in the last bucket, which counts up to it.
+		assertEquals(TimeHistogram.bucketOf(Long.MAX_VALUE), TimeHistogram.NUM_BUCKETS - 1);
+		assertEquals(TimeHistogram.upperBoundOf(TimeHistogram.NUM_BUCKETS - 1), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void buckets_are_within_a_quarter_test() {
+		long[] times = {11, 100, 1000, 12345, 999999, 16666667, 1L << 40, (1L << 40) - 1, Long.MAX_VALUE / 3};
+		for (long nanos : times) {
+			int bucket = TimeHistogram.bucketOf(nanos);
+			//The bucket counts the time and the one before doesn't.
+			assertTrue(TimeHistogram.upperBoundOf(bucket) >= nanos);
+			assertTrue(TimeHistogram.upperBoundOf(bucket - 1) < nanos);
+			assertTrue(TimeHistogram.upperBoundOf(bucket) - nanos <= nanos / 4);
+		}
+	}
+
+	@Test
+	public void percentile_test() {
+		TimeHistogram histogram = new TimeHistogram();
+		long[] none = new long[TimeHistogram.NUM_BUCKETS];
+		long[] counts = new long[TimeHistogram.NUM_BUCKETS];
+		histogram.copyCounts(counts);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.5), 0);
+
+		//90 times of 100 ns, in the bucket up to 111 ns,
+		//and 10 of 10 us, in the bucket up to 10239 ns.
+		for (int i = 0; i < 90; i++)
+			histogram.record(100);
+		for (int i = 0; i < 10; i++)
+			histogram.record(10000);
+		histogram.copyCounts(counts);
+		assertEquals(TimeHistogram.countSince(counts, none), 100);
+		assertEquals(TimeHistogram.percentile(counts, none, 0), 111);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.5), 111);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.9), 111);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.91), 10239);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.99), 10239);
+		assertEquals(TimeHistogram.percentile(counts, none, 1), 10239);
+
+		//Only the times since the older copy count.
+		long[] since = counts.clone();
+		for (int i = 0; i < 4; i++)
+			histogram.record(5);
+		histogram.record(1000000);
+		histogram.copyCounts(counts);
+		assertEquals(TimeHistogram.countSince(counts, since), 5);
+		assertEquals(TimeHistogram.percentile(counts, since, 0.8), 5);
+		assertEquals(TimeHistogram.percentile(counts, since, 0.99), 1048575);
+		assertEquals(TimeHistogram.percentile(counts, none, 0.5), 111);
+	}
+}
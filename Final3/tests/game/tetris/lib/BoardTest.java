@@ -0,0 +1,159 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.PieceShape;
+
+import org.junit.Test;
+
+public class BoardTest {
+
+	@Test
+	public void construction_and_get_set_tests() {
+		Board board = new Board();
+		assertFalse(board.isOccupied(19, 0));
+		assertEquals(board.getRowMask(19), 0);
+
+		board.setColorCode(19, 0, 5);
+		board.setColorCode(19, 9, 2);
+		assertTrue(board.isOccupied(19, 0));
+		assertEquals(board.getColorCode(19, 9), 2);
+		assertEquals(board.getRowMask(19), (1 << 0) | (1 << 9));
+
+		board.setColorCode(19, 0, Board.EMPTY);
+		assertFalse(board.isOccupied(19, 0));
+		assertEquals(board.getRowMask(19), 1 << 9);
+
+		//A copy must not share cells with the original.
+		Board copy = new Board(board);
+		copy.setColorCode(19, 9, Board.EMPTY);
+		assertTrue(board.isOccupied(19, 9));
+	}
+
+	@Test
+	public void clear_completed_rows_test() {
+		Board board = new Board();
+		//Fill up the bottom two rows, except for one hole on row 18.
+		for (int col = 0; col < Board.NUM_COLS; col++) {
+			board.setColorCode(19, col, 1);
+			if (col != 3)
+				board.setColorCode(18, col, 2);
+		}
+		board.setColorCode(17, 3, 7);
+		assertTrue(board.isRowFull(19));
+		assertFalse(board.isRowFull(18));
+
+		assertEquals(board.clearCompletedRows(), 1);
+		//Row 18 and 17 fall down by one row.
+		assertFalse(board.isRowFull(19));
+		assertFalse(board.isOccupied(19, 3));
+		assertEquals(board.getColorCode(19, 0), 2);
+		assertEquals(board.getColorCode(18, 3), 7);
+		assertEquals(board.getRowMask(17), 0);
+	}
+
+	@Test
+	public void collides_test() {
+		Board board = new Board();
+		board.setColorCode(19, 4, 3);
+		PieceShape flatT = PieceShape.of(PieceShape.TYPE_T, 0);
+
+		//T pointing down, right above the filled cell.
+		assertFalse(board.collides(flatT, 17, 4));
+		assertTrue(board.collides(flatT, 18, 4));
+		//Shifted one col over, the stem misses the filled cell.
+		assertFalse(board.collides(flatT, 18, 5));
+	}
+
+	@Test
+	public void col_heights_test() {
+		Board board = new Board();
+		board.setColorCode(15, 2, 1);
+		board.setColorCode(19, 2, 1);
+		assertEquals(board.getColHeight(2), 5);
+		assertEquals(board.getColHeight(3), 0);
+
+		board.setColorCode(15, 2, Board.EMPTY);
+		assertEquals(board.getColHeight(2), 1);
+
+		//Clearing the bottom row drops col 0 by one and empties the others.
+		for (int col = 0; col < Board.NUM_COLS; col++)
+			board.setColorCode(19, col, 3);
+		board.setColorCode(18, 0, 3);
+		board.setColorCode(17, 0, 3);
+		board.clearCompletedRows();
+		assertEquals(board.getColHeight(0), 2);
+		assertEquals(board.getColHeight(2), 0);
+
+		board.clear();
+		assertEquals(board.getColHeight(0), 0);
+	}
+
+	@Test
+	public void landing_row_test() {
+		Board board = new Board();
+		PieceShape flatT = PieceShape.of(PieceShape.TYPE_T, 0);
+		//On an empty board, the stem lands on the bottom row.
+		assertEquals(board.landingRow(flatT, 0, 4), 18);
+
+		//The stem lands on top of col 4, the arms hang over cols 3 and 5.
+		board.setColorCode(15, 4, 2);
+		board.setColorCode(19, 3, 2);
+		assertEquals(board.landingRow(flatT, 0, 4), 13);
+
+		//Under an overhang, the shape is stepped down instead.
+		Board overhang = new Board();
+		overhang.setColorCode(10, 4, 2);
+		overhang.setColorCode(17, 4, 2);
+		PieceShape flatI = PieceShape.of(PieceShape.TYPE_I, 0);
+		assertEquals(overhang.landingRow(flatI, 12, 4), 16);
+	}
+
+	@Test
+	public void clear_rows_apart_test() {
+		Board board = new Board();
+		//Rows 19 and 17 are full, rows 18 and 16 have one cell each.
+		for (int col = 0; col < Board.NUM_COLS; col++) {
+			board.setColorCode(19, col, 1);
+			board.setColorCode(17, col, 2);
+		}
+		board.setColorCode(18, 5, 3);
+		board.setColorCode(16, 8, 4);
+
+		assertEquals(board.clearCompletedRows(), 2);
+		assertEquals(board.getColorCode(19, 5), 3);
+		assertEquals(board.getRowMask(19), 1 << 5);
+		assertEquals(board.getColorCode(18, 8), 4);
+		assertEquals(board.getRowMask(18), 1 << 8);
+		assertEquals(board.getRowMask(17), 0);
+		assertEquals(board.getRowMask(16), 0);
+
+		//Every row still has its own cells after being moved and recycled.
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				if (board.isOccupied(row, col) == false)
+					assertEquals(board.getColorCode(row, col), Board.EMPTY);
+			}
+		}
+		board.setColorCode(17, 0, 6);
+		board.setColorCode(16, 1, 7);
+		assertEquals(board.getColorCode(17, 1), Board.EMPTY);
+		assertEquals(board.getColorCode(19, 0), Board.EMPTY);
+	}
+
+	@Test
+	public void row_fill_counts_and_range_clear_test() {
+		Board board = new Board();
+		for (int col = 0; col < Board.NUM_COLS; col++)
+			board.setColorCode(19, col, 1);
+		board.setColorCode(18, 2, 1);
+		assertEquals(board.getRowFillCount(19), Board.NUM_COLS);
+		assertEquals(board.getRowFillCount(18), 1);
+		assertEquals(board.getRowFillCount(0), 0);
+
+		//The full row is outside of the range, so it stays.
+		assertEquals(board.clearCompletedRows(17, 18), 0);
+		assertTrue(board.isRowFull(19));
+		assertEquals(board.clearCompletedRows(18, 19), 1);
+		assertEquals(board.getRowFillCount(19), 1);
+	}
+}
@@ -0,0 +1,177 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.PieceShape;
+
+import org.junit.Test;
+
+public class GameEngineTest {
+
+	@Test
+	public void same_seed_same_game_test() {
+		GameEngine first = new GameEngine(1234);
+		GameEngine second = new GameEngine(1234);
+
+		for (int i = 0; i < 2000 && first.isGameOver() == false; i++) {
+			int action = i % 3 == 0 ? GameEngine.ROTATE : GameEngine.LEFT;
+			assertEquals(first.step(action), second.step(action));
+			assertEquals(first.getPieceType(), second.getPieceType());
+			assertEquals(first.getPivotCol(), second.getPivotCol());
+		}
+		//reset() starts the very same game over.
+		int firstType = new GameEngine(99).getPieceType();
+		first.reset(99);
+		assertFalse(first.isGameOver());
+		assertEquals(first.getPieceType(), firstType);
+		assertEquals(first.getRowMask(Board.NUM_ROWS - 1), 0);
+	}
+
+	@Test
+	public void step_locks_and_clears_lines_test() {
+		GameEngine engine = new GameEngine(5);
+		Board board = new Board();
+		//Fill the bottom row, except for the cols the flat I spawns above.
+		for (int col = 0; col < Board.NUM_COLS; col++) {
+			if (col < 3 || col > 6)
+				board.setColorCode(19, col, 1);
+		}
+		engine.restore(board, PieceShape.TYPE_I);
+
+		//The I falls from row 0 to row 19.
+		for (int i = 0; i < 19; i++)
+			assertEquals(engine.step(GameEngine.NONE), 0);
+		assertTrue(engine.pieceStopsFalling());
+
+		int result = engine.step(GameEngine.NONE);
+		assertTrue(GameEngine.isLocked(result));
+		assertFalse(GameEngine.isGameOver(result));
+		assertEquals(GameEngine.linesCleared(result), 1);
+		assertEquals(engine.getRowMask(19), 0);
+		assertEquals(engine.getPivotRow(), PieceShape.spawnRow(engine.getPieceType()));
+	}
+
+	@Test
+	public void step_moves_and_ends_game_test() {
+		GameEngine engine = new GameEngine(5);
+		Board board = new Board();
+		engine.restore(board, PieceShape.TYPE_T);
+
+		engine.step(GameEngine.LEFT);
+		assertEquals(engine.getPivotCol(), 3);
+		assertEquals(engine.getPivotRow(), 1);
+		engine.step(GameEngine.ROTATE);
+		assertEquals(engine.getOrientation(), 1);
+
+		//Every row under the top one is filled up but never full,
+		//so the next piece cannot fall.
+		for (int row = 1; row < Board.NUM_ROWS; row++) {
+			for (int col = 1; col < Board.NUM_COLS; col++)
+				board.setColorCode(row, col, 2);
+		}
+		engine.restore(board, PieceShape.TYPE_O);
+		int result = engine.step(GameEngine.NONE);
+		assertTrue(GameEngine.isLocked(result));
+		assertTrue(GameEngine.isGameOver(result));
+		assertTrue(engine.isGameOver());
+		assertEquals(engine.step(GameEngine.NONE), GameEngine.GAME_OVER);
+	}
+
+	@Test
+	public void hard_drop_lands_where_steps_do_test() {
+		GameEngine stepped = new GameEngine(77);
+		GameEngine dropped = new GameEngine(77);
+
+		for (int piece = 0; piece < 30 && stepped.isGameOver() == false; piece++) {
+			int landingRow = dropped.getLandingRow();
+			int steppedResult;
+			do {
+				steppedResult = stepped.step(GameEngine.NONE);
+				if (GameEngine.isLocked(steppedResult) == false)
+					assertTrue(stepped.getPivotRow() <= landingRow);
+			} while (GameEngine.isLocked(steppedResult) == false);
+
+			assertEquals(dropped.hardDrop(), steppedResult);
+			for (int row = 0; row < Board.NUM_ROWS; row++)
+				assertEquals(dropped.getRowMask(row), stepped.getRowMask(row));
+		}
+	}
+
+	@Test
+	public void immediate_moves_test() {
+		GameEngine engine = new GameEngine(5);
+		engine.restore(new Board(), PieceShape.TYPE_I);
+
+		//Moves don't make the piece fall.
+		for (int i = 0; i < 3; i++)
+			assertTrue(engine.moveLeft());
+		assertEquals(engine.getPivotCol(), 1);
+		assertEquals(engine.getPivotRow(), 0);
+		//The flat I's leftmost block is on col 0 now.
+		assertFalse(engine.moveLeft());
+		assertTrue(engine.moveRight());
+		assertEquals(engine.getPivotCol(), 2);
+
+		//Standing up at row 0 sticks out of the top of the board.
+		assertFalse(engine.rotate());
+		assertTrue(engine.softDrop());
+		assertTrue(engine.rotate());
+		assertEquals(engine.getOrientation(), 1);
+		assertEquals(engine.getPivotRow(), 1);
+
+		for (int i = 0; i < 16; i++)
+			assertTrue(engine.softDrop());
+		assertFalse(engine.softDrop());
+		assertTrue(GameEngine.isLocked(engine.step(GameEngine.NONE)));
+	}
+
+	@Test
+	public void gravity_below_one_row_per_frame_test() {
+		GameEngine engine = new GameEngine(5);
+		engine.restore(new Board(), PieceShape.TYPE_T);
+		engine.setGravityCurve(new GravityCurve(new int[] {GravityCurve.ROW / 4}));
+
+		//A row every 4 frames, exactly.
+		for (int frame = 1; frame <= 40; frame++) {
+			assertEquals(engine.runFrame(), 0);
+			assertEquals(engine.getPivotRow(), frame / 4);
+		}
+	}
+
+	@Test
+	public void twenty_g_test() {
+		GameEngine engine = new GameEngine(5);
+		Board board = new Board();
+		for (int col = 0; col < Board.NUM_COLS; col++) {
+			if (col < 3 || col > 6)
+				board.setColorCode(19, col, 1);
+		}
+		engine.restore(board, PieceShape.TYPE_I);
+		engine.setGravityCurve(new GravityCurve(new int[] {GravityCurve.MAX_GRAVITY}));
+
+		//The I lands in one frame and stops on the next one.
+		assertEquals(engine.runFrame(), 0);
+		assertEquals(engine.getPivotRow(), 19);
+		int result = engine.runFrame();
+		assertTrue(GameEngine.isLocked(result));
+		assertEquals(GameEngine.linesCleared(result), 1);
+		assertEquals(engine.getTotalLinesCleared(), 1);
+		assertEquals(engine.getPivotRow(), PieceShape.spawnRow(engine.getPieceType()));
+	}
+
+	@Test
+	public void same_frames_same_game_test() {
+		GameEngine first = new GameEngine(42);
+		GameEngine second = new GameEngine(42);
+
+		for (int frame = 0; frame < 20000 && first.isGameOver() == false; frame++) {
+			if (frame % 7 == 0) {
+				first.moveLeft();
+				second.moveLeft();
+			}
+			assertEquals(first.runFrame(), second.runFrame());
+			assertEquals(first.getPivotRow(), second.getPivotRow());
+			assertEquals(first.getLevel(), second.getLevel());
+		}
+		assertTrue(first.isGameOver());
+	}
+}
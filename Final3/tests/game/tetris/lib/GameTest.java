@@ -3,8 +3,13 @@ package game.tetris.lib;
 import static org.junit.Assert.*;
 import game.tetris.lib.pieces.*;
 
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.sun.management.ThreadMXBean;
+
 public class GameTest {
 
 	@Test
@@ -36,5 +41,236 @@ public class GameTest {
 		fallingPiece = game.getFallingPiece();
 		assertTrue(fallingPiece.isCoordABlockCoord(0, 4));
 	}
+	
+	@Test
+	public void tick_tock_does_not_allocate_test() {
+		ThreadMXBean bean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if (bean.isThreadAllocatedMemorySupported() == false)
+			return;
+		long threadId = Thread.currentThread().getId();
+		
+		Game game = new Game();
+		Tetrimino fallingPiece = game.getFallingPiece();
+		//Warm up, so one-time class loading isn't counted.
+		for (int i = 0; i < 3; i++) {
+			fallingPiece.rotate(Rotate.CW);
+			game.tickTock();
+		}
+		//Cost of asking the bean itself.
+		long overhead = -bean.getThreadAllocatedBytes(threadId);
+		overhead += bean.getThreadAllocatedBytes(threadId);
+		
+		long before = bean.getThreadAllocatedBytes(threadId);
+		//The first piece falls for at least 17 ticks, so none of these lock it.
+		for (int i = 0; i < 12; i++) {
+			if (i % 3 == 0)
+				fallingPiece.translate(Move.LEFT);
+			else if (i % 3 == 1)
+				fallingPiece.rotate(Rotate.CW);
+			else
+				fallingPiece.translate(Move.RIGHT);
+			game.tickTock();
+		}
+		long after = bean.getThreadAllocatedBytes(threadId);
+		
+		assertSame(fallingPiece, game.getFallingPiece());
+		assertEquals(after - before - overhead, 0);
+	}
+	
+	@Test
+	public void tick_tock_marks_dirty_cells_test() {
+		Game game = new Game();
+		DirtyCells dirtyCells = game.getDirtyCells();
+		//Nothing was drawn yet.
+		assertTrue(dirtyCells.isDirty(19, 0));
+		dirtyCells.clear();
+		assertTrue(dirtyCells.isEmpty());
+		
+		int[] before = game.getFallingPiece().getTetBlockCoords();
+		game.tickTock();
+		int[] after = game.getFallingPiece().getTetBlockCoords();
+		
+		int numDirty = 0;
+		for (int row = 0; row < 20; row++)
+			numDirty += Integer.bitCount(dirtyCells.getRowMask(row));
+		for (int i = 0; i < 8; i += 2) {
+			assertTrue(dirtyCells.isDirty(before[i], before[i + 1]));
+			assertTrue(dirtyCells.isDirty(after[i], after[i + 1]));
+		}
+		int[] ghost = game.getEngine().getPieceShape().blockCoords(game.getLandingRow(),
+																   game.getEngine().getPivotCol(), new int[8]);
+		for (int i = 0; i < 8; i += 2)
+			assertTrue(dirtyCells.isDirty(ghost[i], ghost[i + 1]));
+		//At most the 4 cells left, the 4 cells entered and the 4 of the ghost.
+		assertTrue(numDirty <= 12);
+		
+		dirtyCells.clear();
+		game.undo();
+		assertTrue(dirtyCells.isEmpty());
+		game.makeFailScreen();
+		assertTrue(dirtyCells.isDirty(0, 0));
+	}
+	
+	@Test
+	public void immediate_moves_test() {
+		Game game = new Game();
+		Tetrimino fallingPiece = game.getFallingPiece();
+		int[] before = fallingPiece.getTetBlockCoords();
+		
+		assertTrue(game.softDrop());
+		assertTrue(game.moveRight());
+		int[] after = game.getFallingPiece().getTetBlockCoords();
+		//One row down and one col right, without a tick.
+		for (int i = 0; i < 8; i += 2) {
+			assertEquals(after[i], before[i] + 1);
+			assertEquals(after[i + 1], before[i + 1] + 1);
+			assertTrue(game.getDirtyCells().isDirty(after[i], after[i + 1]));
+		}
+		game.setGameToPause(true);
+		assertFalse(game.moveLeft());
+		assertFalse(game.rotate());
+	}
+	
+	@Test
+	public void snapshot_matches_board_test() {
+		Game game = new Game();
+		BoardSnapshot snapshot = new BoardSnapshot(20, 10);
+		assertEquals(snapshot.getFrameNumber(), -1);
+		
+		for (int tick = 0; tick < 200 && game.isGameOver() == false; tick++) {
+			game.tickTock();
+			game.writeSnapshot(snapshot, tick);
+			Tile[][] board = game.getBoard();
+			for (int row = 0; row < 20; row++) {
+				for (int col = 0; col < 10; col++)
+					assertEquals(snapshot.getColor(row, col), board[row][col].getColor());
+			}
+			assertEquals(snapshot.getFrameNumber(), tick);
+		}
+	}
+	
+	@Test
+	public void snapshot_ghost_test() {
+		Game game = new Game();
+		BoardSnapshot snapshot = new BoardSnapshot(20, 10);
+		PieceShape shape = game.getEngine().getPieceShape();
+		int landingRow = game.getLandingRow();
+		//An empty board: the piece lands on the bottom row.
+		assertEquals(landingRow + shape.getMaxRowOffset(), 19);
+		
+		game.writeSnapshot(snapshot, 0);
+		int[] ghost = shape.blockCoords(landingRow, game.getEngine().getPivotCol(), new int[8]);
+		int numGhost = 0;
+		for (int row = 0; row < 20; row++) {
+			for (int col = 0; col < 10; col++) {
+				if (snapshot.isGhost(row, col)) {
+					numGhost++;
+					assertEquals(snapshot.getColorCode(row, col), 0);
+					assertEquals(snapshot.getCellCode(row, col), 
+								 GameEngine.colorCodeOf(game.getEngine().getPieceType()) | BoardSnapshot.GHOST_FLAG);
+				}
+			}
+		}
+		assertEquals(numGhost, 4);
+		for (int i = 0; i < 8; i += 2)
+			assertTrue(snapshot.isGhost(ghost[i], ghost[i + 1]));
+		
+		//The ghost goes away under the landed piece.
+		game.hardDrop();
+		game.writeSnapshot(snapshot, 1);
+		for (int i = 0; i < 8; i += 2)
+			assertFalse(snapshot.isGhost(ghost[i], ghost[i + 1]));
+	}
 
+	private void playSome(Game game, int frames, int salt) {
+		for (int frame = 0; frame < frames; frame++) {
+			game.runFrame();
+			int move = (frame * 7 + salt) % 11;
+			if (move == 0)
+				game.moveLeft();
+			else if (move == 1)
+				game.moveRight();
+			else if (move == 2)
+				game.rotate();
+			else if (move == 3 && frame % 5 == 0)
+				game.hardDrop();
+		}
+	}
+
+	private void assertSameGame(Game first, Game second) {
+		GameEngine one = first.getEngine();
+		GameEngine other = second.getEngine();
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++)
+				assertEquals(one.getColorCode(row, col), other.getColorCode(row, col));
+		}
+		assertEquals(one.getPieceType(), other.getPieceType());
+		assertEquals(one.getOrientation(), other.getOrientation());
+		assertEquals(one.getPivotRow(), other.getPivotRow());
+		assertEquals(one.getPivotCol(), other.getPivotCol());
+		assertEquals(one.getTotalLinesCleared(), other.getTotalLinesCleared());
+		assertEquals(one.getGenerator().peek(0), other.getGenerator().peek(0));
+		assertEquals(first.isGameOver(), second.isGameOver());
+		assertEquals(first.isGamePaused(), second.isGamePaused());
+		assertEquals(first.canWeUndo(), second.canWeUndo());
+	}
+
+	@Test
+	public void saved_snapshot_resumes_exactly_test() throws Exception {
+		Game game = new Game();
+		playSome(game, 900, 0);
+		game.setGameToPause(true);
+
+		Game resumed = new Game();
+		resumed.restore(SaveFormat.decodeSnapshot(game.encodeSave()));
+		assertSameGame(game, resumed);
+		assertTrue(resumed.isGamePaused());
+		assertEquals(resumed.getFallingPiece().getPivotRow(), game.getFallingPiece().getPivotRow());
+
+		//Both go on the same, gravity and pieces to come included.
+		game.setGameToPause(false);
+		resumed.setGameToPause(false);
+		playSome(game, 700, 3);
+		playSome(resumed, 700, 3);
+		assertSameGame(game, resumed);
+
+		//And the undo history came along.
+		while (game.canWeUndo()) {
+			assertTrue(resumed.undo());
+			game.undo();
+			assertSameGame(game, resumed);
+		}
+	}
+
+	@Test
+	public void undo_leaves_snapshot_history_alone_test() {
+		Game game = new Game(42);
+		for (int i = 0; i < 3; i++)
+			game.hardDrop();
+		GameSnapshot snapshot = game.snapshot();
+		List<GameState> history = snapshot.getHistory();
+		Tetrimino saved = history.get(history.size() - 1).getSavedFallingPiece();
+		int[] before = saved.getTetBlockCoords();
+
+		assertTrue(game.undo());
+		assertNotSame(game.getFallingPiece(), saved);
+		game.moveLeft();
+		game.rotate();
+		game.tickTock();
+		assertArrayEquals(saved.getTetBlockCoords(), before);
+		assertEquals(snapshot.getHistory().size(), history.size());
+	}
+
+	@Test
+	public void history_shares_rows_test() throws Exception {
+		Game game = new Game();
+		playSome(game, 1500, 1);
+		assertTrue(game.snapshot().getHistory().size() > 1);
+
+		//Each GameState of the history costs about a byte a row, not a board.
+		int size = game.encodeSave().remaining();
+		int historySize = game.snapshot().getHistory().size();
+		assertTrue(size < SaveFormat.maxSize());
+		assertTrue(size < 80 + historySize * (1 + Board.NUM_ROWS) + 4 * Board.NUM_ROWS * 2);
+	}
 }
@@ -0,0 +1,35 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GravityCurveTest {
+
+	@Test
+	public void standard_curve_test() {
+		GravityCurve curve = GravityCurve.STANDARD;
+
+		//Level 0 falls a row every 30 frames, like the old 500 ms timer.
+		assertEquals(curve.getGravity(0), GravityCurve.fromRowsPerSecond(2));
+		for (int level = 1; level < curve.getNumLevels(); level++)
+			assertTrue(curve.getGravity(level) > curve.getGravity(level - 1));
+		assertEquals(curve.getGravity(curve.getNumLevels() - 1), GravityCurve.MAX_GRAVITY);
+		assertEquals(curve.getGravity(1000), GravityCurve.MAX_GRAVITY);
+	}
+
+	@Test
+	public void levels_and_conversion_test() {
+		assertEquals(GravityCurve.levelOf(0), 0);
+		assertEquals(GravityCurve.levelOf(9), 0);
+		assertEquals(GravityCurve.levelOf(10), 1);
+		assertEquals(GravityCurve.fromRowsPerSecond(GravityCurve.FRAMES_PER_SECOND), GravityCurve.ROW);
+		assertEquals(GravityCurve.fromRowsPerSecond(1000000), GravityCurve.MAX_GRAVITY);
+		assertEquals(GravityCurve.fromRowsPerSecond(0), 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void out_of_range_gravity_test() {
+		new GravityCurve(new int[] {GravityCurve.ROW, GravityCurve.MAX_GRAVITY + 1});
+	}
+}
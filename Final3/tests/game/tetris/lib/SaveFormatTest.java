@@ -0,0 +1,210 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.BagPieceGenerator;
+import game.tetris.lib.pieces.GeneratorState;
+import game.tetris.lib.pieces.PieceGenerator;
+import game.tetris.lib.pieces.PieceShape;
+import game.tetris.lib.pieces.Tetrimino;
+import game.tetris.lib.pieces.UniformPieceGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SaveFormatTest {
+
+	private Board someBoard() {
+		Board board = new Board();
+		for (int row = 10; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				if ((row + col) % 3 != 0)
+					board.setColorCode(row, col, 1 + (row * col) % 7);
+			}
+		}
+		return board;
+	}
+
+	@Test
+	public void encode_decode_test() throws IOException {
+		Board board = someBoard();
+		ByteBuffer bytes = SaveFormat.encode(board, PieceShape.TYPE_S);
+		//3 bits a cell: 75 bytes of cells, plus the header and the CRC.
+		assertEquals(bytes.remaining(), 87);
+		assertEquals(SaveFormat.sizeOf(Board.NUM_ROWS, Board.NUM_COLS), 87);
+
+		GameState loaded = SaveFormat.decode(bytes);
+		assertEquals(loaded.getSavedFallingPiece().getType(), PieceShape.TYPE_S);
+		Board loadedBoard = loaded.getSavedBitboard();
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			assertEquals(loadedBoard.getRowMask(row), board.getRowMask(row));
+			for (int col = 0; col < Board.NUM_COLS; col++)
+				assertEquals(loadedBoard.getColorCode(row, col), board.getColorCode(row, col));
+		}
+		for (int col = 0; col < Board.NUM_COLS; col++)
+			assertEquals(loadedBoard.getColHeight(col), board.getColHeight(col));
+	}
+
+	@Test
+	public void corruption_is_detected_test() {
+		ByteBuffer good = SaveFormat.encode(someBoard(), PieceShape.TYPE_T);
+		int numCaught = 0;
+
+		//Every single flipped bit is caught, by the header checks or the CRC.
+		for (int bit = 0; bit < good.remaining() * 8; bit++) {
+			ByteBuffer bad = ByteBuffer.allocate(good.remaining());
+			bad.put(good.duplicate());
+			bad.flip();
+			bad.put(bit / 8, (byte)(bad.get(bit / 8) ^ (1 << (bit % 8))));
+			try {
+				SaveFormat.decode(bad);
+			}
+			catch (IOException ex) {
+				numCaught++;
+			}
+		}
+		assertEquals(numCaught, good.remaining() * 8);
+
+		ByteBuffer cut = good.duplicate();
+		cut.limit(cut.limit() - 1);
+		try {
+			SaveFormat.decode(cut);
+			fail();
+		}
+		catch (IOException ex) {
+			//A cut off save isn't loaded either.
+		}
+	}
+
+	@Test
+	public void write_read_file_test() throws IOException {
+		Path path = Files.createTempFile("save", ".bin");
+		try {
+			Board board = someBoard();
+			SaveFormat.write(path, SaveFormat.encode(board, PieceShape.TYPE_I));
+			assertEquals(Files.size(path), 87);
+
+			GameState loaded = SaveFormat.decode(SaveFormat.read(path));
+			assertEquals(loaded.getSavedFallingPiece().getType(), PieceShape.TYPE_I);
+			assertEquals(loaded.getSavedBitboard().getRowMask(19), board.getRowMask(19));
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void version_1_saves_load_test() throws IOException {
+		Board board = someBoard();
+		GameSnapshot snapshot = SaveFormat.decodeSnapshot(SaveFormat.encode(board, PieceShape.TYPE_J));
+		assertEquals(snapshot.getPieceType(), PieceShape.TYPE_J);
+		assertEquals(snapshot.getPivotRow(), PieceShape.spawnRow(PieceShape.TYPE_J));
+		assertNull(snapshot.getGeneratorState());
+		assertTrue(snapshot.getHistory().isEmpty());
+		assertEquals(snapshot.getBoard().getRowMask(15), board.getRowMask(15));
+	}
+
+	@Test
+	public void snapshot_encode_decode_test() throws IOException {
+		Board board = someBoard();
+		List<GameState> history = new ArrayList<GameState>();
+		history.add(new GameState(new Board(), Tetrimino.typeToTetrimino(PieceShape.TYPE_O)));
+		history.add(new GameState(board, Tetrimino.typeToTetrimino(PieceShape.TYPE_Z)));
+		GameSnapshot snapshot = new GameSnapshot(board, PieceShape.TYPE_T, 1, 3, 4, GameEngine.LEFT,
+												 false, true, 1234, 42, 
+												 new GeneratorState(PieceGenerator.KIND_BAG, -987654321L, 77, 
+																	0x123456789ABCDEFL, 0x5AC688), history);
+
+		ByteBuffer bytes = SaveFormat.encode(snapshot);
+		//The second board of the history is all shared rows.
+		assertTrue(bytes.remaining() < SaveFormat.maxSize());
+		GameSnapshot loaded = SaveFormat.decodeSnapshot(bytes);
+		assertEquals(loaded.getPieceType(), PieceShape.TYPE_T);
+		assertEquals(loaded.getOrientation(), 1);
+		assertEquals(loaded.getPivotRow(), 3);
+		assertEquals(loaded.getPivotCol(), 4);
+		assertEquals(loaded.getPendingInput(), GameEngine.LEFT);
+		assertFalse(loaded.isGameOver());
+		assertTrue(loaded.isPaused());
+		assertEquals(loaded.getGravityProgress(), 1234);
+		assertEquals(loaded.getTotalLinesCleared(), 42);
+		GeneratorState generator = loaded.getGeneratorState();
+		assertEquals(generator.getKind(), PieceGenerator.KIND_BAG);
+		assertEquals(generator.getSeed(), -987654321L);
+		assertEquals(generator.getDealt(), 77);
+		assertEquals(generator.getRandomState(), 0x123456789ABCDEFL);
+		assertEquals(generator.getExtraState(), 0x5AC688);
+		assertEquals(loaded.getHistory().size(), 2);
+		assertEquals(loaded.getHistory().get(0).getSavedFallingPiece().getType(), PieceShape.TYPE_O);
+		assertEquals(loaded.getHistory().get(0).getSavedBitboard().getRowMask(19), 0);
+		for (int row = 0; row < Board.NUM_ROWS; row++) {
+			for (int col = 0; col < Board.NUM_COLS; col++) {
+				assertEquals(loaded.getBoard().getColorCode(row, col), board.getColorCode(row, col));
+				assertEquals(loaded.getHistory().get(1).getSavedBitboard().getColorCode(row, col), 
+							 board.getColorCode(row, col));
+			}
+		}
+
+		//A piece put where it can't be isn't loaded.
+		GameSnapshot stuck = new GameSnapshot(board, PieceShape.TYPE_O, 0, 18, 4, GameEngine.NONE,
+											  false, false, 0, 0, new UniformPieceGenerator(0).getState(), history);
+		try {
+			SaveFormat.decodeSnapshot(SaveFormat.encode(stuck));
+			fail();
+		}
+		catch (IOException ex) {
+		}
+		//Nor a generator which dealt fewer than no types, or of no kind.
+		GameSnapshot dealtTooFew = new GameSnapshot(board, PieceShape.TYPE_T, 1, 3, 4, GameEngine.NONE, false, false,
+													0, 0, new GeneratorState(PieceGenerator.KIND_UNIFORM, 1, -1, 0, 0), 
+													history);
+		try {
+			SaveFormat.decodeSnapshot(SaveFormat.encode(dealtTooFew));
+			fail();
+		}
+		catch (IOException ex) {
+		}
+		GameSnapshot noKind = new GameSnapshot(board, PieceShape.TYPE_T, 1, 3, 4, GameEngine.NONE, false, false,
+											   0, 0, new GeneratorState(PieceGenerator.NUM_KINDS, 1, 1, 0, 0), history);
+		try {
+			SaveFormat.decodeSnapshot(SaveFormat.encode(noKind));
+			fail();
+		}
+		catch (IOException ex) {
+		}
+	}
+
+	@Test
+	public void bag_game_round_trip_test() throws IOException {
+		Game game = new Game(31, BagPieceGenerator.FACTORY);
+		for (int i = 0; i < 10; i++)
+			game.hardDrop();
+		GameSnapshot loaded = SaveFormat.decodeSnapshot(game.encodeSave());
+		assertEquals(loaded.getGeneratorState().getKind(), PieceGenerator.KIND_BAG);
+
+		Game resumed = new Game(0, BagPieceGenerator.FACTORY);
+		resumed.restore(loaded);
+		PieceGenerator generator = game.getEngine().getGenerator();
+		PieceGenerator resumedGenerator = resumed.getEngine().getGenerator();
+		assertEquals(resumedGenerator.getDealt(), generator.getDealt());
+		for (int i = 0; i < 30; i++)
+			assertEquals(resumedGenerator.next(), generator.next());
+
+		//A bag game isn't restored into a uniform one, which is left as it was.
+		Game uniform = new Game(5);
+		int pieceType = uniform.getEngine().getPieceType();
+		try {
+			uniform.restore(loaded);
+			fail();
+		}
+		catch (IllegalArgumentException ex) {
+		}
+		assertEquals(uniform.getEngine().getPieceType(), pieceType);
+		assertEquals(uniform.getEngine().getGenerator().getDealt(), 1);
+	}
+}
@@ -0,0 +1,99 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.PieceShape;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SaveStoreTest {
+
+	private ByteBuffer save(int height, int pieceType) {
+		Board board = new Board();
+		for (int row = Board.NUM_ROWS - height; row < Board.NUM_ROWS; row++)
+			board.setColorCode(row, 0, 1);
+		return SaveFormat.encode(board, pieceType);
+	}
+
+	private void deleteAll(Path dir) throws IOException {
+		File[] files = dir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files)
+				Files.delete(file.toPath());
+		}
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void write_list_read_test() throws IOException {
+		Path dir = Files.createTempDirectory("store").resolve("saves");
+		SaveStore store = SaveStore.open(dir);
+		assertTrue(store.isEmpty());
+		assertFalse(store.contains("first"));
+
+		SaveSlot first = store.write("first", save(3, PieceShape.TYPE_T));
+		store.write("second", save(5, PieceShape.TYPE_I));
+		assertEquals(first.getBoardHeight(), 3);
+		assertEquals(first.getPieceType(), PieceShape.TYPE_T);
+		assertEquals(first.getSize(), SaveFormat.sizeOf(Board.NUM_ROWS, Board.NUM_COLS));
+
+		List<SaveSlot> slots = store.list();
+		assertEquals(slots.size(), 2);
+		assertTrue(slots.get(0).getSavedAt() >= slots.get(1).getSavedAt());
+		assertTrue(store.contains("second"));
+		assertEquals(store.getSlot("second").getBoardHeight(), 5);
+		assertEquals(store.read("first").getSavedFallingPiece().getType(), PieceShape.TYPE_T);
+
+		//A second store of the directory reads the same index.
+		SaveStore reopened = SaveStore.open(dir);
+		assertEquals(reopened.list().size(), 2);
+		assertEquals(reopened.getSlot("first").getSavedAt(), first.getSavedAt());
+		assertEquals(reopened.getSlot("second").getPieceType(), PieceShape.TYPE_I);
+
+		deleteAll(dir);
+		Files.delete(dir.getParent());
+	}
+
+	@Test
+	public void index_is_rebuilt_test() throws IOException {
+		Path dir = Files.createTempDirectory("store");
+		SaveStore store = SaveStore.open(dir);
+		store.write("kept", save(7, PieceShape.TYPE_Z));
+		Files.write(dir.resolve(SaveStore.INDEX_FILENAME), new byte[] {1, 2, 3});
+		//A corrupted save is left out of the rebuilt index.
+		Files.write(dir.resolve("broken" + SaveStore.SLOT_EXTENSION), new byte[] {4, 5, 6});
+
+		SaveStore rebuilt = SaveStore.open(dir);
+		assertEquals(rebuilt.list().size(), 1);
+		assertEquals(rebuilt.getSlot("kept").getBoardHeight(), 7);
+		assertEquals(rebuilt.getSlot("kept").getPieceType(), PieceShape.TYPE_Z);
+		assertFalse(rebuilt.contains("broken"));
+		//And the rebuilt index is written back.
+		assertEquals(SaveStore.open(dir).list().size(), 1);
+
+		deleteAll(dir);
+	}
+
+	@Test
+	public void slot_names_test() {
+		assertTrue(SaveStore.isValidName("quicksave"));
+		assertTrue(SaveStore.isValidName("level_10-b"));
+		assertFalse(SaveStore.isValidName(""));
+		assertFalse(SaveStore.isValidName("../escape"));
+		assertFalse(SaveStore.isValidName("a b"));
+		assertFalse(SaveStore.isValidName(null));
+		try {
+			new SaveStore(Paths.get("saves")).pathOf("../escape");
+			fail();
+		}
+		catch (IllegalArgumentException ex) {
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.PieceShape;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SaveWriterTest {
+
+	@Test
+	public void saves_in_background_test() throws Exception {
+		Path dir = Files.createTempDirectory("saves");
+		Path path = dir.resolve("slot.bin");
+		SaveWriter writer = new SaveWriter();
+		final IOException[] outcome = {new IOException("not told")};
+		final String[] thread = new String[1];
+		SaveListener listener = new SaveListener() {
+			public void saveWritten(Path written, IOException error) {
+				outcome[0] = error;
+				thread[0] = Thread.currentThread().getName();
+			}
+		};
+
+		Board board = new Board();
+		board.setColorCode(19, 0, 3);
+		writer.save(path, SaveFormat.encode(board, PieceShape.TYPE_L), null);
+		//The newest save replaces the older one.
+		board.setColorCode(19, 1, 4);
+		Future<Void> done = writer.save(path, SaveFormat.encode(board, PieceShape.TYPE_O), listener);
+		assertNull(done.get());
+		assertNull(outcome[0]);
+		assertEquals(thread[0], "Tetris save writer");
+
+		GameState loaded = SaveFormat.decode(SaveFormat.read(path));
+		assertEquals(loaded.getSavedFallingPiece().getType(), PieceShape.TYPE_O);
+		assertEquals(loaded.getSavedBitboard().getRowMask(19), 3);
+		//No temp file is left behind.
+		assertEquals(new File(dir.toString()).list().length, 1);
+
+		assertTrue(writer.shutdown(1000));
+		Files.delete(path);
+		Files.delete(dir);
+	}
+
+	@Test
+	public void failed_save_is_reported_test() throws Exception {
+		Path path = Files.createTempDirectory("saves").resolve("missing").resolve("slot.bin");
+		SaveWriter writer = new SaveWriter();
+		final IOException[] outcome = new IOException[1];
+
+		Future<Void> done = writer.save(path, SaveFormat.encode(new Board(), PieceShape.TYPE_I), 
+			new SaveListener() {
+				public void saveWritten(Path written, IOException error) {
+					outcome[0] = error;
+				}
+			});
+		try {
+			done.get();
+			fail();
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IOException);
+		}
+		assertNotNull(outcome[0]);
+		assertTrue(writer.shutdown(1000));
+		Files.delete(path.getParent().getParent());
+	}
+}
@@ -0,0 +1,78 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SnapshotWriterTest {
+
+	private void assertSameCells(BoardSnapshot snapshot, BoardSnapshot expected) {
+		for (int row = 0; row < 20; row++) {
+			for (int col = 0; col < 10; col++)
+				assertEquals(snapshot.getCellCode(row, col), expected.getCellCode(row, col));
+		}
+	}
+
+	@Test
+	public void only_changed_cells_are_written_test() {
+		Game game = new Game(8);
+		SnapshotWriter writer = new SnapshotWriter();
+		BoardSnapshot[] buffers = {new BoardSnapshot(20, 10), new BoardSnapshot(20, 10),
+								   new BoardSnapshot(20, 10)};
+		BoardSnapshot expected = new BoardSnapshot(20, 10);
+		BoardSnapshot previous = new BoardSnapshot(20, 10);
+		Random random = new Random(3);
+
+		for (int frame = 0; frame < 3000 && game.isGameOver() == false; frame++) {
+			game.runFrame();
+			int input = random.nextInt(12);
+			if (input == 0)
+				game.moveLeft();
+			else if (input == 1)
+				game.moveRight();
+			else if (input == 2)
+				game.rotate();
+			else if (input == 3 && frame % 5 == 0)
+				game.hardDrop();
+			else if (input == 4 && frame % 50 == 0)
+				game.undo();
+
+			//Buffers are written in any order, one of them often
+			//held back longer than the history of the writer.
+			BoardSnapshot buffer = buffers[frame % 40 < 30 ? random.nextInt(2) : random.nextInt(3)];
+			assertEquals(writer.write(game, buffer), frame);
+			assertTrue(game.getDirtyCells().isEmpty());
+			game.writeSnapshot(expected, frame);
+			assertSameCells(buffer, expected);
+			assertEquals(buffer.getFrameNumber(), frame);
+
+			//Cells left out of the changed mask are as they were in the frame before.
+			for (int row = 0; row < 20 && frame > 0; row++) {
+				for (int col = 0; col < 10; col++) {
+					if ((buffer.getChangedMask(row) & (1 << col)) == 0)
+						assertEquals(buffer.getCellCode(row, col), previous.getCellCode(row, col));
+				}
+			}
+			game.writeSnapshot(previous, frame);
+		}
+	}
+
+	@Test
+	public void a_normal_frame_changes_few_cells_test() {
+		Game game = new Game(21);
+		SnapshotWriter writer = new SnapshotWriter();
+		BoardSnapshot snapshot = new BoardSnapshot(20, 10);
+		writer.write(game, snapshot);
+		game.moveLeft();
+		writer.write(game, snapshot);
+
+		int changed = 0;
+		for (int row = 0; row < 20; row++)
+			changed += Integer.bitCount(snapshot.getChangedMask(row));
+		//The piece and its ghost, where they were and where they are
+		assertTrue(changed > 0);
+		assertTrue(changed <= 16);
+	}
+}
@@ -0,0 +1,61 @@
+package game.tetris.lib;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TripleBufferTest {
+
+	@Test
+	public void newest_frame_test() {
+		TripleBuffer<int[]> frames = new TripleBuffer<int[]>(new int[1], new int[1], new int[1]);
+		assertFalse(frames.hasNewFrame());
+
+		for (int frame = 1; frame <= 3; frame++) {
+			frames.getBackBuffer()[0] = frame;
+			frames.publish();
+		}
+		assertTrue(frames.hasNewFrame());
+		//Unread frames are overwritten by newer ones.
+		assertEquals(frames.takeNewest()[0], 3);
+		assertFalse(frames.hasNewFrame());
+		assertEquals(frames.takeNewest()[0], 3);
+
+		//The writer never gets the buffer the reader holds.
+		for (int frame = 4; frame <= 10; frame++) {
+			assertNotSame(frames.getBackBuffer(), frames.getFrontBuffer());
+			frames.getBackBuffer()[0] = frame;
+			frames.publish();
+		}
+		assertEquals(frames.takeNewest()[0], 10);
+	}
+
+	@Test
+	public void reader_sees_whole_frames_test() throws InterruptedException {
+		final int size = 64;
+		final int numFrames = 200000;
+		final TripleBuffer<int[]> frames = new TripleBuffer<int[]>(new int[size], new int[size], new int[size]);
+
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				for (int frame = 1; frame <= numFrames; frame++) {
+					int[] back = frames.getBackBuffer();
+					for (int i = 0; i < size; i++)
+						back[i] = frame;
+					frames.publish();
+				}
+			}
+		});
+		writer.start();
+
+		int lastFrame = 0;
+		while (lastFrame < numFrames) {
+			int[] front = frames.takeNewest();
+			for (int i = 0; i < size; i++)
+				assertEquals(front[i], front[0]);
+			assertTrue(front[0] >= lastFrame);
+			lastFrame = front[0];
+		}
+		writer.join();
+	}
+}
@@ -0,0 +1,156 @@
+package game.tetris.lib.pieces;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+public class PieceGeneratorTest {
+
+	@Test
+	public void uniform_matches_random_test() {
+		Random random = new Random(42);
+		PieceGenerator generator = new UniformPieceGenerator(42);
+
+		for (int i = 0; i < 100; i++)
+			assertEquals(generator.next(), random.nextInt(PieceShape.NUM_TYPES));
+	}
+
+	@Test
+	public void peek_and_reset_test() {
+		PieceGenerator generator = new SplittablePieceGenerator(3, 5);
+		PieceGenerator other = new SplittablePieceGenerator(3, 1);
+		assertEquals(generator.getLookahead(), 5);
+
+		for (int i = 0; i < 50; i++) {
+			int peeked = generator.peek(0);
+			int lastPeeked = generator.peek(4);
+			assertEquals(generator.next(), peeked);
+			assertEquals(generator.peek(3), lastPeeked);
+			//The lookahead doesn't change the sequence.
+			assertEquals(other.next(), peeked);
+		}
+		generator.reset(3);
+		other.reset(3);
+		assertEquals(generator.next(), other.next());
+	}
+
+	@Test
+	public void bag_deals_every_type_once_test() {
+		PieceGenerator generator = new BagPieceGenerator(11);
+
+		for (int bags = 0; bags < 20; bags++) {
+			boolean[] dealt = new boolean[PieceShape.NUM_TYPES];
+			for (int i = 0; i < PieceShape.NUM_TYPES; i++) {
+				int type = generator.next();
+				assertFalse(dealt[type]);
+				dealt[type] = true;
+			}
+		}
+	}
+
+	@Test
+	public void splitmix_matches_splittable_random_test() {
+		SplittableRandom random = new SplittableRandom(-8);
+		SplitMix64 splitMix = new SplitMix64(-8);
+
+		for (int i = 0; i < 1000; i++)
+			assertEquals(splitMix.nextInt(i % 2 == 0 ? PieceShape.NUM_TYPES : 8), random.nextInt(i % 2 == 0 ? 7 : 8));
+	}
+
+	@Test
+	public void restore_test() {
+		PieceGenerator[] generators = {new UniformPieceGenerator(5),
+									   new SplittablePieceGenerator(6),
+									   new BagPieceGenerator(7, 4)};
+		//The lookahead of the generator restored into doesn't matter.
+		PieceGenerator[] restored = {new UniformPieceGenerator(0),
+									 new SplittablePieceGenerator(0, 1),
+									 new BagPieceGenerator(0, 6)};
+		for (int i = 0; i < generators.length; i++) {
+			for (int j = 0; j < 123; j++)
+				generators[i].next();
+			restored[i].restore(generators[i].getState());
+			assertEquals(restored[i].getDealt(), 123);
+			assertEquals(restored[i].getSeed(), generators[i].getSeed());
+			for (int j = 0; j < 50; j++) {
+				assertEquals(restored[i].peek(0), generators[i].peek(0));
+				assertEquals(restored[i].next(), generators[i].next());
+			}
+		}
+	}
+
+	@Test
+	public void restore_does_not_draw_dealt_types_test() {
+		PieceGenerator generator = new BagPieceGenerator(9);
+		GeneratorState state = generator.getState();
+		//Drawing this many types again would never end.
+		GeneratorState far = new GeneratorState(state.getKind(), state.getSeed(), Long.MAX_VALUE / 2,
+												state.getRandomState(), state.getExtraState());
+		PieceGenerator restored = new BagPieceGenerator(0);
+		restored.restore(far);
+		assertEquals(restored.getDealt(), Long.MAX_VALUE / 2);
+		assertEquals(restored.next(), generator.next());
+	}
+
+	@Test
+	public void impossible_state_is_not_restored_test() {
+		PieceGenerator bag = new BagPieceGenerator(3);
+		bag.next();
+		int extraState = bag.getState().getExtraState();
+		int peeked = bag.peek(0);
+		//A bag holding its second type twice, one holding a type 7,
+		//one dealt past its end, and the state of another kind.
+		GeneratorState[] impossible = {
+			new GeneratorState(PieceGenerator.KIND_BAG, 0, 0, 0, (extraState & ~0x7) | ((extraState >>> 3) & 0x7)),
+			new GeneratorState(PieceGenerator.KIND_BAG, 0, 0, 0, extraState | 0x7),
+			new GeneratorState(PieceGenerator.KIND_BAG, 0, 0, 0, (extraState & 0x1FFFFF) | (8 << 21)),
+			new UniformPieceGenerator(3).getState()};
+		for (GeneratorState bad : impossible) {
+			try {
+				bag.restore(bad);
+				fail();
+			}
+			catch (IllegalArgumentException ex) {
+			}
+			assertEquals(bag.getDealt(), 1);
+			assertEquals(bag.peek(0), peeked);
+		}
+		try {
+			new UniformPieceGenerator(0).restore(new GeneratorState(PieceGenerator.KIND_UNIFORM, 0, 0, 1L << 48, 0));
+			fail();
+		}
+		catch (IllegalArgumentException ex) {
+		}
+	}
+
+	@Test
+	public void next_does_not_allocate_test() {
+		ThreadMXBean bean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if (bean.isThreadAllocatedMemorySupported() == false)
+			return;
+		long threadId = Thread.currentThread().getId();
+
+		PieceGenerator[] generators = {new UniformPieceGenerator(1),
+									   new SplittablePieceGenerator(1),
+									   new BagPieceGenerator(1)};
+		for (PieceGenerator generator : generators)
+			generator.next();
+		//Cost of asking the bean itself.
+		long overhead = -bean.getThreadAllocatedBytes(threadId);
+		overhead += bean.getThreadAllocatedBytes(threadId);
+
+		long before = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100; i++) {
+			for (PieceGenerator generator : generators)
+				generator.next();
+		}
+		long after = bean.getThreadAllocatedBytes(threadId);
+		assertEquals(after - before - overhead, 0);
+	}
+}
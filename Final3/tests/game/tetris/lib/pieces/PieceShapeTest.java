@@ -0,0 +1,93 @@
+package game.tetris.lib.pieces;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PieceShapeTest {
+	//Spawn coords and rotation additives the Tetrimino subclasses
+	//used before the shape table, in TYPE_ order (I, J, L, O, S, T, Z).
+	private static final int[][] LEGACY_INIT_TET_COORDS = {{0, 3, 0, 4, 0, 5, 0, 6},
+														   {0, 3, 0, 4, 0, 5, 1, 5},
+														   {0, 3, 0, 4, 0, 5, 1, 3},
+														   {0, 4, 0, 5, 1, 4, 1, 5},
+														   {0, 5, 0, 4, 1, 4, 1, 3},
+														   {0, 3, 0, 4, 0, 5, 1, 4},
+														   {0, 3, 0, 4, 1, 4, 1, 5}};
+	private static final int[][][] LEGACY_ORIENTATIONS = {
+		{{1, -1, 0, 0, -1, 1, -2, 2}, {-1, 1, 0, 0, 1, -1, 2, -2}},
+		{{-1, -1, 0, 0, 1, 1, 2, 0}, {-1, 1, 0, 0, 1, -1, 0, -2},
+		 {1, 1, 0, 0, -1, -1, -2, 0}, {1, -1, 0, 0, -1, 1, 0, 2}},
+		{{-1, -1, 0, 0, 1, 1, 0, -2}, {-1, 1, 0, 0, 1, -1, -2, 0},
+		 {1, 1, 0, 0, -1, -1, 0, 2}, {1, -1, 0, 0, -1, 1, 2, 0}},
+		{{0, 0, 0, 0, 0, 0, 0, 0}},
+		{{1, 1, 0, 0, 1, -1, 0, -2}, {-1, -1, 0, 0, -1, 1, 0, 2}},
+		{{-1, -1, 0, 0, 1, 1, 1, -1}, {-1, 1, 0, 0, 1, -1, -1, -1},
+		 {1, 1, 0, 0, -1, -1, -1, 1}, {1, -1, 0, 0, -1, 1, 1, 1}},
+		{{1, -1, 0, 0, 1, 1, 0, 2}, {-1, 1, 0, 0, -1, -1, 0, -2}}};
+
+	@Test
+	public void table_matches_legacy_rotations_test() {
+		for (int type = 0; type < PieceShape.NUM_TYPES; type++) {
+			Tetrimino piece = Tetrimino.typeToTetrimino(type);
+			int[] legacyCoords = LEGACY_INIT_TET_COORDS[type].clone();
+			int legacyOrientation = 0;
+			int numOrientations = LEGACY_ORIENTATIONS[type].length;
+
+			assertEquals(piece.getType(), type);
+			assertArrayEquals(piece.getTetBlockCoords(), legacyCoords);
+
+			//Go around every orientation twice.
+			for (int rotations = 0; rotations < 8; rotations++) {
+				legacyOrientation = (legacyOrientation + 1) % numOrientations;
+				for (int i = 0; i < 8; i++)
+					legacyCoords[i] += LEGACY_ORIENTATIONS[type][legacyOrientation][i];
+
+				piece.rotate(Rotate.CW);
+				piece.setAllTetBlockCoords(piece.rotatingTetBlockCoords());
+				assertArrayEquals(piece.getTetBlockCoords(), legacyCoords);
+				assertEquals(piece.getOrientationNum(), legacyOrientation);
+			}
+		}
+	}
+
+	@Test
+	public void row_masks_and_bounding_box_test() {
+		for (int type = 0; type < PieceShape.NUM_TYPES; type++) {
+			for (int orient = 0; orient < PieceShape.NUM_ORIENTATIONS; orient++) {
+				PieceShape shape = PieceShape.of(type, orient);
+				int numBlocksInMasks = 0;
+
+				for (int row = 0; row < shape.getHeight(); row++)
+					numBlocksInMasks += Integer.bitCount(shape.getRowMask(row));
+				assertEquals(numBlocksInMasks, PieceShape.NUM_BLOCKS);
+				assertEquals(shape.getHeight(), shape.getMaxRowOffset() - shape.getMinRowOffset() + 1);
+
+				//Every block has to be inside the bounding box and in its row mask.
+				for (int i = 0; i < 8; i += 2) {
+					int row = shape.getBlockOffset(i) - shape.getMinRowOffset();
+					int col = shape.getBlockOffset(i + 1) - shape.getMinColOffset();
+					assertTrue(shape.getBlockOffset(i + 1) <= shape.getMaxColOffset());
+					assertTrue((shape.getRowMask(row) & (1 << col)) != 0);
+				}
+				//The pivot is the second block.
+				assertEquals(shape.getBlockOffset(2), 0);
+				assertEquals(shape.getBlockOffset(3), 0);
+			}
+		}
+	}
+
+	@Test
+	public void bounds_test() {
+		//I standing up at its spawn pivot sticks out of the top of the board.
+		PieceShape standingI = PieceShape.of(PieceShape.TYPE_I, 1);
+		assertFalse(standingI.isInBounds(0, 4, 20, 10));
+		assertTrue(standingI.isInBounds(1, 4, 20, 10));
+		assertFalse(standingI.isInBounds(18, 4, 20, 10));
+
+		PieceShape flatI = PieceShape.of(PieceShape.TYPE_I, 0);
+		assertTrue(flatI.isInBounds(19, 1, 20, 10));
+		assertFalse(flatI.isInBounds(19, 0, 20, 10));
+		assertFalse(flatI.isInBounds(19, 8, 20, 10));
+	}
+}
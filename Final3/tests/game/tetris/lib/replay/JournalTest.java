@@ -0,0 +1,184 @@
+package game.tetris.lib.replay;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class JournalTest {
+
+	private ByteBuffer record(long seed, ByteBuffer start, long[] ticks, int[] inputs, long endTick) 
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), seed, start);
+		for (int i = 0; i < ticks.length; i++)
+			writer.record(ticks[i], inputs[i]);
+		writer.close(endTick);
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	@Test
+	public void varint_test() throws IOException {
+		long[] values = {0, 1, 127, 128, 300, 1L << 35, Long.MAX_VALUE, -1};
+		ByteBuffer bytes = ByteBuffer.allocate(values.length * Journal.MAX_VARINT_SIZE);
+		for (long value : values)
+			Journal.putVarint(bytes, value);
+		bytes.flip();
+		for (long value : values)
+			assertEquals(Journal.getVarint(bytes), value);
+		assertFalse(bytes.hasRemaining());
+
+		bytes.clear();
+		Journal.putVarint(bytes, 127);
+		assertEquals(bytes.position(), 1);
+		Journal.putVarint(bytes, 128);
+		assertEquals(bytes.position(), 3);
+	}
+
+	@Test
+	public void write_read_test() throws IOException {
+		long[] ticks = {0, 0, 5, 70, 70, 100000};
+		int[] inputs = {Journal.LEFT, Journal.ROTATE, Journal.HARD_DROP, Journal.PAUSE, Journal.RESUME,
+						Journal.SOFT_DROP};
+		ByteBuffer bytes = record(-42, null, ticks, inputs, 100500);
+		//Header, then a byte or two an event, then the index of no checkpoints.
+		assertTrue(bytes.remaining() <= 4 + 1 + 8 + 1 + 11 + 4 + Journal.FOOTER_SIZE);
+
+		JournalReader reader = new JournalReader(bytes);
+		assertEquals(reader.getSeed(), -42);
+		assertNull(reader.getStart());
+		for (int i = 0; i < ticks.length; i++) {
+			assertTrue(reader.next());
+			assertEquals(reader.getTick(), ticks[i]);
+			assertEquals(reader.getInput(), inputs[i]);
+		}
+		assertFalse(reader.next());
+		assertTrue(reader.isEnded());
+		assertEquals(reader.getTick(), 100500);
+
+		//Going back to an event reads the same from there.
+		reader.rewind();
+		reader.next();
+		reader.next();
+		int offset = reader.getOffset();
+		long tick = reader.getTick();
+		reader.next();
+		reader.seek(offset, tick);
+		assertTrue(reader.next());
+		assertEquals(reader.getTick(), 5);
+		assertEquals(reader.getInput(), Journal.HARD_DROP);
+	}
+
+	@Test
+	public void start_and_cut_off_test() throws IOException {
+		ByteBuffer start = ByteBuffer.wrap(new byte[] {9, 8, 7});
+		ByteBuffer bytes = record(7, start, new long[] {1, 200}, new int[] {Journal.LEFT, Journal.UNDO}, 200);
+		JournalReader reader = new JournalReader(bytes);
+		assertEquals(reader.getStart(), start);
+
+		//Cut in the middle of the second event, as a crash would.
+		reader.next();
+		ByteBuffer cut = bytes.duplicate();
+		cut.limit(reader.getOffset() + 1);
+		reader = new JournalReader(cut);
+		assertTrue(reader.next());
+		assertFalse(reader.next());
+		assertFalse(reader.isEnded());
+		assertEquals(reader.getTick(), 1);
+	}
+
+	@Test
+	public void checkpoint_index_test() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), 5, null);
+		ByteBuffer[] saves = {ByteBuffer.wrap(new byte[] {1, 2, 3}),
+							  //Bigger than the buffer
+							  ByteBuffer.wrap(new byte[JournalWriter.BUFFER_SIZE + 100]),
+							  ByteBuffer.wrap(new byte[] {4})};
+		long[] ticks = {100, 250, 251};
+		for (int i = 0; i < saves.length; i++) {
+			writer.record(ticks[i] - 1, Journal.LEFT);
+			writer.checkpoint(ticks[i], saves[i]);
+			writer.record(ticks[i], Journal.ROTATE);
+		}
+		assertEquals(writer.getNumCheckpoints(), 3);
+		writer.close(400);
+		ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+
+		JournalReader reader = new JournalReader(bytes);
+		assertEquals(reader.getNumCheckpoints(), 3);
+		assertEquals(reader.getEndTick(), 400);
+		assertEquals(reader.findCheckpoint(99), -1);
+		assertEquals(reader.findCheckpoint(100), 0);
+		assertEquals(reader.findCheckpoint(249), 0);
+		assertEquals(reader.findCheckpoint(1000), 2);
+		for (int i = 0; i < saves.length; i++) {
+			assertEquals(reader.getCheckpointTick(i), ticks[i]);
+			reader.seekCheckpoint(i);
+			assertEquals(reader.getTick(), ticks[i]);
+			assertEquals(reader.getCheckpoint(), saves[i]);
+			//Reading on gives the events after it.
+			assertTrue(reader.next());
+			assertEquals(reader.getInput(), Journal.ROTATE);
+			assertEquals(reader.getTick(), ticks[i]);
+		}
+		//Read in order, checkpoints are events too.
+		reader.rewind();
+		int numEvents = 0;
+		while (reader.next())
+			numEvents++;
+		assertEquals(numEvents, 9);
+		assertTrue(reader.isEnded());
+
+		//Without the index, it is made from the events.
+		reader.seekCheckpoint(2);
+		ByteBuffer cut = bytes.duplicate();
+		cut.limit(reader.getOffset() + 1);
+		reader = new JournalReader(cut);
+		assertEquals(reader.getNumCheckpoints(), 3);
+		assertEquals(reader.getEndTick(), 251);
+		reader.seekCheckpoint(1);
+		assertEquals(reader.getCheckpoint(), saves[1]);
+
+		//A checkpoint cut off is dropped.
+		reader.seekCheckpoint(2);
+		cut.limit(reader.getOffset() - 1);
+		reader = new JournalReader(cut);
+		assertEquals(reader.getNumCheckpoints(), 2);
+	}
+
+	@Test
+	public void file_test() throws IOException {
+		Path path = Files.createTempDirectory("journal").resolve("sub").resolve("game.journal");
+		JournalWriter writer = JournalWriter.create(path, 99, null);
+		for (int i = 0; i < 5000; i++)
+			writer.record(i * 3, Journal.LEFT + i % 5);
+		writer.close(20000);
+
+		JournalReader reader = JournalReader.open(path);
+		int numEvents = 0;
+		while (reader.next()) {
+			assertEquals(reader.getTick(), numEvents * 3);
+			numEvents++;
+		}
+		assertEquals(numEvents, 5000);
+		assertTrue(reader.isEnded());
+
+		try {
+			writer.record(20001, Journal.LEFT);
+			fail();
+		}
+		catch (IOException ex) {
+			//Closed.
+		}
+		Files.delete(path);
+		Files.delete(path.getParent());
+		Files.delete(path.getParent().getParent());
+	}
+}
@@ -0,0 +1,152 @@
+package game.tetris.lib.replay;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.Game;
+import game.tetris.lib.GameEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+public class ReplayPlayerTest {
+
+	//Plays a game with some inputs, recording them.
+	private void play(Game game, JournalWriter writer, int frames, int salt) throws IOException {
+		for (int frame = 0; frame < frames && game.isGameOver() == false; frame++) {
+			game.runFrame();
+			int input = (frame * 5 + salt) % 13;
+			if (input >= Journal.LEFT && input <= Journal.HARD_DROP && (input != Journal.HARD_DROP || frame % 4 == 0)) {
+				Journal.apply(game, input);
+				writer.record(game.getFrameCount(), input);
+			}
+			if (frame % 500 == 250) {
+				Journal.apply(game, Journal.PAUSE);
+				writer.record(game.getFrameCount(), Journal.PAUSE);
+				Journal.apply(game, Journal.UNDO);
+				writer.record(game.getFrameCount(), Journal.UNDO);
+				Journal.apply(game, Journal.RESUME);
+				writer.record(game.getFrameCount(), Journal.RESUME);
+			}
+		}
+	}
+
+	private void assertSameBoard(Game first, Game second) {
+		GameEngine one = first.getEngine();
+		GameEngine other = second.getEngine();
+		for (int row = 0; row < 20; row++)
+			assertEquals(one.getRowMask(row), other.getRowMask(row));
+		assertEquals(one.getPieceType(), other.getPieceType());
+		assertEquals(one.getPivotRow(), other.getPivotRow());
+		assertEquals(one.getPivotCol(), other.getPivotCol());
+		assertEquals(one.getOrientation(), other.getOrientation());
+		assertEquals(one.getTotalLinesCleared(), other.getTotalLinesCleared());
+		assertEquals(first.getFrameCount(), second.getFrameCount());
+	}
+
+	@Test
+	public void replay_matches_recorded_game_test() throws IOException {
+		Game game = new Game(1234);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), game.getSeed(), null);
+		play(game, writer, 3000, 0);
+		//Frames after the last input are replayed too.
+		for (int i = 0; i < 10; i++)
+			game.runFrame();
+		writer.close(game.getFrameCount());
+
+		ReplayPlayer player = new ReplayPlayer(new JournalReader(ByteBuffer.wrap(out.toByteArray())));
+		Game replayed = player.playToEnd();
+		assertSameBoard(game, replayed);
+		//Only the inputs are stored: a few bytes a second of play.
+		assertTrue(out.size() < 3000 * 2);
+	}
+
+	@Test
+	public void replay_from_loaded_game_test() throws IOException {
+		Game before = new Game(55);
+		for (int i = 0; i < 777; i++)
+			before.runFrame();
+
+		Game game = new Game(0);
+		game.restore(before.snapshot());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), game.getSeed(), game.encodeSave());
+		play(game, writer, 1500, 7);
+		writer.close(game.getFrameCount());
+
+		Game replayed = new ReplayPlayer(new JournalReader(ByteBuffer.wrap(out.toByteArray()))).playToEnd();
+		assertSameBoard(game, replayed);
+	}
+
+	//Plays a ReplayPlayer to a tick from the start, without seeking.
+	private ReplayPlayer playFromStart(ByteBuffer bytes, long tick) throws IOException {
+		ReplayPlayer player = new ReplayPlayer(new JournalReader(bytes.duplicate()));
+		player.playTo(tick);
+		return player;
+	}
+
+	@Test
+	public void seek_test() throws IOException {
+		Game game = new Game(777);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), game.getSeed(), null);
+		for (int salt = 0; game.isGameOver() == false; salt++) {
+			play(game, writer, 120, salt);
+			writer.checkpoint(game.getFrameCount(), game.encodeSave());
+		}
+		long endTick = game.getFrameCount();
+		writer.close(endTick);
+		ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+		assertTrue(writer.getNumCheckpoints() >= 3);
+
+		ReplayPlayer player = new ReplayPlayer(new JournalReader(bytes.duplicate()));
+		long[] targets = {300, 100, endTick - 1, 0, endTick, 250, 250, 121, 119, endTick + 100, 240};
+		for (long target : targets) {
+			player.seek(target);
+			long tick = Math.min(target, endTick);
+			assertEquals(player.getTick(), tick);
+			ReplayPlayer linear = playFromStart(bytes, target);
+			assertEquals(linear.getTick(), tick);
+			assertEquals(player.getGame().encodeSave(), linear.getGame().encodeSave());
+			//At most a checkpoint interval was played.
+			assertTrue(player.getGame().getFrameCount() <= 120);
+		}
+		//Playing on after a seek plays the same game.
+		player.seek(130);
+		assertEquals(player.playToEnd().encodeSave(), game.encodeSave());
+		assertEquals(player.getTick(), endTick);
+	}
+
+	@Test
+	public void checkpoints_every_hundred_pieces_test() throws IOException {
+		Game game = new Game(31);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JournalWriter writer = new JournalWriter(Channels.newChannel(out), game.getSeed(), null);
+		//Every drop deals a piece, and every undo takes the board back.
+		for (int i = 0; i < 250; i++) {
+			for (int frame = 0; frame < 3; frame++) {
+				game.runFrame();
+				writer.checkpointIfDue(game);
+			}
+			game.hardDrop();
+			writer.record(game.getFrameCount(), Journal.HARD_DROP);
+			writer.checkpointIfDue(game);
+			game.undo();
+			writer.record(game.getFrameCount(), Journal.UNDO);
+			writer.checkpointIfDue(game);
+		}
+		assertFalse(game.isGameOver());
+		assertEquals(writer.getNumCheckpoints(), 2);
+		writer.close(game.getFrameCount());
+
+		ReplayPlayer player = new ReplayPlayer(new JournalReader(ByteBuffer.wrap(out.toByteArray())));
+		assertEquals(player.getReader().getNumCheckpoints(), 2);
+		player.seek(game.getFrameCount());
+		assertEquals(player.getGame().encodeSave(), game.encodeSave());
+		//From the last checkpoint, not the start
+		assertTrue(player.getGame().getFrameCount() < game.getFrameCount());
+	}
+}
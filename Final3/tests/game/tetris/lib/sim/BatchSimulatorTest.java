@@ -0,0 +1,84 @@
+package game.tetris.lib.sim;
+
+import static org.junit.Assert.*;
+import game.tetris.lib.pieces.BagPieceGenerator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class BatchSimulatorTest {
+
+	@Test
+	public void results_are_deterministic_test() {
+		long[] seeds = new long[50];
+		for (int i = 0; i < seeds.length; i++)
+			seeds[i] = 1000 + i;
+
+		ForkJoinPool onePool = new ForkJoinPool(1);
+		ForkJoinPool fourPool = new ForkJoinPool(4);
+		try {
+			BatchSimulator single = new BatchSimulator(RandomPolicy.FACTORY, 5000, onePool);
+			BatchSimulator parallel = new BatchSimulator(RandomPolicy.FACTORY, 5000, fourPool);
+			GameResult[] singleResults = single.simulate(seeds);
+			GameResult[] parallelResults = parallel.simulate(seeds);
+
+			assertArrayEquals(singleResults, parallelResults);
+			for (int i = 0; i < seeds.length; i++) {
+				assertEquals(parallelResults[i].getSeed(), seeds[i]);
+				assertEquals(parallelResults[i], single.play(seeds[i]));
+			}
+		} finally {
+			onePool.shutdown();
+			fourPool.shutdown();
+		}
+	}
+
+	@Test
+	public void bag_results_are_deterministic_test() {
+		long[] seeds = new long[40];
+		for (int i = 0; i < seeds.length; i++)
+			seeds[i] = 2000 + i;
+
+		ForkJoinPool onePool = new ForkJoinPool(1);
+		ForkJoinPool threePool = new ForkJoinPool(3);
+		try {
+			BatchSimulator single = new BatchSimulator(RandomPolicy.FACTORY, BagPieceGenerator.FACTORY, 
+													   5000, onePool);
+			BatchSimulator parallel = new BatchSimulator(RandomPolicy.FACTORY, BagPieceGenerator.FACTORY, 
+														 5000, threePool);
+			GameResult[] singleResults = single.simulate(seeds);
+			GameResult[] parallelResults = parallel.simulate(seeds);
+
+			assertArrayEquals(singleResults, parallelResults);
+			for (int i = 0; i < seeds.length; i++)
+				assertEquals(parallelResults[i], single.play(seeds[i]));
+
+			//The games were dealt from bags, not uniformly.
+			GameResult[] uniformResults = new BatchSimulator(RandomPolicy.FACTORY, 5000, onePool).simulate(seeds);
+			assertFalse(Arrays.equals(singleResults, uniformResults));
+		} finally {
+			onePool.shutdown();
+			threePool.shutdown();
+		}
+	}
+
+	@Test
+	public void results_are_counted_test() {
+		BatchSimulator simulator = new BatchSimulator(RandomPolicy.FACTORY, 100000);
+		GameResult result = simulator.play(7);
+
+		//Random play tops out long before the step limit.
+		assertTrue(result.isGameOver());
+		assertTrue(result.getPiecesPlaced() > 0);
+		//Stopping a piece takes a step of its own.
+		assertTrue(result.getSurvivalSteps() > result.getPiecesPlaced());
+
+		BatchSimulator capped = new BatchSimulator(RandomPolicy.FACTORY, 30);
+		GameResult cappedResult = capped.play(7);
+		assertFalse(cappedResult.isGameOver());
+		assertEquals(cappedResult.getSurvivalSteps(), 30);
+		assertEquals(BatchSimulator.totalPiecesPlaced(new GameResult[] {cappedResult}), 1);
+	}
+}